@@ -46,13 +46,19 @@ echo "✅ Login successful, token: ${TOKEN:0:20}..."
 # Test 3: Create Order with Flight Details
 echo ""
 echo "3️⃣ Testing Enhanced Order Creation..."
+QUOTE_ID=$(curl -s -X POST http://localhost:8080/api/quote \
+  -H "Content-Type: application/json" \
+  -d '{
+    "flightNumber": "AA1234",
+    "departureAirport": "DFW",
+    "arrivalAirport": "LAX"
+  }' | jq -r '.quoteId')
+echo "✅ Quote reserved: $QUOTE_ID"
 curl -s -X POST http://localhost:8080/api/orders \
   -H "Content-Type: application/json" \
   -d '{
     "userEmail": "pilot@americanairlines.com",
-    "flightEmissions": 1250.0,
-    "safVolume": 35.0,
-    "priceUsd": 89.50,
+    "quoteId": "'"$QUOTE_ID"'",
     "flightNumber": "AA1234",
     "departureAirport": "DFW",
     "arrivalAirport": "LAX",
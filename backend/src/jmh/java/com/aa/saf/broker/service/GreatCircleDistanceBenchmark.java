@@ -0,0 +1,62 @@
+package com.aa.saf.broker.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar vs SIMD batch Haversine. Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GreatCircleDistanceBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    private int routes;
+
+    private double[] lat1;
+    private double[] lon1;
+    private double[] lat2;
+    private double[] lon2;
+    private double[] out;
+    private GreatCircleDistance.BatchKernel vectorKernel;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        vectorKernel = GreatCircleDistance.newVectorKernel();
+        SplittableRandom random = new SplittableRandom(42);
+        lat1 = new double[routes];
+        lon1 = new double[routes];
+        lat2 = new double[routes];
+        lon2 = new double[routes];
+        out = new double[routes];
+        for (int i = 0; i < routes; i++) {
+            lat1[i] = random.nextDouble(-60, 70);
+            lon1[i] = random.nextDouble(-180, 180);
+            lat2[i] = random.nextDouble(-60, 70);
+            lon2[i] = random.nextDouble(-180, 180);
+        }
+    }
+
+    @Benchmark
+    public double[] scalar() {
+        GreatCircleDistance.scalarDistancesKm(lat1, lon1, lat2, lon2, out, 0, routes);
+        return out;
+    }
+
+    @Benchmark
+    public double[] vectorized() {
+        vectorKernel.distancesKm(lat1, lon1, lat2, lon2, out, routes);
+        return out;
+    }
+}
@@ -2,8 +2,10 @@ package com.aa.saf.broker;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class SafCertificateBrokerApplication {
 
 	public static void main(String[] args) {
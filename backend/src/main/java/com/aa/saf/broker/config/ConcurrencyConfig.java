@@ -0,0 +1,35 @@
+package com.aa.saf.broker.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ConcurrencyConfig {
+
+    /**
+     * Pool for quote work that blocks on external APIs (emissions, market prices), so independent
+     * lookups can run side by side without starving the request threads. Both threads and queue
+     * are bounded: once the queue is full, the submitting request thread runs the task itself,
+     * so an overloaded pool degrades to the serial flow instead of queueing without limit.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService quoteExecutor(@Value("${quote.executor.threads:16}") int threads,
+                                         @Value("${quote.executor.queue-capacity:64}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "quote-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
@@ -0,0 +1,57 @@
+package com.aa.saf.broker.config;
+
+import com.aa.saf.broker.controller.QuoteController;
+import com.aa.saf.broker.service.QuoteStageTimer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Records the "serialization" quote stage: marks the time just before the message converter
+ * writes a quote body and measures up to request completion. Headers are already committed by
+ * then, so this stage only goes to the histogram, not the Server-Timing header.
+ */
+@ControllerAdvice(assignableTypes = QuoteController.class)
+public class QuoteSerializationTiming implements ResponseBodyAdvice<Object>, HandlerInterceptor {
+
+    private static final String WRITE_STARTED = QuoteSerializationTiming.class.getName() + ".writeStarted";
+
+    private final ObjectProvider<QuoteStageTimer> stageTimer;
+
+    public QuoteSerializationTiming(ObjectProvider<QuoteStageTimer> stageTimer) {
+        this.stageTimer = stageTimer;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            servletRequest.getServletRequest().setAttribute(WRITE_STARTED, System.nanoTime());
+        }
+        return body;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object started = request.getAttribute(WRITE_STARTED);
+        QuoteStageTimer timer = stageTimer.getIfAvailable();
+        if (started instanceof Long startNanos && timer != null) {
+            timer.record("serialization", System.nanoTime() - startNanos);
+        }
+    }
+}
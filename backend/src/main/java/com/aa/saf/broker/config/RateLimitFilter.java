@@ -0,0 +1,164 @@
+package com.aa.saf.broker.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Rate limits the public endpoints that can trigger paid upstream calls (quotes and certificate
+ * verification). Over-limit requests get 429 with Retry-After before reaching any controller.
+ *
+ * Every request is limited per client IP. Anonymous requests, and requests with a key that was
+ * not issued, share the IP tier. A request with an issued key from {@code rate-limit.api-keys}
+ * gets the higher API key tier, enforced both per key and per IP, so a leaked key cannot be
+ * spread over many clients and an IP holding several keys does not get several allowances.
+ *
+ * Behind a proxy, the client IP is read from X-Forwarded-For counting
+ * {@code rate-limit.trusted-proxy-hops} entries from the right: proxies append to the right, so
+ * anything further left was written by the client and cannot be trusted.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final String API_KEY_HEADER = "X-API-Key";
+
+    private final boolean enabled;
+    private final boolean trustForwardedFor;
+    private final int trustedProxyHops;
+    private final TokenBucketRateLimiter ipLimiter;
+    private final TokenBucketRateLimiter apiKeyIpLimiter;
+    private final TokenBucketRateLimiter apiKeyLimiter;
+    // SHA-256 of each issued key, so lookups do not compare the raw key
+    private final Set<String> issuedKeyHashes;
+
+    public RateLimitFilter(@Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.trust-forwarded-for:false}") boolean trustForwardedFor,
+                           @Value("${rate-limit.trusted-proxy-hops:1}") int trustedProxyHops,
+                           @Value("${rate-limit.ip.capacity:30}") int ipCapacity,
+                           @Value("${rate-limit.ip.refill-per-second:1}") double ipRefillPerSecond,
+                           @Value("${rate-limit.api-key.capacity:300}") int apiKeyCapacity,
+                           @Value("${rate-limit.api-key.refill-per-second:10}") double apiKeyRefillPerSecond,
+                           @Value("${rate-limit.max-keys:100000}") int maxKeys,
+                           @Value("${rate-limit.api-keys:}") String issuedKeys) {
+        this.enabled = enabled;
+        this.trustForwardedFor = trustForwardedFor;
+        if (trustedProxyHops < 1) {
+            throw new IllegalArgumentException("rate-limit.trusted-proxy-hops must be at least 1");
+        }
+        this.trustedProxyHops = trustedProxyHops;
+        this.ipLimiter = new TokenBucketRateLimiter(ipCapacity, ipRefillPerSecond, maxKeys, System::nanoTime);
+        this.apiKeyIpLimiter = new TokenBucketRateLimiter(apiKeyCapacity, apiKeyRefillPerSecond, maxKeys, System::nanoTime);
+        this.apiKeyLimiter = new TokenBucketRateLimiter(apiKeyCapacity, apiKeyRefillPerSecond, maxKeys, System::nanoTime);
+        this.issuedKeyHashes = Arrays.stream(issuedKeys.split(","))
+                .map(String::trim)
+                .filter(key -> !key.isEmpty())
+                .map(RateLimitFilter::sha256)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || "OPTIONS".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI();
+        boolean quote = path.equals("/api/quote") || path.startsWith("/api/quote/");
+        boolean verify = path.startsWith("/api/certificates/") && path.endsWith("/verify");
+        return !(quote || verify) || path.equals("/api/quote/health");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String ip = clientIp(request);
+        String apiKeyHash = issuedKeyHash(request.getHeader(API_KEY_HEADER));
+        long waitNanos;
+        if (apiKeyHash == null) {
+            waitNanos = ipLimiter.tryAcquire(ip);
+        } else {
+            waitNanos = apiKeyIpLimiter.tryAcquire(ip);
+            if (waitNanos == 0) {
+                waitNanos = apiKeyLimiter.tryAcquire(apiKeyHash);
+            }
+        }
+
+        if (waitNanos > 0) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+            log.debug("🚦 Rate limited {} {} (retry in {}s)", request.getMethod(), request.getRequestURI(), retryAfterSeconds);
+            response.setStatus(429);
+            response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            response.setContentType("application/json");
+            response.getWriter().write("{\"error\":\"Too many requests\"}");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleClients() {
+        ipLimiter.evictIdle();
+        apiKeyIpLimiter.evictIdle();
+        apiKeyLimiter.evictIdle();
+    }
+
+    /**
+     * @return the key's hash if it is an issued key, otherwise null (the request is anonymous)
+     */
+    private String issuedKeyHash(String apiKey) {
+        if (apiKey == null || apiKey.isBlank()) {
+            return null;
+        }
+        String hash = sha256(apiKey.trim());
+        if (!issuedKeyHashes.contains(hash)) {
+            log.debug("🚦 Ignoring unknown {} header, limiting by IP", API_KEY_HEADER);
+            return null;
+        }
+        return hash;
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            if (forwardedFor != null && !forwardedFor.isBlank()) {
+                // The entry our outermost proxy appended; a shorter chain did not come through our proxies
+                String[] hops = forwardedFor.split(",");
+                if (hops.length >= trustedProxyHops) {
+                    String ip = hops[hops.length - trustedProxyHops].trim();
+                    if (!ip.isEmpty()) {
+                        return ip;
+                    }
+                }
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,102 @@
+package com.aa.saf.broker.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-key token buckets with bounded memory.
+ *
+ * Each bucket is a single {@link AtomicLong} holding its theoretical arrival time (the moment it
+ * would be full again), which is the token bucket expressed as one number: a request is allowed
+ * while that time is within capacity x refill interval of now, and consumes one interval. Updates
+ * are a CAS loop, no locks.
+ *
+ * Keys are spread over stripes, each capped at a share of {@code maxKeys}. A full stripe first
+ * drops idle buckets (already refilled, so forgetting them changes nothing); if every bucket is
+ * active, new keys share the stripe's overflow bucket instead of growing the map.
+ */
+public class TokenBucketRateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxKeysPerStripe;
+    private final LongSupplier nanoClock;
+    private final Map<String, AtomicLong>[] stripes;
+    private final AtomicLong[] overflow;
+
+    @SuppressWarnings("unchecked")
+    public TokenBucketRateLimiter(int capacity, double refillPerSecond, int maxKeys, LongSupplier nanoClock) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / refillPerSecond));
+        this.burstNanos = intervalNanos * (capacity - 1);
+        this.nanoClock = nanoClock;
+
+        int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(64, Runtime.getRuntime().availableProcessors() * 4)));
+        this.maxKeysPerStripe = Math.max(1, maxKeys / stripeCount);
+        this.stripes = new Map[stripeCount];
+        this.overflow = new AtomicLong[stripeCount];
+        long now = nanoClock.getAsLong();
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+            overflow[i] = new AtomicLong(now);
+        }
+    }
+
+    /**
+     * Takes one token for the key.
+     *
+     * @return 0 if allowed, otherwise nanoseconds until a token is available
+     */
+    public long tryAcquire(String key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = bucketFor(key, now);
+        while (true) {
+            long arrival = bucket.get();
+            long waitNanos = arrival - burstNanos - now;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            long next = Math.max(arrival, now) + intervalNanos;
+            if (bucket.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops buckets that have fully refilled. Safe to call at any time.
+     */
+    public void evictIdle() {
+        long now = nanoClock.getAsLong();
+        for (Map<String, AtomicLong> stripe : stripes) {
+            stripe.values().removeIf(bucket -> bucket.get() <= now);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<String, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private AtomicLong bucketFor(String key, long now) {
+        int hash = key.hashCode();
+        int index = (hash ^ (hash >>> 16)) & (stripes.length - 1);
+        Map<String, AtomicLong> stripe = stripes[index];
+
+        AtomicLong bucket = stripe.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (stripe.size() >= maxKeysPerStripe) {
+            stripe.values().removeIf(idle -> idle.get() <= now);
+            if (stripe.size() >= maxKeysPerStripe) {
+                return overflow[index];
+            }
+        }
+        return stripe.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+}
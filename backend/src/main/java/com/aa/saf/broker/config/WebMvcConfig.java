@@ -0,0 +1,20 @@
+package com.aa.saf.broker.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final QuoteSerializationTiming quoteSerializationTiming;
+
+    public WebMvcConfig(QuoteSerializationTiming quoteSerializationTiming) {
+        this.quoteSerializationTiming = quoteSerializationTiming;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(quoteSerializationTiming).addPathPatterns("/api/quote/**");
+    }
+}
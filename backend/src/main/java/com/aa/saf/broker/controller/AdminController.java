@@ -1,6 +1,6 @@
 package com.aa.saf.broker.controller;
 
-import com.aa.saf.broker.repository.OrderRepository;
+import com.aa.saf.broker.service.OrderCounters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,26 +15,20 @@ public class AdminController {
     private static final Logger log = LoggerFactory.getLogger(AdminController.class);
 
     @Autowired
-    private OrderRepository orderRepository;
+    private OrderCounters orderCounters;
 
     @GetMapping("/stats")
     public ResponseEntity<AdminStatistics> getAdminStatistics() {
         log.info("👨‍💼 Admin statistics requested");
         
         try {
-            long totalOrders = orderRepository.count(); // Get all orders
-            long completedOrders = orderRepository.countByStatus(com.aa.saf.broker.model.Order.OrderStatus.COMPLETED);
-            long pendingOrders = orderRepository.countByStatus(com.aa.saf.broker.model.Order.OrderStatus.PENDING);
-            
-            Double totalSafVolume = orderRepository.getTotalSafVolumeCompleted();
-            Double totalRevenue = orderRepository.getTotalRevenueCompleted(); // This is platform fees
-            
+            // In-memory counters instead of COUNT/SUM queries on every dashboard poll
             AdminStatistics stats = new AdminStatistics(
-                (int) totalOrders,
-                (int) completedOrders,
-                (int) pendingOrders,
-                totalSafVolume != null ? totalSafVolume : 0.0,
-                totalRevenue != null ? totalRevenue : 0.0
+                (int) orderCounters.getTotalOrders(),
+                (int) orderCounters.getCount(com.aa.saf.broker.model.Order.OrderStatus.COMPLETED),
+                (int) orderCounters.getCount(com.aa.saf.broker.model.Order.OrderStatus.PENDING),
+                orderCounters.getCompletedSafVolume(),
+                orderCounters.getCompletedRevenue() // This is platform fees
             );
             
             log.info("✅ Admin statistics: {} orders, ${} platform revenue", 
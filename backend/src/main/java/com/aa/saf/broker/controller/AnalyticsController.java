@@ -24,14 +24,15 @@ public class AnalyticsController {
 
     /**
      * Get comprehensive dashboard analytics
-     * Admin only endpoint for complete analytics overview
+     * Admin only endpoint for complete analytics overview; includeHistory adds archived orders to the totals
      */
     @GetMapping("/dashboard")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> getDashboardAnalytics() {
+    public ResponseEntity<Map<String, Object>> getDashboardAnalytics(
+            @RequestParam(defaultValue = "false") boolean includeHistory) {
         try {
             log.info("📊 Fetching dashboard analytics");
-            Map<String, Object> analytics = analyticsService.getDashboardAnalytics();
+            Map<String, Object> analytics = analyticsService.getDashboardAnalytics(includeHistory);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -1,7 +1,10 @@
 package com.aa.saf.broker.controller;
 
+import com.aa.saf.broker.dto.CertificateSummary;
 import com.aa.saf.broker.model.Certificate;
+import com.aa.saf.broker.repository.ArchivedOrderRepository;
 import com.aa.saf.broker.repository.CertificateRepository;
+import com.aa.saf.broker.service.OrderArchiveService;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -19,6 +22,7 @@ import java.awt.Color;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -31,11 +35,27 @@ public class CertificateController {
     @Autowired
     private CertificateRepository certificateRepository;
 
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    // Falls back to archived certificates when a lookup misses
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    /**
+     * Certificates of recent orders; includeHistory adds those of archived orders.
+     */
     @GetMapping
-    public ResponseEntity<List<Certificate>> getAllCertificates() {
-        log.info("📋 Fetching all certificates");
+    public ResponseEntity<List<CertificateSummary>> getAllCertificates(
+            @RequestParam(defaultValue = "false") boolean includeHistory) {
+        log.info("📋 Fetching all certificates - includeHistory: {}", includeHistory);
         
-        List<Certificate> certificates = certificateRepository.findAllByOrderByIssueDateDesc();
+        List<CertificateSummary> certificates = certificateRepository.findAllSummaries();
+        if (includeHistory) {
+            // Archived orders are older, so appending keeps newest-first order
+            certificates = new ArrayList<>(certificates);
+            certificates.addAll(archivedOrderRepository.findAllCertificateSummaries());
+        }
         log.info("✅ Found {} certificates", certificates.size());
         
         return ResponseEntity.ok(certificates);
@@ -46,6 +66,7 @@ public class CertificateController {
         log.info("📄 Fetching certificate with ID: {}", id);
         
         return certificateRepository.findById(id)
+                .or(() -> orderArchiveService.findArchivedCertificate(id))
                 .map(cert -> {
                     log.info("✅ Certificate found: {}", cert.getCertNumber());
                     return ResponseEntity.ok(cert);
@@ -62,6 +83,7 @@ public class CertificateController {
         
         try {
             Certificate cert = certificateRepository.findById(id)
+                    .or(() -> orderArchiveService.findArchivedCertificate(id))
                     .orElseThrow(() -> new RuntimeException("Certificate not found"));
             
             log.info("✅ Certificate found for download: {}", cert.getCertNumber());
@@ -92,6 +114,7 @@ public class CertificateController {
         
         try {
             Certificate cert = certificateRepository.findByOrderId(orderId)
+                    .or(() -> orderArchiveService.findArchivedCertificateByOrderId(orderId))
                     .orElseThrow(() -> new RuntimeException("Certificate not found for order: " + orderId));
             
             log.info("✅ Certificate found for order {}: {}", orderId, cert.getCertNumber());
@@ -121,6 +144,7 @@ public class CertificateController {
         log.info("🔍 Verification request for certificate: {}", id);
         
         return certificateRepository.findById(id)
+                .or(() -> orderArchiveService.findArchivedCertificate(id))
                 .map(cert -> {
                     // In a real implementation, this would check against external registries
                     boolean isValid = cert.getRegistryId() != null && !cert.getRegistryId().isEmpty();
@@ -2,32 +2,55 @@ package com.aa.saf.broker.controller;
 
 import com.aa.saf.broker.model.Order;
 import com.aa.saf.broker.model.Certificate;
+import com.aa.saf.broker.model.OutboxEvent;
 import com.aa.saf.broker.dto.QuoteRequest;
 import com.aa.saf.broker.dto.QuoteResponse;
 import com.aa.saf.broker.dto.OrderRequest;
+import com.aa.saf.broker.dto.BulkOrderRequest;
+import com.aa.saf.broker.dto.BulkOrderResponse;
+import com.aa.saf.broker.dto.OrderSummary;
 import com.aa.saf.broker.dto.PageResponse;
+import com.aa.saf.broker.repository.ArchivedOrderRepository;
 import com.aa.saf.broker.repository.OrderRepository;
 import com.aa.saf.broker.repository.CertificateRepository;
+import com.aa.saf.broker.security.QuoteTokenService;
+import com.aa.saf.broker.service.BulkOrderService;
 import com.aa.saf.broker.service.PdfService;
 import com.aa.saf.broker.service.RegistryService;
-import com.aa.saf.broker.service.EmailService;
 import com.aa.saf.broker.service.FlightEmissionsService;
+import com.aa.saf.broker.service.IdempotencyService;
+import com.aa.saf.broker.service.OrderArchiveService;
+import com.aa.saf.broker.service.OrderCounters;
+import com.aa.saf.broker.service.OrderExportService;
+import com.aa.saf.broker.service.OrderSearchIndex;
+import com.aa.saf.broker.service.OrderService;
 import com.aa.saf.broker.service.PaymentService;
+import com.aa.saf.broker.service.QuoteRedemptionService;
+import com.aa.saf.broker.service.QuoteReservationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
@@ -36,6 +59,9 @@ import java.util.UUID;
 public class OrderController {
 
     private static final Logger log = LoggerFactory.getLogger(OrderController.class);
+    
+    private static final int MAX_BULK_ORDERS = 10_000;
+    private static final int MAX_SEARCH_RESULTS = 500;
 
     @Autowired
     private OrderRepository orderRepository;
@@ -49,78 +75,75 @@ public class OrderController {
     @Autowired
     private RegistryService registryService;
     
-    @Autowired
-    private EmailService emailService;
-    
     @Autowired
     private FlightEmissionsService flightEmissionsService;
     
     @Autowired
     private PaymentService paymentService;
+    
+    @Autowired
+    private QuoteReservationService quoteReservationService;
+    
+    @Autowired
+    private QuoteTokenService quoteTokenService;
+    
+    @Autowired
+    private QuoteRedemptionService quoteRedemptionService;
+    
+    @Autowired
+    private OrderExportService orderExportService;
+    
+    @Autowired
+    private BulkOrderService bulkOrderService;
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
+    @Autowired
+    private OrderCounters orderCounters;
+    
+    @Autowired
+    private OrderSearchIndex orderSearchIndex;
+    
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+    
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
 
     @PostMapping
-    public ResponseEntity<Order> createOrder(@RequestBody OrderRequest orderRequest) {
+    public ResponseEntity<?> createOrder(@RequestBody OrderRequest orderRequest,
+                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        // Retries carrying the same key get the first response back instead of a second order
+        if (idempotencyKey != null) {
+            return idempotencyService.execute("orders", IdempotencyService.callerOf(orderRequest.getUserEmail()),
+                    idempotencyKey, orderRequest, () -> placeOrder(orderRequest));
+        }
+        return placeOrder(orderRequest);
+    }
+    
+    private ResponseEntity<Order> placeOrder(OrderRequest orderRequest) {
         log.info("📦 Creating new order for user: {}, emissions: {}, SAF volume: {}, price: ${}", 
                 orderRequest.getUserEmail(), orderRequest.getFlightEmissions(), orderRequest.getSafVolume(), orderRequest.getPriceUsd());
 
+        // Orders are only accepted against a quote we issued: a signed token or a held reservation
+        if (!applyQuotedFigures(orderRequest)) {
+            log.warn("⚠️ Rejecting order: quote {} is invalid, already used or expired",
+                    orderRequest.getQuoteToken() != null ? "token" : orderRequest.getQuoteId());
+            return ResponseEntity.badRequest().build();
+        }
+
         try {
-            Order order = new Order();
-            
-            // Set user email - use provided email or default for demo
-            String userEmail = orderRequest.getUserEmail();
-            if (userEmail == null || userEmail.trim().isEmpty()) {
-                userEmail = "demo@ecojetcertificates.com"; // Default demo email
-                log.info("🔄 Using default demo email for order");
-            }
-            order.setUserEmail(userEmail);
-            
-            order.setFlightEmissions(orderRequest.getFlightEmissions());
-            order.setSafVolume(orderRequest.getSafVolume());
-            order.setPriceUsd(orderRequest.getPriceUsd());
-            
-            // Calculate platform fee (3.5% of total price)
-            BigDecimal platformFee = orderRequest.getPriceUsd().multiply(new BigDecimal("0.035"));
-            order.setPlatformFeeUsd(platformFee);
-            
-            order.setFlightNumber(orderRequest.getFlightNumber());
-            order.setDepartureAirport(orderRequest.getDepartureAirport());
-            order.setArrivalAirport(orderRequest.getArrivalAirport());
-            
-            // Parse the flight date string to LocalDateTime
-            if (orderRequest.getFlightDate() != null && !orderRequest.getFlightDate().isEmpty()) {
-                try {
-                    LocalDateTime flightDateTime;
-                    String dateStr = orderRequest.getFlightDate();
-                    
-                    // Handle different date formats from frontend
-                    if (dateStr.contains("T")) {
-                        // ISO format: 2025-08-09T14:30:00
-                        flightDateTime = LocalDateTime.parse(dateStr);
-                    } else {
-                        // Date only format: 2025-08-09 (add default time)
-                        flightDateTime = LocalDateTime.parse(dateStr + "T00:00:00");
-                    }
-                    
-                    order.setFlightDate(flightDateTime);
-                    log.info("✅ Parsed flight date: {}", flightDateTime);
-                } catch (DateTimeParseException e) {
-                    log.warn("⚠️ Could not parse flight date '{}', using current time: {}", orderRequest.getFlightDate(), e.getMessage());
-                    order.setFlightDate(LocalDateTime.now());
-                }
-            } else {
-                order.setFlightDate(LocalDateTime.now());
-            }
-            
-            order.setStatus(Order.OrderStatus.PENDING);
-            order.setCreatedAt(LocalDateTime.now());
+            Order order = buildOrder(orderRequest);
             
             log.info("💾 Saving order to database...");
-            Order saved = orderRepository.save(order);
+            // The confirmation email is queued in the same transaction and sent by the outbox dispatcher
+            Order saved = orderService.saveWithNotification(order, OutboxEvent.EventType.ORDER_CONFIRMATION);
             log.info("✅ Order saved with ID: {}", saved.getId());
 
-            // Send order confirmation email
-            emailService.sendOrderConfirmationEmail(saved);
-
             log.info(" Order {} created and ready for payment", saved.getId());
             log.info("⏳ Certificate will be generated after payment is completed");
             
@@ -144,17 +167,237 @@ public class OrderController {
             order.setArrivalAirport(orderRequest.getArrivalAirport());
             order.setStatus(Order.OrderStatus.ERROR);
             order.setCreatedAt(LocalDateTime.now());
-            Order errorOrder = orderRepository.save(order);
+            Order errorOrder = orderService.saveWithNotification(order, OutboxEvent.EventType.ORDER_STATUS_UPDATE);
             
-            // Send error notification email (don't let this fail the response)
+            return ResponseEntity.status(500).body(errorOrder);
+        }
+    }
+
+    /**
+     * Creates many orders in one call, e.g. for a corporate customer's travel program. Each order
+     * is priced from its own quote; entries with an invalid quote are reported and skipped.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkOrderResponse> createOrders(@RequestBody BulkOrderRequest bulkRequest) {
+        List<OrderRequest> requests = bulkRequest.getOrders();
+        if (requests == null || requests.isEmpty() || requests.size() > MAX_BULK_ORDERS) {
+            log.warn("⚠️ Rejecting bulk order: {} orders (max {})", requests == null ? 0 : requests.size(), MAX_BULK_ORDERS);
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("📦 Creating {} orders in bulk", requests.size());
+        long started = System.currentTimeMillis();
+        
+        BulkOrderResponse response = new BulkOrderResponse();
+        List<Order> orders = new ArrayList<>(requests.size());
+        BigDecimal totalPrice = BigDecimal.ZERO;
+        
+        // Verify every token first so they can all be redeemed in one batch
+        List<Optional<QuoteTokenService.QuoteClaims>> tokenClaims = new ArrayList<>(requests.size());
+        List<QuoteTokenService.QuoteClaims> toRedeem = new ArrayList<>();
+        for (OrderRequest orderRequest : requests) {
+            Optional<QuoteTokenService.QuoteClaims> claims = orderRequest != null && orderRequest.getQuoteToken() != null
+                    ? verifyQuoteToken(orderRequest) : Optional.empty();
+            claims.ifPresent(toRedeem::add);
+            tokenClaims.add(claims);
+        }
+        Set<String> redeemed = quoteRedemptionService.redeemAll(toRedeem);
+        // Kept to hand back if the insert fails
+        List<String> redeemedNonces = new ArrayList<>(redeemed);
+        List<QuoteReservationService.Reservation> consumed = new ArrayList<>();
+        
+        for (int i = 0; i < requests.size(); i++) {
+            OrderRequest orderRequest = requests.get(i);
+            boolean quoted;
+            if (orderRequest == null) {
+                quoted = false;
+            } else if (orderRequest.getQuoteToken() != null) {
+                // A token repeated within the batch is only accepted the first time
+                Optional<QuoteTokenService.QuoteClaims> claims = tokenClaims.get(i)
+                        .filter(quote -> redeemed.remove(quote.getNonce()));
+                claims.ifPresent(quote -> applyQuote(orderRequest, quote));
+                quoted = claims.isPresent();
+            } else {
+                Optional<QuoteReservationService.Reservation> reservation = quoteReservationService.consume(orderRequest.getQuoteId());
+                reservation.ifPresent(quote -> {
+                    applyReservation(orderRequest, quote);
+                    consumed.add(quote);
+                });
+                quoted = reservation.isPresent();
+            }
+            if (!quoted) {
+                response.getRejectedIndexes().add(i);
+                continue;
+            }
+            Order order = buildOrder(orderRequest);
+            orders.add(order);
+            totalPrice = totalPrice.add(order.getPriceUsd());
+        }
+        
+        if (!orders.isEmpty()) {
             try {
-                emailService.sendOrderStatusUpdateEmail(errorOrder);
-            } catch (Exception emailEx) {
-                log.warn("⚠️ Failed to send error notification email for order {}: {}", errorOrder.getId(), emailEx.getMessage());
+                response.setOrderIds(bulkOrderService.insertAll(orders));
+            } catch (RuntimeException e) {
+                log.error("❌ Bulk insert of {} orders failed, releasing their quotes: {}", orders.size(), e.getMessage(), e);
+                releaseQuotes(redeemedNonces, consumed);
+                return ResponseEntity.status(500).body(failedBatch(requests.size(), orders.size()));
             }
-            
-            return ResponseEntity.status(500).body(errorOrder);
         }
+        response.setTotalPrice(totalPrice);
+        response.setElapsedMs(System.currentTimeMillis() - started);
+        
+        log.info("✅ Bulk order: {} created, {} rejected in {}ms", response.getCreated(), response.getRejected(), response.getElapsedMs());
+        return ResponseEntity.ok(response);
+    }
+
+    // Nothing was inserted, so the quotes behind the batch can be used again
+    private void releaseQuotes(List<String> redeemedNonces, List<QuoteReservationService.Reservation> consumed) {
+        consumed.forEach(quoteReservationService::release);
+        try {
+            quoteRedemptionService.releaseAll(redeemedNonces);
+        } catch (RuntimeException e) {
+            log.error("❌ Could not release {} quote tokens after failed bulk insert: {}", redeemedNonces.size(), e.getMessage(), e);
+        }
+    }
+
+    // The insert is all or nothing, so every entry of the batch is reported as rejected
+    private BulkOrderResponse failedBatch(int requested, int attempted) {
+        BulkOrderResponse failed = new BulkOrderResponse();
+        for (int i = 0; i < requested; i++) {
+            failed.getRejectedIndexes().add(i);
+        }
+        failed.setError("Bulk insert of " + attempted + " orders failed; no orders from this batch were created");
+        return failed;
+    }
+
+    /**
+     * Builds a PENDING order from an already validated request.
+     */
+    private Order buildOrder(OrderRequest orderRequest) {
+        Order order = new Order();
+
+        // Set user email - use provided email or default for demo
+        String userEmail = orderRequest.getUserEmail();
+        if (userEmail == null || userEmail.trim().isEmpty()) {
+            userEmail = "demo@ecojetcertificates.com"; // Default demo email
+            log.info("🔄 Using default demo email for order");
+        }
+        order.setUserEmail(userEmail);
+
+        order.setFlightEmissions(orderRequest.getFlightEmissions());
+        order.setSafVolume(orderRequest.getSafVolume());
+        order.setPriceUsd(orderRequest.getPriceUsd());
+
+        // Calculate platform fee (3.5% of total price)
+        BigDecimal platformFee = orderRequest.getPriceUsd().multiply(new BigDecimal("0.035"));
+        order.setPlatformFeeUsd(platformFee);
+
+        order.setFlightNumber(orderRequest.getFlightNumber());
+        order.setDepartureAirport(orderRequest.getDepartureAirport());
+        order.setArrivalAirport(orderRequest.getArrivalAirport());
+
+        // Parse the flight date string to LocalDateTime
+        if (orderRequest.getFlightDate() != null && !orderRequest.getFlightDate().isEmpty()) {
+            try {
+                LocalDateTime flightDateTime;
+                String dateStr = orderRequest.getFlightDate();
+
+                // Handle different date formats from frontend
+                if (dateStr.contains("T")) {
+                    // ISO format: 2025-08-09T14:30:00
+                    flightDateTime = LocalDateTime.parse(dateStr);
+                } else {
+                    // Date only format: 2025-08-09 (add default time)
+                    flightDateTime = LocalDateTime.parse(dateStr + "T00:00:00");
+                }
+
+                order.setFlightDate(flightDateTime);
+                log.debug("✅ Parsed flight date: {}", flightDateTime);
+            } catch (DateTimeParseException e) {
+                log.warn("⚠️ Could not parse flight date '{}', using current time: {}", orderRequest.getFlightDate(), e.getMessage());
+                order.setFlightDate(LocalDateTime.now());
+            }
+        } else {
+            order.setFlightDate(LocalDateTime.now());
+        }
+
+        order.setStatus(Order.OrderStatus.PENDING);
+        order.setCreatedAt(LocalDateTime.now());
+        return order;
+    }
+    
+    /**
+     * Cursor for the page after this order: base64url of "createdAt|id".
+     */
+    private String encodeCursor(OrderSummary order) {
+        String position = order.createdAt() + "|" + order.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private List<OrderSummary> findPageAfter(String userEmail, Order.OrderStatus status, Order after, PageRequest limit) {
+        if (status != null && userEmail != null) {
+            return orderRepository.findPageAfterByUserEmailAndStatus(userEmail, status, after.getCreatedAt(), after.getId(), limit);
+        } else if (status != null) {
+            return orderRepository.findPageAfterByStatus(status, after.getCreatedAt(), after.getId(), limit);
+        } else if (userEmail != null) {
+            return orderRepository.findPageAfterByUserEmail(userEmail, after.getCreatedAt(), after.getId(), limit);
+        }
+        return orderRepository.findPageAfter(after.getCreatedAt(), after.getId(), limit);
+    }
+    
+    /**
+     * @return an order holding only the cursor's createdAt and id, or empty if the cursor is malformed
+     */
+    private Optional<Order> decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.lastIndexOf('|');
+            if (separator <= 0) {
+                return Optional.empty();
+            }
+            Order after = new Order();
+            after.setCreatedAt(LocalDateTime.parse(position.substring(0, separator)));
+            after.setId(Long.parseLong(position.substring(separator + 1)));
+            return Optional.of(after);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            log.warn("⚠️ Rejected malformed order cursor: {}", cursor);
+            return Optional.empty();
+        }
+    }
+    
+    // Prices the order from the quote, not from client-supplied figures
+    private boolean applyQuotedFigures(OrderRequest orderRequest) {
+        if (orderRequest.getQuoteToken() != null) {
+            // The signature is checked locally; the redemption makes the token single use
+            Optional<QuoteTokenService.QuoteClaims> claims = verifyQuoteToken(orderRequest)
+                    .filter(quoteRedemptionService::redeem);
+            claims.ifPresent(quote -> applyQuote(orderRequest, quote));
+            return claims.isPresent();
+        }
+        return applyReservation(orderRequest);
+    }
+    
+    // Valid only for the flight and route it was quoted for
+    private Optional<QuoteTokenService.QuoteClaims> verifyQuoteToken(OrderRequest orderRequest) {
+        return quoteTokenService.verify(orderRequest.getQuoteToken(), orderRequest.getFlightNumber(),
+                orderRequest.getDepartureAirport(), orderRequest.getArrivalAirport());
+    }
+    
+    private void applyQuote(OrderRequest orderRequest, QuoteTokenService.QuoteClaims quote) {
+        orderRequest.setFlightEmissions(quote.getFlightEmissions());
+        orderRequest.setSafVolume(quote.getSafVolume());
+        orderRequest.setPriceUsd(quote.getTotalPrice());
+    }
+    
+    private boolean applyReservation(OrderRequest orderRequest) {
+        Optional<QuoteReservationService.Reservation> reservation = quoteReservationService.consume(orderRequest.getQuoteId());
+        reservation.ifPresent(quote -> applyReservation(orderRequest, quote));
+        return reservation.isPresent();
+    }
+    
+    private void applyReservation(OrderRequest orderRequest, QuoteReservationService.Reservation quote) {
+        orderRequest.setFlightEmissions(quote.getFlightEmissions());
+        orderRequest.setSafVolume(quote.getSafVolume());
+        orderRequest.setPriceUsd(quote.getTotalPrice());
     }
 
     @PostMapping("/{id}/complete-payment")
@@ -173,8 +416,10 @@ public class OrderController {
             return ResponseEntity.ok(order);
         }
         
+        // PAID without COMPLETED means certificate generation failed earlier; completing again retries it
         if (order.getStatus() != Order.OrderStatus.PENDING && 
-            order.getStatus() != Order.OrderStatus.PROCESSING) {
+            order.getStatus() != Order.OrderStatus.PROCESSING &&
+            order.getStatus() != Order.OrderStatus.PAID) {
             log.warn("⚠️ Order {} is not in a completable state: {}", id, order.getStatus());
             return ResponseEntity.badRequest().build();
         }
@@ -196,39 +441,54 @@ public class OrderController {
     }
 
     @GetMapping
-    public ResponseEntity<PageResponse<Order>> getAllOrders(
+    public ResponseEntity<PageResponse<OrderSummary>> getAllOrders(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "desc") String sortDir,
             @RequestParam(required = false) String status,
-            @RequestParam(required = false) String userEmail) {
+            @RequestParam(required = false) String userEmail,
+            @RequestParam(required = false) String cursor) {
         
         log.info("📋 Fetching orders - page: {}, size: {}, sortBy: {}, sortDir: {}", page, size, sortBy, sortDir);
         
+        Order.OrderStatus orderStatus = status != null ? Order.OrderStatus.valueOf(status.toUpperCase()) : null;
+        
+        // Keyset page: newest first after the cursor's (createdAt, id), no offset scan or count
+        if (cursor != null) {
+            // Cursors only walk the default order; any other sort would silently be ignored
+            if (!sortBy.equals("createdAt") || !sortDir.equalsIgnoreCase("desc")) {
+                log.warn("⚠️ Rejected order cursor with sort {} {}", sortBy, sortDir);
+                return ResponseEntity.badRequest().build();
+            }
+            Optional<Order> after = decodeCursor(cursor);
+            if (after.isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+            List<OrderSummary> orders = findPageAfter(userEmail, orderStatus, after.get(), PageRequest.of(0, size));
+            String nextCursor = orders.size() == size ? encodeCursor(orders.get(orders.size() - 1)) : null;
+            log.info("✅ Found {} orders after cursor", orders.size());
+            return ResponseEntity.ok(new PageResponse<>(orders, size, nextCursor));
+        }
+        
         Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
-        PageRequest pageRequest = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        // id breaks createdAt ties so pages are stable and line up with the keyset order
+        PageRequest pageRequest = PageRequest.of(page, size, Sort.by(direction, sortBy).and(Sort.by(direction, "id")));
         
-        Page<Order> ordersPage;
+        Page<OrderSummary> ordersPage;
         
-        if (status != null && userEmail != null) {
-            Order.OrderStatus orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
-            List<Order> userStatusOrders = orderRepository.findByUserEmail(userEmail).stream()
-                    .filter(order -> order.getStatus() == orderStatus)
-                    .toList();
-            ordersPage = new org.springframework.data.domain.PageImpl<>(userStatusOrders, pageRequest, userStatusOrders.size());
-        } else if (status != null) {
-            Order.OrderStatus orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
-            ordersPage = orderRepository.findByStatus(orderStatus, pageRequest);
+        if (orderStatus != null && userEmail != null) {
+            ordersPage = orderRepository.findSummariesByUserEmailAndStatus(userEmail, orderStatus, pageRequest);
+        } else if (orderStatus != null) {
+            ordersPage = orderRepository.findSummariesByStatus(orderStatus, pageRequest);
         } else if (userEmail != null) {
-            List<Order> userOrders = orderRepository.findByUserEmail(userEmail);
-            ordersPage = new org.springframework.data.domain.PageImpl<>(userOrders, pageRequest, userOrders.size());
+            ordersPage = orderRepository.findSummariesByUserEmail(userEmail, pageRequest);
         } else {
-            ordersPage = orderRepository.findAll(pageRequest);
+            ordersPage = orderRepository.findSummaries(pageRequest);
         }
         
         // Convert to custom PageResponse to avoid serialization warnings
-        PageResponse<Order> response = new PageResponse<>(
+        PageResponse<OrderSummary> response = new PageResponse<>(
             ordersPage.getContent(),
             ordersPage.getNumber(),
             ordersPage.getSize(),
@@ -236,23 +496,59 @@ public class OrderController {
             ordersPage.getSort().isSorted()
         );
         
+        // Newest-first listings can continue by cursor from here
+        boolean keysetOrder = "createdAt".equals(sortBy) && direction == Sort.Direction.DESC;
+        if (keysetOrder && ordersPage.hasNext()) {
+            List<OrderSummary> content = ordersPage.getContent();
+            response.setNextCursor(encodeCursor(content.get(content.size() - 1)));
+        }
+        
         log.info("✅ Found {} orders (page {} of {})", ordersPage.getNumberOfElements(), page + 1, ordersPage.getTotalPages());
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Archived orders, newest first; the other listings only cover orders inside the archive horizon.
+     */
+    @GetMapping("/history")
+    public ResponseEntity<PageResponse<OrderSummary>> getOrderHistory(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String userEmail) {
+        
+        log.info("🗄️ Fetching archived orders - page: {}, size: {}, userEmail: {}", page, size, userEmail);
+        PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt", "id"));
+        Page<OrderSummary> ordersPage = userEmail != null
+                ? archivedOrderRepository.findSummariesByUserEmail(userEmail, pageRequest)
+                : archivedOrderRepository.findSummaries(pageRequest);
+        
+        return ResponseEntity.ok(new PageResponse<>(
+            ordersPage.getContent(),
+            ordersPage.getNumber(),
+            ordersPage.getSize(),
+            ordersPage.getTotalElements(),
+            true
+        ));
+    }
+    
     @GetMapping("/by-user/{userEmail}")
-    public ResponseEntity<List<Order>> getOrdersByUser(@PathVariable String userEmail) {
+    public ResponseEntity<List<OrderSummary>> getOrdersByUser(@PathVariable String userEmail,
+            @RequestParam(defaultValue = "false") boolean includeHistory) {
         log.info("🔍 Fetching orders for user: {}", userEmail);
-        List<Order> orders = orderRepository.findByUserEmail(userEmail);
+        List<OrderSummary> orders = orderRepository.findSummariesByUserEmail(userEmail);
+        if (includeHistory) {
+            orders = new ArrayList<>(orders);
+            orders.addAll(archivedOrderRepository.findSummariesByUserEmail(userEmail));
+        }
         log.info("✅ Found {} orders for user: {}", orders.size(), userEmail);
         return ResponseEntity.ok(orders);
     }
     
     @GetMapping("/by-status/{status}")
-    public ResponseEntity<List<Order>> getOrdersByStatus(@PathVariable String status) {
+    public ResponseEntity<List<OrderSummary>> getOrdersByStatus(@PathVariable String status) {
         log.info("� Fetching orders with status: {}", status);
         Order.OrderStatus orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
-        List<Order> orders = orderRepository.findByStatus(orderStatus);
+        List<OrderSummary> orders = orderRepository.findSummariesByStatus(orderStatus);
         log.info("✅ Found {} orders with status: {}", orders.size(), status);
         return ResponseEntity.ok(orders);
     }
@@ -265,6 +561,73 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
     
+    /**
+     * Support search: orders matching all of the given criteria, newest first. Flight and airports
+     * match exactly (case-insensitive), company matches by word, email by any fragment of 3+ characters.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchOrders(
+            @RequestParam(required = false) String flight,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String company,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "50") int limit) {
+        
+        long started = System.nanoTime();
+        OrderSearchIndex.Result result;
+        try {
+            Order.OrderStatus orderStatus = status != null ? Order.OrderStatus.valueOf(status.toUpperCase()) : null;
+            result = orderSearchIndex.search(flight, from, to, company, email, orderStatus,
+                    Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        
+        List<OrderSummary> orders = result.orderIds().isEmpty()
+                ? List.of()
+                : orderRepository.findSummariesByIdIn(result.orderIds());
+        
+        long elapsedMicros = (System.nanoTime() - started) / 1000;
+        log.info("🔍 Order search matched {} orders in {}µs", result.totalMatches(), elapsedMicros);
+        return ResponseEntity.ok(new OrderSearchResult(result.totalMatches(), orders));
+    }
+    
+    /**
+     * Streams all orders matching the optional filters as NDJSON (default) or CSV.
+     * from/to are ISO dates; to is exclusive.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        OrderExportService.Format exportFormat;
+        Order.OrderStatus orderStatus;
+        LocalDateTime fromDate;
+        LocalDateTime toDate;
+        try {
+            exportFormat = OrderExportService.Format.valueOf(format.toUpperCase());
+            orderStatus = status != null ? Order.OrderStatus.valueOf(status.toUpperCase()) : null;
+            fromDate = from != null ? LocalDate.parse(from).atStartOfDay() : null;
+            toDate = to != null ? LocalDate.parse(to).atStartOfDay() : null;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            log.warn("⚠️ Invalid export parameters: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        
+        log.info("📤 Exporting orders as {} - status: {}, from: {}, to: {}", exportFormat, status, from, to);
+        String filename = "orders-" + LocalDate.now() + "." + exportFormat.getExtension();
+        StreamingResponseBody body = out -> orderExportService.export(exportFormat, orderStatus, fromDate, toDate, out);
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+    
     @GetMapping("/emissions/{flightNumber}")
     public ResponseEntity<FlightEmissionsService.EmissionData> getFlightEmissions(
             @PathVariable String flightNumber,
@@ -282,6 +645,7 @@ public class OrderController {
     public ResponseEntity<Order> getOrder(@PathVariable Long id) {
         log.info("🔍 Fetching order with ID: {}", id);
         return orderRepository.findById(id)
+                .or(() -> orderArchiveService.findArchivedOrder(id))
                 .map(order -> {
                     log.info("✅ Found order: {}", order.getId());
                     return ResponseEntity.ok(order);
@@ -296,6 +660,7 @@ public class OrderController {
     public ResponseEntity<Certificate> getCertificate(@PathVariable Long id) {
         log.info("📄 Fetching certificate with ID: {}", id);
         return certificateRepository.findById(id)
+                .or(() -> orderArchiveService.findArchivedCertificate(id))
                 .map(cert -> {
                     log.info("✅ Found certificate: {}", cert.getId());
                     return ResponseEntity.ok(cert);
@@ -312,6 +677,7 @@ public class OrderController {
         
         try {
             Certificate cert = certificateRepository.findById(id)
+                    .or(() -> orderArchiveService.findArchivedCertificate(id))
                     .orElseThrow(() -> new RuntimeException("Certificate not found"));
             
             // For now, generate a simple PDF response
@@ -338,15 +704,13 @@ public class OrderController {
     public ResponseEntity<OrderStats> getOrderStats() {
         log.info("📊 Fetching order statistics");
         
-        long totalOrders = orderRepository.count();
-        long completedOrders = orderRepository.countByStatus(Order.OrderStatus.COMPLETED);
-        long pendingOrders = orderRepository.countByStatus(Order.OrderStatus.PENDING);
-        Double totalSafVolume = orderRepository.getTotalSafVolumeCompleted();
-        Double totalRevenue = orderRepository.getTotalRevenueCompleted();
+        // Served from in-memory counters, reconciled with the database periodically
+        long totalOrders = orderCounters.getTotalOrders();
+        long completedOrders = orderCounters.getCount(Order.OrderStatus.COMPLETED);
+        long pendingOrders = orderCounters.getCount(Order.OrderStatus.PENDING);
         
         OrderStats stats = new OrderStats(totalOrders, completedOrders, pendingOrders, 
-                totalSafVolume != null ? totalSafVolume : 0.0, 
-                totalRevenue != null ? totalRevenue : 0.0);
+                orderCounters.getCompletedSafVolume(), orderCounters.getCompletedRevenue());
         
         log.info("✅ Order stats calculated: {} total, {} completed, {} pending", 
                 totalOrders, completedOrders, pendingOrders);
@@ -354,6 +718,21 @@ public class OrderController {
         return ResponseEntity.ok(stats);
     }
     
+    // DTO for order search results; totalMatches counts every hit, orders holds the newest of them
+    public static class OrderSearchResult {
+        private int totalMatches;
+        private List<OrderSummary> orders;
+        
+        public OrderSearchResult(int totalMatches, List<OrderSummary> orders) {
+            this.totalMatches = totalMatches;
+            this.orders = orders;
+        }
+        
+        // Getters
+        public int getTotalMatches() { return totalMatches; }
+        public List<OrderSummary> getOrders() { return orders; }
+    }
+    
     // DTO for order statistics
     public static class OrderStats {
         private long totalOrders;
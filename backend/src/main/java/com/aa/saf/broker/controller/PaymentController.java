@@ -1,6 +1,7 @@
 package com.aa.saf.broker.controller;
 
 import com.aa.saf.broker.model.Payment;
+import com.aa.saf.broker.service.IdempotencyService;
 import com.aa.saf.broker.service.PaymentService;
 import com.stripe.exception.StripeException;
 import org.slf4j.Logger;
@@ -26,11 +27,25 @@ public class PaymentController {
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     /**
      * Create checkout session for an order
      */
     @PostMapping("/checkout")
-    public ResponseEntity<?> createCheckoutSession(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<?> createCheckoutSession(@RequestBody Map<String, Object> request,
+                                                   @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        // A retried checkout returns the same Stripe session instead of creating another
+        if (idempotencyKey != null) {
+            Object userEmail = request.get("userEmail");
+            return idempotencyService.execute("checkout", IdempotencyService.callerOf(userEmail != null ? userEmail.toString() : null),
+                    idempotencyKey, request, () -> startCheckout(request));
+        }
+        return startCheckout(request);
+    }
+
+    private ResponseEntity<?> startCheckout(Map<String, Object> request) {
         try {
             Long orderId = Long.valueOf(request.get("orderId").toString());
             String userEmail = request.get("userEmail").toString();
@@ -1,82 +1,101 @@
 package com.aa.saf.broker.controller;
 
+import com.aa.saf.broker.dto.ItineraryQuoteRequest;
+import com.aa.saf.broker.dto.ItineraryQuoteResponse;
 import com.aa.saf.broker.dto.QuoteRequest;
 import com.aa.saf.broker.dto.QuoteResponse;
+import com.aa.saf.broker.dto.ScenarioQuoteRequest;
+import com.aa.saf.broker.dto.ScenarioQuoteResponse;
 import com.aa.saf.broker.dto.PriceResponse;
 import com.aa.saf.broker.service.ConversionService;
 import com.aa.saf.broker.service.PriceService;
 import com.aa.saf.broker.service.FlightEmissionsService;
+import com.aa.saf.broker.service.QuotePrewarmService;
+import com.aa.saf.broker.service.QuoteReservationService;
+import com.aa.saf.broker.service.QuoteStageTimer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
 @RestController
 @RequestMapping("/api/quote")
 @CrossOrigin(origins = "*")
 public class QuoteController {
 
     private static final Logger log = LoggerFactory.getLogger(QuoteController.class);
+    private static final int MAX_SCENARIOS = 20;
+    private static final int MAX_LEGS = 10;
     
     private final ConversionService conversionService;
     private final PriceService priceService;
     private final FlightEmissionsService flightEmissionsService;
+    private final ExecutorService quoteExecutor;
+    private final QuoteStageTimer stageTimer;
+    private final QuotePrewarmService prewarmService;
+    private final QuoteReservationService reservationService;
 
     @Autowired
-    public QuoteController(ConversionService conversionService, PriceService priceService, FlightEmissionsService flightEmissionsService) {
+    public QuoteController(ConversionService conversionService, PriceService priceService, FlightEmissionsService flightEmissionsService,
+                           @Qualifier("quoteExecutor") ExecutorService quoteExecutor, QuoteStageTimer stageTimer,
+                           QuotePrewarmService prewarmService, QuoteReservationService reservationService) {
         this.conversionService = conversionService;
         this.priceService = priceService;
         this.flightEmissionsService = flightEmissionsService;
+        this.quoteExecutor = quoteExecutor;
+        this.stageTimer = stageTimer;
+        this.prewarmService = prewarmService;
+        this.reservationService = reservationService;
     }
 
     @PostMapping
     public ResponseEntity<PriceResponse> getQuote(@RequestBody QuoteRequest request) {
         log.info("💰 Processing quote request for flight {} ({} kg CO2)", 
                 request.getFlightNumber(), request.getFlightEmissions());
+        QuoteStageTimer.Stages stages = stageTimer.start();
         
         try {
+            // Market prices and emissions are independent: fetch the price snapshot in the
+            // background while emissions resolve on this thread, then join
+            CompletableFuture<PriceService.PriceData> snapshot = CompletableFuture.supplyAsync(
+                    () -> stages.time("price-feed", priceService::getPriceSnapshot), quoteExecutor);
+            
             // Get detailed emissions data if not provided
-            double emissions = request.getFlightEmissions();
-            String aircraftType = request.getAircraftType();
-            double distance = request.getDistance();
-            
-            // If emissions or aircraft type missing, calculate from flight details
-            if (emissions <= 0 || aircraftType == null || aircraftType.isEmpty()) {
-                if (request.getFlightNumber() != null && 
-                    request.getDepartureAirport() != null && 
-                    request.getArrivalAirport() != null) {
-                    
-                    log.info("📊 Calculating missing flight data for {}", request.getFlightNumber());
-                    FlightEmissionsService.EmissionData emissionData = flightEmissionsService.getFlightEmissions(
-                        request.getFlightNumber(),
-                        request.getDepartureAirport(), 
-                        request.getArrivalAirport()
-                    );
-                    
-                    emissions = emissionData.getCo2Emissions();
-                    aircraftType = emissionData.getAircraftType();
-                    distance = emissionData.getDistance();
-                    
-                    log.info("✅ Calculated: {} kg CO2, {} aircraft, {} km", 
-                            emissions, aircraftType, distance);
-                } else {
-                    throw new IllegalArgumentException("Insufficient flight data for quote calculation");
-                }
-            }
+            FlightEmissionsService.EmissionData emissionData = stages.time("emissions", () -> resolveEmissions(request));
+            double emissions = emissionData.getCo2Emissions();
+            String aircraftType = emissionData.getAircraftType();
+            double distance = emissionData.getDistance();
             
             // Calculate detailed pricing quote
-            PriceResponse quote = priceService.calculateDetailedQuote(emissions, distance, aircraftType);
+            PriceService.PriceData prices = stages.time("price-wait", snapshot::join);
+            PriceResponse quote = stages.time("pricing",
+                    () -> priceService.calculateDetailedQuote(emissions, distance, aircraftType, prices));
             
             // Set additional metadata
             if (request.getFlightNumber() != null) {
                 quote.setFlightEmissions(emissions);
             }
             
-            log.info("✅ Quote generated: {} L SAF for ${} total", 
-                    quote.getRecommendedSafVolume(), quote.getTotalPrice());
+            // Hold the quote so an order can be placed against it until validUntil
+            reservationService.reserve(quote);
+            priceService.signQuote(quote, prices.getVersion(),
+                    request.getFlightNumber(), request.getDepartureAirport(), request.getArrivalAirport());
             
-            return ResponseEntity.ok(quote);
+            log.info("✅ Quote {} generated: {} L SAF for ${} total", 
+                    quote.getQuoteId(), quote.getRecommendedSafVolume(), quote.getTotalPrice());
+            
+            return ResponseEntity.ok()
+                    .header(QuoteStageTimer.SERVER_TIMING_HEADER, stages.finish())
+                    .body(quote);
             
         } catch (Exception e) {
             log.error("❌ Error generating quote: {}", e.getMessage());
@@ -84,18 +103,132 @@ public class QuoteController {
             // Return fallback quote for basic emissions data
             if (request.getFlightEmissions() > 0) {
                 log.info("🔄 Using fallback quote calculation");
-                return getFallbackQuote(request);
+                return getFallbackQuote(request, stages);
             }
             
             return ResponseEntity.badRequest().build();
         }
     }
 
-    private ResponseEntity<PriceResponse> getFallbackQuote(QuoteRequest request) {
+    /**
+     * Compares SAF blend ratios for one flight. Emissions and prices are resolved once and all
+     * ratios are priced in a single pass.
+     *
+     * The rows are for comparison only: they carry no quote ID or token and cannot be ordered.
+     * To order a blend, request a quote from {@code POST /api/quote}.
+     */
+    @PostMapping("/scenarios")
+    public ResponseEntity<ScenarioQuoteResponse> getScenarioQuote(@RequestBody ScenarioQuoteRequest request) {
+        List<Double> ratios = request.getBlendRatios();
+        if (ratios == null || ratios.isEmpty() || ratios.size() > MAX_SCENARIOS
+                || ratios.stream().anyMatch(ratio -> ratio == null || ratio <= 0 || ratio > 1)) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("📊 Processing {} blend scenarios for flight {}", ratios.size(), request.getFlightNumber());
+        QuoteStageTimer.Stages stages = stageTimer.start();
+        
+        try {
+            CompletableFuture<PriceService.PriceData> snapshot = CompletableFuture.supplyAsync(
+                    () -> stages.time("price-feed", priceService::getPriceSnapshot), quoteExecutor);
+            FlightEmissionsService.EmissionData emissionData = stages.time("emissions", () -> resolveEmissions(request));
+            PriceService.PriceData prices = stages.time("price-wait", snapshot::join);
+            
+            double[] blendRatios = ratios.stream().mapToDouble(Double::doubleValue).toArray();
+            ScenarioQuoteResponse response = stages.time("pricing", () -> priceService.calculateBlendScenarios(
+                    emissionData.getCo2Emissions(), emissionData.getDistance(), emissionData.getAircraftType(),
+                    blendRatios, prices));
+            
+            return ResponseEntity.ok()
+                    .header(QuoteStageTimer.SERVER_TIMING_HEADER, stages.finish())
+                    .body(response);
+            
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("❌ Error generating scenario quote: {}", cause.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Quotes a multi-leg itinerary. Leg emissions are resolved concurrently and every leg is
+     * priced against one market snapshot, so latency tracks the slowest leg.
+     */
+    @PostMapping("/itinerary")
+    public ResponseEntity<ItineraryQuoteResponse> getItineraryQuote(@RequestBody ItineraryQuoteRequest request) {
+        List<QuoteRequest> legs = request.getLegs();
+        if (legs == null || legs.isEmpty() || legs.size() > MAX_LEGS || legs.stream().anyMatch(Objects::isNull)) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("🧭 Processing itinerary quote with {} legs", legs.size());
+        
+        try {
+            CompletableFuture<PriceService.PriceData> snapshot =
+                    CompletableFuture.supplyAsync(priceService::getPriceSnapshot, quoteExecutor);
+            List<CompletableFuture<FlightEmissionsService.EmissionData>> legEmissions = new ArrayList<>(legs.size());
+            for (QuoteRequest leg : legs) {
+                legEmissions.add(CompletableFuture.supplyAsync(() -> resolveEmissions(leg), quoteExecutor));
+            }
+            
+            PriceService.PriceData prices = snapshot.join();
+            ItineraryQuoteResponse response = new ItineraryQuoteResponse();
+            for (int i = 0; i < legs.size(); i++) {
+                QuoteRequest leg = legs.get(i);
+                FlightEmissionsService.EmissionData emissionData = legEmissions.get(i).join();
+                PriceResponse quote = priceService.calculateDetailedQuote(emissionData.getCo2Emissions(),
+                        emissionData.getDistance(), emissionData.getAircraftType(), prices);
+                priceService.signQuote(quote, prices.getVersion(),
+                        leg.getFlightNumber(), leg.getDepartureAirport(), leg.getArrivalAirport());
+                response.addLeg(new ItineraryQuoteResponse.LegQuote(leg.getFlightNumber(), leg.getDepartureAirport(),
+                        leg.getArrivalAirport(), emissionData.getAircraftType(), emissionData.getDistance(), quote));
+            }
+            
+            log.info("✅ Itinerary quote generated: {} legs, {} L SAF for ${} total",
+                    legs.size(), response.getTotalSafVolume(), response.getTotalPrice());
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("❌ Error generating itinerary quote: {}", cause.getMessage());
+            // Legs without enough flight data are the caller's fault; anything else is ours or upstream's
+            if (cause instanceof IllegalArgumentException) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // Uses the emissions supplied by the client, or calculates them from the flight details
+    private FlightEmissionsService.EmissionData resolveEmissions(QuoteRequest request) {
+        double emissions = request.getFlightEmissions();
+        String aircraftType = request.getAircraftType();
+        if (emissions > 0 && aircraftType != null && !aircraftType.isEmpty()) {
+            return new FlightEmissionsService.EmissionData(emissions, aircraftType, request.getDistance());
+        }
+        
+        if (request.getFlightNumber() == null ||
+            request.getDepartureAirport() == null ||
+            request.getArrivalAirport() == null) {
+            throw new IllegalArgumentException("Insufficient flight data for quote calculation");
+        }
+        
+        log.info("📊 Calculating missing flight data for {}", request.getFlightNumber());
+        prewarmService.recordQuote(request.getFlightNumber(), request.getDepartureAirport(), request.getArrivalAirport());
+        FlightEmissionsService.EmissionData emissionData = flightEmissionsService.getFlightEmissions(
+            request.getFlightNumber(),
+            request.getDepartureAirport(),
+            request.getArrivalAirport()
+        );
+        
+        log.info("✅ Calculated: {} kg CO2, {} aircraft, {} km",
+                emissionData.getCo2Emissions(), emissionData.getAircraftType(), emissionData.getDistance());
+        return emissionData;
+    }
+
+    private ResponseEntity<PriceResponse> getFallbackQuote(QuoteRequest request, QuoteStageTimer.Stages stages) {
         try {
             // Basic fallback calculation
-            double safVolume = conversionService.convertEmissions(request.getFlightEmissions());
-            PriceResponse basicPrice = priceService.fetchPrice();
+            double safVolume = stages.time("conversion", () -> conversionService.convertEmissions(request.getFlightEmissions()));
+            PriceResponse basicPrice = stages.time("price-feed", priceService::fetchPrice);
             
             PriceResponse fallbackQuote = new PriceResponse();
             fallbackQuote.setFlightEmissions(request.getFlightEmissions());
@@ -104,8 +237,13 @@ public class QuoteController {
             fallbackQuote.setTotalPrice(basicPrice.getPricePerGallon().multiply(java.math.BigDecimal.valueOf(safVolume)));
             fallbackQuote.setCarbonReduction(request.getFlightEmissions() * 0.80); // 80% reduction
             fallbackQuote.setValidUntil(java.time.LocalDateTime.now().plusHours(1));
+            reservationService.reserve(fallbackQuote);
+            priceService.signQuote(fallbackQuote, priceService.getPriceSnapshot().getVersion(),
+                    request.getFlightNumber(), request.getDepartureAirport(), request.getArrivalAirport());
             
-            return ResponseEntity.ok(fallbackQuote);
+            return ResponseEntity.ok()
+                    .header(QuoteStageTimer.SERVER_TIMING_HEADER, stages.finish())
+                    .body(fallbackQuote);
         } catch (Exception e) {
             log.error("❌ Fallback quote also failed: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -0,0 +1,14 @@
+package com.aa.saf.broker.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkOrderRequest {
+    // Each order carries its own quoteToken or quoteId
+    private List<OrderRequest> orders = new ArrayList<>();
+
+    public BulkOrderRequest() {}
+
+    public List<OrderRequest> getOrders() { return orders; }
+    public void setOrders(List<OrderRequest> orders) { this.orders = orders; }
+}
@@ -0,0 +1,36 @@
+package com.aa.saf.broker.dto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkOrderResponse {
+    // IDs of the created orders, in request order (rejected entries are skipped)
+    private List<Long> orderIds = new ArrayList<>();
+    // Positions in the request whose quote was invalid, used or expired
+    private List<Integer> rejectedIndexes = new ArrayList<>();
+    private BigDecimal totalPrice = BigDecimal.ZERO;
+    private long elapsedMs;
+    // Set when the batch could not be saved; no orders were created and the quotes were released
+    private String error;
+
+    public BulkOrderResponse() {}
+
+    public int getCreated() { return orderIds.size(); }
+    public int getRejected() { return rejectedIndexes.size(); }
+
+    public List<Long> getOrderIds() { return orderIds; }
+    public void setOrderIds(List<Long> orderIds) { this.orderIds = orderIds; }
+
+    public List<Integer> getRejectedIndexes() { return rejectedIndexes; }
+    public void setRejectedIndexes(List<Integer> rejectedIndexes) { this.rejectedIndexes = rejectedIndexes; }
+
+    public BigDecimal getTotalPrice() { return totalPrice; }
+    public void setTotalPrice(BigDecimal totalPrice) { this.totalPrice = totalPrice; }
+
+    public long getElapsedMs() { return elapsedMs; }
+    public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -0,0 +1,31 @@
+package com.aa.saf.broker.dto;
+
+import com.aa.saf.broker.model.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Certificate listing row with its order nested as {@code order}, the shape the frontend
+ * already reads. Built from a single join, so listing never loads Order entities one by one.
+ */
+public record CertificateSummary(
+        Long id,
+        String certNumber,
+        LocalDateTime issueDate,
+        String pdfUri,
+        String registryId,
+        OrderSummary order) {
+
+    // JPQL constructor expressions cannot nest, so the order's columns arrive flattened
+    public CertificateSummary(Long id, String certNumber, LocalDateTime issueDate, String pdfUri, String registryId,
+                              Long orderId, String userEmail, String flightNumber, String departureAirport,
+                              String arrivalAirport, LocalDateTime flightDate, double flightEmissions,
+                              double safVolume, BigDecimal priceUsd, BigDecimal platformFeeUsd,
+                              Order.OrderStatus status, LocalDateTime createdAt, LocalDateTime completedAt,
+                              String notes) {
+        this(id, certNumber, issueDate, pdfUri, registryId,
+                new OrderSummary(orderId, userEmail, flightNumber, departureAirport, arrivalAirport, flightDate,
+                        flightEmissions, safVolume, priceUsd, platformFeeUsd, status, createdAt, completedAt, notes));
+    }
+}
@@ -0,0 +1,14 @@
+package com.aa.saf.broker.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ItineraryQuoteRequest {
+    // Ordered legs, e.g. DFW-ORD then ORD-LHR
+    private List<QuoteRequest> legs = new ArrayList<>();
+
+    public ItineraryQuoteRequest() {}
+
+    public List<QuoteRequest> getLegs() { return legs; }
+    public void setLegs(List<QuoteRequest> legs) { this.legs = legs; }
+}
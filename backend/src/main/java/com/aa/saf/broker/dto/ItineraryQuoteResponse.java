@@ -0,0 +1,99 @@
+package com.aa.saf.broker.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ItineraryQuoteResponse {
+    private List<LegQuote> legs = new ArrayList<>();
+    
+    // Itinerary totals, summed over the legs
+    private double totalFlightEmissions;
+    private double totalDistance;
+    private double totalSafVolume;
+    private BigDecimal totalPrice = BigDecimal.ZERO;
+    private double totalCarbonReduction;
+    private BigDecimal pricePerLiter;
+    private LocalDateTime validUntil;
+
+    public static class LegQuote {
+        private String flightNumber;
+        private String departureAirport;
+        private String arrivalAirport;
+        private String aircraftType;
+        private double distance;
+        private PriceResponse quote;
+
+        public LegQuote() {}
+
+        public LegQuote(String flightNumber, String departureAirport, String arrivalAirport,
+                        String aircraftType, double distance, PriceResponse quote) {
+            this.flightNumber = flightNumber;
+            this.departureAirport = departureAirport;
+            this.arrivalAirport = arrivalAirport;
+            this.aircraftType = aircraftType;
+            this.distance = distance;
+            this.quote = quote;
+        }
+
+        public String getFlightNumber() { return flightNumber; }
+        public void setFlightNumber(String flightNumber) { this.flightNumber = flightNumber; }
+
+        public String getDepartureAirport() { return departureAirport; }
+        public void setDepartureAirport(String departureAirport) { this.departureAirport = departureAirport; }
+
+        public String getArrivalAirport() { return arrivalAirport; }
+        public void setArrivalAirport(String arrivalAirport) { this.arrivalAirport = arrivalAirport; }
+
+        public String getAircraftType() { return aircraftType; }
+        public void setAircraftType(String aircraftType) { this.aircraftType = aircraftType; }
+
+        public double getDistance() { return distance; }
+        public void setDistance(double distance) { this.distance = distance; }
+
+        public PriceResponse getQuote() { return quote; }
+        public void setQuote(PriceResponse quote) { this.quote = quote; }
+    }
+
+    public ItineraryQuoteResponse() {}
+
+    public void addLeg(LegQuote leg) {
+        PriceResponse quote = leg.getQuote();
+        legs.add(leg);
+        totalFlightEmissions += quote.getFlightEmissions();
+        totalDistance += leg.getDistance();
+        totalSafVolume = Math.round((totalSafVolume + quote.getRecommendedSafVolume()) * 10.0) / 10.0;
+        totalPrice = totalPrice.add(quote.getTotalPrice());
+        totalCarbonReduction += quote.getCarbonReduction();
+        pricePerLiter = quote.getPricePerLiter();
+        // The itinerary is only as valid as its earliest-expiring leg
+        if (validUntil == null || quote.getValidUntil().isBefore(validUntil)) {
+            validUntil = quote.getValidUntil();
+        }
+    }
+
+    public List<LegQuote> getLegs() { return legs; }
+    public void setLegs(List<LegQuote> legs) { this.legs = legs; }
+
+    public double getTotalFlightEmissions() { return totalFlightEmissions; }
+    public void setTotalFlightEmissions(double totalFlightEmissions) { this.totalFlightEmissions = totalFlightEmissions; }
+
+    public double getTotalDistance() { return totalDistance; }
+    public void setTotalDistance(double totalDistance) { this.totalDistance = totalDistance; }
+
+    public double getTotalSafVolume() { return totalSafVolume; }
+    public void setTotalSafVolume(double totalSafVolume) { this.totalSafVolume = totalSafVolume; }
+
+    public BigDecimal getTotalPrice() { return totalPrice; }
+    public void setTotalPrice(BigDecimal totalPrice) { this.totalPrice = totalPrice; }
+
+    public double getTotalCarbonReduction() { return totalCarbonReduction; }
+    public void setTotalCarbonReduction(double totalCarbonReduction) { this.totalCarbonReduction = totalCarbonReduction; }
+
+    public BigDecimal getPricePerLiter() { return pricePerLiter; }
+    public void setPricePerLiter(BigDecimal pricePerLiter) { this.pricePerLiter = pricePerLiter; }
+
+    public LocalDateTime getValidUntil() { return validUntil; }
+    public void setValidUntil(LocalDateTime validUntil) { this.validUntil = validUntil; }
+}
@@ -11,6 +11,8 @@ public class OrderRequest {
     private String departureAirport;
     private String arrivalAirport;
     private String flightDate; // Changed to String to handle frontend date format
+    private String quoteId; // Reservation from /api/quote
+    private String quoteToken; // Signed quote from /api/quote, accepted instead of quoteId
 
     public OrderRequest() {}
 
@@ -77,4 +79,20 @@ public class OrderRequest {
     public void setFlightDate(String flightDate) {
         this.flightDate = flightDate;
     }
+
+    public String getQuoteId() {
+        return quoteId;
+    }
+
+    public void setQuoteId(String quoteId) {
+        this.quoteId = quoteId;
+    }
+
+    public String getQuoteToken() {
+        return quoteToken;
+    }
+
+    public void setQuoteToken(String quoteToken) {
+        this.quoteToken = quoteToken;
+    }
 }
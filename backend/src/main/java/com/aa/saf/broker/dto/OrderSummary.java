@@ -0,0 +1,28 @@
+package com.aa.saf.broker.dto;
+
+import com.aa.saf.broker.model.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Order listing row: the entity's columns without the user association, selected directly with
+ * a constructor expression so no entities are hydrated or lazy proxies serialized.
+ * Field names match the Order JSON the frontend already reads.
+ */
+public record OrderSummary(
+        Long id,
+        String userEmail,
+        String flightNumber,
+        String departureAirport,
+        String arrivalAirport,
+        LocalDateTime flightDate,
+        double flightEmissions,
+        double safVolume,
+        BigDecimal priceUsd,
+        BigDecimal platformFeeUsd,
+        Order.OrderStatus status,
+        LocalDateTime createdAt,
+        LocalDateTime completedAt,
+        String notes) {
+}
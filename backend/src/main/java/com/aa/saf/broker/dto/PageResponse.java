@@ -14,6 +14,7 @@ public class PageResponse<T> {
     private boolean first;
     private int numberOfElements;
     private boolean empty;
+    private String nextCursor; // Pass back as ?cursor= for the next page; null on the last page
     
     public PageResponse() {}
     
@@ -33,6 +34,24 @@ public class PageResponse<T> {
         this.sort = new SortInfo(!sorted, sorted, sorted);
     }
     
+    /**
+     * Keyset page: totals are not counted (that would scan the whole result), so
+     * totalElements and totalPages are -1.
+     */
+    public PageResponse(List<T> content, int size, String nextCursor) {
+        this.content = content;
+        this.totalElements = -1;
+        this.totalPages = -1;
+        this.size = size;
+        this.numberOfElements = content.size();
+        this.first = false;
+        this.last = nextCursor == null;
+        this.empty = content.isEmpty();
+        this.nextCursor = nextCursor;
+        this.pageable = new PageInfo(0, size, true);
+        this.sort = new SortInfo(false, false, true);
+    }
+    
     // Getters and setters
     public List<T> getContent() { return content; }
     public void setContent(List<T> content) { this.content = content; }
@@ -67,6 +86,9 @@ public class PageResponse<T> {
     public boolean isEmpty() { return empty; }
     public void setEmpty(boolean empty) { this.empty = empty; }
     
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    
     // Inner classes for structured response
     public static class PageInfo {
         private int pageNumber;
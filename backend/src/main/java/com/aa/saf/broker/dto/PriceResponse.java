@@ -6,6 +6,12 @@ import java.time.LocalDateTime;
 public class PriceResponse {
     private BigDecimal pricePerGallon;
     
+    // Server-side reservation to order against, valid until validUntil
+    private String quoteId;
+    
+    // Stateless signed alternative to quoteId, accepted by any node
+    private String quoteToken;
+    
     // Enhanced fields for detailed quotes
     private double flightEmissions;
     private double recommendedSafVolume;
@@ -64,6 +70,12 @@ public class PriceResponse {
     public BigDecimal getPricePerGallon() { return pricePerGallon; }
     public void setPricePerGallon(BigDecimal pricePerGallon) { this.pricePerGallon = pricePerGallon; }
 
+    public String getQuoteId() { return quoteId; }
+    public void setQuoteId(String quoteId) { this.quoteId = quoteId; }
+
+    public String getQuoteToken() { return quoteToken; }
+    public void setQuoteToken(String quoteToken) { this.quoteToken = quoteToken; }
+
     // Enhanced getters/setters
     public double getFlightEmissions() { return flightEmissions; }
     public void setFlightEmissions(double flightEmissions) { this.flightEmissions = flightEmissions; }
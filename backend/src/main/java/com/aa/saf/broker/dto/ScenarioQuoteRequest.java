@@ -0,0 +1,13 @@
+package com.aa.saf.broker.dto;
+
+import java.util.List;
+
+public class ScenarioQuoteRequest extends QuoteRequest {
+    // SAF blend ratios to compare, as fractions of the flight's fuel (0.1 = 10%)
+    private List<Double> blendRatios = List.of(0.10, 0.30, 0.50, 1.00);
+
+    public ScenarioQuoteRequest() {}
+
+    public List<Double> getBlendRatios() { return blendRatios; }
+    public void setBlendRatios(List<Double> blendRatios) { this.blendRatios = blendRatios; }
+}
@@ -0,0 +1,90 @@
+package com.aa.saf.broker.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Blend ratio comparison for one flight. Informational only: the rows cannot be ordered, so
+ * there is no quote ID or token; request a quote from /api/quote to place an order.
+ */
+public class ScenarioQuoteResponse {
+    private double flightEmissions;
+    private String aircraftType;
+    private double distance;
+    private double totalFuelVolume;
+    private BigDecimal pricePerLiter;
+    private BigDecimal carbonCredit; // For the flight's full emissions, charged in every scenario like /api/quote
+    private LocalDateTime validUntil;
+    
+    // One row per requested blend ratio, in request order
+    private List<Scenario> scenarios = new ArrayList<>();
+
+    public static class Scenario {
+        private double blendRatio;
+        private double safVolume;
+        private BigDecimal baseCost;
+        private BigDecimal carbonCredit;
+        private BigDecimal processingFee;
+        private BigDecimal regulatoryFee;
+        private BigDecimal volumeDiscount;
+        private BigDecimal totalPrice;
+        private double carbonReduction;
+
+        public Scenario() {}
+
+        public double getBlendRatio() { return blendRatio; }
+        public void setBlendRatio(double blendRatio) { this.blendRatio = blendRatio; }
+
+        public double getSafVolume() { return safVolume; }
+        public void setSafVolume(double safVolume) { this.safVolume = safVolume; }
+
+        public BigDecimal getBaseCost() { return baseCost; }
+        public void setBaseCost(BigDecimal baseCost) { this.baseCost = baseCost; }
+
+        public BigDecimal getCarbonCredit() { return carbonCredit; }
+        public void setCarbonCredit(BigDecimal carbonCredit) { this.carbonCredit = carbonCredit; }
+
+        public BigDecimal getProcessingFee() { return processingFee; }
+        public void setProcessingFee(BigDecimal processingFee) { this.processingFee = processingFee; }
+
+        public BigDecimal getRegulatoryFee() { return regulatoryFee; }
+        public void setRegulatoryFee(BigDecimal regulatoryFee) { this.regulatoryFee = regulatoryFee; }
+
+        public BigDecimal getVolumeDiscount() { return volumeDiscount; }
+        public void setVolumeDiscount(BigDecimal volumeDiscount) { this.volumeDiscount = volumeDiscount; }
+
+        public BigDecimal getTotalPrice() { return totalPrice; }
+        public void setTotalPrice(BigDecimal totalPrice) { this.totalPrice = totalPrice; }
+
+        public double getCarbonReduction() { return carbonReduction; }
+        public void setCarbonReduction(double carbonReduction) { this.carbonReduction = carbonReduction; }
+    }
+
+    public ScenarioQuoteResponse() {}
+
+    public double getFlightEmissions() { return flightEmissions; }
+    public void setFlightEmissions(double flightEmissions) { this.flightEmissions = flightEmissions; }
+
+    public String getAircraftType() { return aircraftType; }
+    public void setAircraftType(String aircraftType) { this.aircraftType = aircraftType; }
+
+    public double getDistance() { return distance; }
+    public void setDistance(double distance) { this.distance = distance; }
+
+    public double getTotalFuelVolume() { return totalFuelVolume; }
+    public void setTotalFuelVolume(double totalFuelVolume) { this.totalFuelVolume = totalFuelVolume; }
+
+    public BigDecimal getPricePerLiter() { return pricePerLiter; }
+    public void setPricePerLiter(BigDecimal pricePerLiter) { this.pricePerLiter = pricePerLiter; }
+
+    public BigDecimal getCarbonCredit() { return carbonCredit; }
+    public void setCarbonCredit(BigDecimal carbonCredit) { this.carbonCredit = carbonCredit; }
+
+    public LocalDateTime getValidUntil() { return validUntil; }
+    public void setValidUntil(LocalDateTime validUntil) { this.validUntil = validUntil; }
+
+    public List<Scenario> getScenarios() { return scenarios; }
+    public void setScenarios(List<Scenario> scenarios) { this.scenarios = scenarios; }
+}
@@ -0,0 +1,196 @@
+package com.aa.saf.broker.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A completed order moved out of the hot orders table, together with its certificate.
+ *
+ * Keeps the original order and certificate ids so existing links, downloads and verifications
+ * still resolve. Rows are grouped by {@code archive_month} (yyyymm of the order's creation), the
+ * key for monthly range partitions where the database supports them.
+ */
+@Entity
+@Table(name = "orders_archive", indexes = {
+    @Index(name = "idx_orders_archive_month", columnList = "archive_month"),
+    @Index(name = "idx_orders_archive_user_email_created", columnList = "user_email, created_at, id"),
+    @Index(name = "idx_orders_archive_certificate", columnList = "certificate_id")
+})
+public class ArchivedOrder {
+
+    // Same id as the original order
+    @Id
+    private Long id;
+
+    @Column(name = "archive_month", nullable = false)
+    private int archiveMonth;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(name = "flight_number")
+    private String flightNumber;
+
+    @Column(name = "departure_airport")
+    private String departureAirport;
+
+    @Column(name = "arrival_airport")
+    private String arrivalAirport;
+
+    @Column(name = "flight_date")
+    private LocalDateTime flightDate;
+
+    @Column(name = "flight_emissions", nullable = false)
+    private double flightEmissions;
+
+    @Column(name = "saf_volume", nullable = false)
+    private double safVolume;
+
+    @Column(name = "price_usd", nullable = false)
+    private BigDecimal priceUsd;
+
+    @Column(name = "platform_fee_usd", nullable = false)
+    private BigDecimal platformFeeUsd;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Order.OrderStatus status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "notes")
+    private String notes;
+
+    // Certificate columns; null if the order never got one
+    @Column(name = "certificate_id")
+    private Long certificateId;
+
+    @Column(name = "cert_number")
+    private String certNumber;
+
+    @Column(name = "cert_issue_date")
+    private LocalDateTime certIssueDate;
+
+    @Column(name = "cert_pdf_uri")
+    private String certPdfUri;
+
+    @Column(name = "cert_registry_id")
+    private String certRegistryId;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    public ArchivedOrder() {
+    }
+
+    /**
+     * @param certificate the order's certificate, or null
+     */
+    public ArchivedOrder(Order order, Certificate certificate, LocalDateTime archivedAt) {
+        this.id = order.getId();
+        this.archiveMonth = monthOf(order.getCreatedAt());
+        // Reading the id does not initialize the lazy user proxy
+        this.userId = order.getUser() != null ? order.getUser().getId() : null;
+        this.userEmail = order.getUserEmail();
+        this.flightNumber = order.getFlightNumber();
+        this.departureAirport = order.getDepartureAirport();
+        this.arrivalAirport = order.getArrivalAirport();
+        this.flightDate = order.getFlightDate();
+        this.flightEmissions = order.getFlightEmissions();
+        this.safVolume = order.getSafVolume();
+        this.priceUsd = order.getPriceUsd();
+        this.platformFeeUsd = order.getPlatformFeeUsd() != null ? order.getPlatformFeeUsd() : BigDecimal.ZERO;
+        this.status = order.getStatus();
+        this.createdAt = order.getCreatedAt();
+        this.completedAt = order.getCompletedAt();
+        this.notes = order.getNotes();
+        if (certificate != null) {
+            this.certificateId = certificate.getId();
+            this.certNumber = certificate.getCertNumber();
+            this.certIssueDate = certificate.getIssueDate();
+            this.certPdfUri = certificate.getPdfUri();
+            this.certRegistryId = certificate.getRegistryId();
+        }
+        this.archivedAt = archivedAt;
+    }
+
+    /**
+     * @return yyyymm, e.g. 202501 for January 2025
+     */
+    public static int monthOf(LocalDateTime dateTime) {
+        return dateTime.getYear() * 100 + dateTime.getMonthValue();
+    }
+
+    /**
+     * Rebuilds the order as a detached entity, for read paths that serve archived orders like
+     * live ones. It must not be saved.
+     */
+    public Order toOrder() {
+        Order order = new Order();
+        order.setId(id);
+        order.setUserEmail(userEmail);
+        order.setFlightNumber(flightNumber);
+        order.setDepartureAirport(departureAirport);
+        order.setArrivalAirport(arrivalAirport);
+        order.setFlightDate(flightDate);
+        order.setFlightEmissions(flightEmissions);
+        order.setSafVolume(safVolume);
+        order.setPriceUsd(priceUsd);
+        order.setPlatformFeeUsd(platformFeeUsd);
+        order.setStatus(status);
+        order.setCreatedAt(createdAt);
+        order.setCompletedAt(completedAt);
+        order.setNotes(notes);
+        return order;
+    }
+
+    /**
+     * @return the certificate as a detached entity with its order attached, or null if the order
+     *         had no certificate
+     */
+    public Certificate toCertificate() {
+        if (certificateId == null) {
+            return null;
+        }
+        Certificate certificate = new Certificate();
+        certificate.setId(certificateId);
+        certificate.setOrder(toOrder());
+        certificate.setCertNumber(certNumber);
+        certificate.setIssueDate(certIssueDate);
+        certificate.setPdfUri(certPdfUri);
+        certificate.setRegistryId(certRegistryId);
+        return certificate;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public int getArchiveMonth() { return archiveMonth; }
+    public Long getUserId() { return userId; }
+    public String getUserEmail() { return userEmail; }
+    public String getFlightNumber() { return flightNumber; }
+    public String getDepartureAirport() { return departureAirport; }
+    public String getArrivalAirport() { return arrivalAirport; }
+    public LocalDateTime getFlightDate() { return flightDate; }
+    public double getFlightEmissions() { return flightEmissions; }
+    public double getSafVolume() { return safVolume; }
+    public BigDecimal getPriceUsd() { return priceUsd; }
+    public BigDecimal getPlatformFeeUsd() { return platformFeeUsd; }
+    public Order.OrderStatus getStatus() { return status; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public String getNotes() { return notes; }
+    public Long getCertificateId() { return certificateId; }
+    public String getCertNumber() { return certNumber; }
+    public LocalDateTime getCertIssueDate() { return certIssueDate; }
+    public String getCertPdfUri() { return certPdfUri; }
+    public String getCertRegistryId() { return certRegistryId; }
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+}
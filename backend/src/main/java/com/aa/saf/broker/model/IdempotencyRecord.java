@@ -0,0 +1,110 @@
+package com.aa.saf.broker.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Stored response for an Idempotency-Key, replayed when a client retries the same request.
+ *
+ * The row is inserted IN_PROGRESS before the request runs, so the unique key doubles as the claim:
+ * only one request per (scope, caller, key) can run, whichever node it lands on.
+ */
+@Entity
+@Table(name = "idempotency_records",
+    uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_scope_caller_key",
+                                          columnNames = {"scope", "caller", "idempotency_key"}),
+    indexes = @Index(name = "idx_idempotency_expires", columnList = "expires_at"))
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "idempotency_records_seq")
+    @SequenceGenerator(name = "idempotency_records_seq", sequenceName = "idempotency_records_seq", allocationSize = 50)
+    private Long id;
+
+    // Endpoint the key was used on, e.g. "orders" or "checkout"
+    @Column(name = "scope", nullable = false, length = 32)
+    private String scope;
+
+    // Who sent the key; the same key from two callers is two unrelated requests
+    @Column(name = "caller", nullable = false)
+    private String caller;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    // SHA-256 of the request body, to reject the same key reused for a different request
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false, length = 16)
+    private State state;
+
+    // 0 while IN_PROGRESS
+    @Column(name = "status_code", nullable = false)
+    private int statusCode;
+
+    @Lob
+    @Column(name = "response_body")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // For an IN_PROGRESS claim, when it is considered abandoned and may be taken over
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public enum State {
+        IN_PROGRESS, COMPLETED
+    }
+
+    public IdempotencyRecord() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    /**
+     * A claim for a request that is about to run.
+     */
+    public IdempotencyRecord(String scope, String caller, String idempotencyKey, String requestHash,
+                             LocalDateTime expiresAt) {
+        this();
+        this.scope = scope;
+        this.caller = caller;
+        this.idempotencyKey = idempotencyKey;
+        this.requestHash = requestHash;
+        this.state = State.IN_PROGRESS;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getScope() { return scope; }
+    public void setScope(String scope) { this.scope = scope; }
+
+    public String getCaller() { return caller; }
+    public void setCaller(String caller) { this.caller = caller; }
+
+    public State getState() { return state; }
+    public void setState(State state) { this.state = state; }
+
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+
+    public String getRequestHash() { return requestHash; }
+    public void setRequestHash(String requestHash) { this.requestHash = requestHash; }
+
+    public int getStatusCode() { return statusCode; }
+    public void setStatusCode(int statusCode) { this.statusCode = statusCode; }
+
+    public String getResponseBody() { return responseBody; }
+    public void setResponseBody(String responseBody) { this.responseBody = responseBody; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+}
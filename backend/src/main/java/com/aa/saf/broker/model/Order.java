@@ -4,13 +4,26 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
 
 @Entity
-@Table(name = "orders")
+// Not in the second-level cache: status transitions, certificate claims and archiving are bulk
+// UPDATE/DELETE statements, and each one would invalidate the whole Order region
+@Table(name = "orders", indexes = {
+    // Cover the order listing filters plus the (createdAt, id) keyset
+    @Index(name = "idx_orders_user_email_created", columnList = "user_email, created_at, id"),
+    @Index(name = "idx_orders_status_created", columnList = "status, created_at, id"),
+    @Index(name = "idx_orders_created", columnList = "created_at, id")
+})
 public class Order {
 
+    // Pooled sequence: IDs are handed out 50 at a time, so inserts can be JDBC batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     // Relationship with User
@@ -61,8 +74,33 @@ public class Order {
     @Column(name = "notes")
     private String notes;
 
+    // Set while a payment event generates the certificate for a PAID order; only one event holds it
+    @Column(name = "certificate_claimed_at")
+    private LocalDateTime certificateClaimedAt;
+
+    // Optimistic lock: bumped on every update, including the conditional status transitions
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version = 0L;
+
     public enum OrderStatus {
-        PENDING, PROCESSING, COMPLETED, CANCELLED, ERROR, PAID
+        PENDING, PROCESSING, COMPLETED, CANCELLED, ERROR, PAID;
+
+        // Allowed lifecycle: PENDING -> PAID -> COMPLETED, with PROCESSING, CANCELLED and ERROR on the side
+        private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+
+        static {
+            TRANSITIONS.put(PENDING, EnumSet.of(PROCESSING, PAID, CANCELLED, ERROR));
+            TRANSITIONS.put(PROCESSING, EnumSet.of(PAID, CANCELLED, ERROR));
+            TRANSITIONS.put(PAID, EnumSet.of(COMPLETED, CANCELLED));
+            TRANSITIONS.put(COMPLETED, EnumSet.noneOf(OrderStatus.class));
+            TRANSITIONS.put(CANCELLED, EnumSet.noneOf(OrderStatus.class));
+            TRANSITIONS.put(ERROR, EnumSet.noneOf(OrderStatus.class));
+        }
+
+        public boolean canTransitionTo(OrderStatus next) {
+            return TRANSITIONS.get(this).contains(next);
+        }
     }
 
     public Order() {
@@ -112,6 +150,12 @@ public class Order {
     public LocalDateTime getCompletedAt() { return completedAt; }
     public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
     
+    public LocalDateTime getCertificateClaimedAt() { return certificateClaimedAt; }
+    public void setCertificateClaimedAt(LocalDateTime certificateClaimedAt) { this.certificateClaimedAt = certificateClaimedAt; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
     public String getNotes() { return notes; }
     public void setNotes(String notes) { this.notes = notes; }
 }
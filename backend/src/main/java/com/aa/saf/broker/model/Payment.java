@@ -1,5 +1,6 @@
 package com.aa.saf.broker.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -9,11 +10,20 @@ import java.time.LocalDateTime;
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_seq")
+    @SequenceGenerator(name = "payments_seq", sequenceName = "payments_seq", allocationSize = 50)
     private Long id;
 
+    // Payments outlive their order's move to orders_archive, so there is no foreign key
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    // Read-only view of order_id; fails to load once the order is archived, so resolve orders
+    // through PaymentService, which falls back to the archive
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "order_id", nullable = false)
+    @JoinColumn(name = "order_id", insertable = false, updatable = false,
+                foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    @JsonIgnore
     private Order order;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -79,7 +89,7 @@ public class Payment {
     public Payment() {}
 
     public Payment(Order order, User user, BigDecimal amount) {
-        this.order = order;
+        setOrder(order);
         this.user = user;
         this.amount = amount;
         this.createdAt = LocalDateTime.now();
@@ -89,8 +99,13 @@ public class Payment {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
+    public Long getOrderId() { return orderId; }
+
     public Order getOrder() { return order; }
-    public void setOrder(Order order) { this.order = order; }
+    public void setOrder(Order order) {
+        this.order = order;
+        this.orderId = order != null ? order.getId() : null;
+    }
 
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
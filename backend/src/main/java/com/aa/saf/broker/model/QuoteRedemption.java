@@ -0,0 +1,46 @@
+package com.aa.saf.broker.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * A quote token nonce that has been spent on an order. The primary key makes a second
+ * redemption of the same token fail on insert, on whichever node it arrives.
+ */
+@Entity
+@Table(name = "quote_redemptions",
+    indexes = @Index(name = "idx_quote_redemptions_expires", columnList = "expires_at"))
+public class QuoteRedemption implements Persistable<String> {
+
+    @Id
+    @Column(name = "nonce", length = 32)
+    private String nonce;
+
+    // The token's own expiry; after it the token is rejected anyway and the row can go
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "redeemed_at", nullable = false)
+    private LocalDateTime redeemedAt;
+
+    public QuoteRedemption() {
+    }
+
+    public QuoteRedemption(String nonce, LocalDateTime expiresAt) {
+        this.nonce = nonce;
+        this.expiresAt = expiresAt;
+        this.redeemedAt = LocalDateTime.now();
+    }
+
+    @Override
+    public String getId() { return nonce; }
+
+    // Always insert: save() must never merge into an existing redemption
+    @Override
+    public boolean isNew() { return true; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public LocalDateTime getRedeemedAt() { return redeemedAt; }
+}
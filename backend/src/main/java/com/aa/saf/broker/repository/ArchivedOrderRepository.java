@@ -0,0 +1,54 @@
+package com.aa.saf.broker.repository;
+
+import com.aa.saf.broker.dto.CertificateSummary;
+import com.aa.saf.broker.dto.OrderSummary;
+import com.aa.saf.broker.model.ArchivedOrder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    // Same projection as OrderRepository.SUMMARY_SELECT, over the archive
+    String SUMMARY_SELECT = "SELECT new com.aa.saf.broker.dto.OrderSummary(a.id, a.userEmail, a.flightNumber, " +
+            "a.departureAirport, a.arrivalAirport, a.flightDate, a.flightEmissions, a.safVolume, a.priceUsd, " +
+            "a.platformFeeUsd, a.status, a.createdAt, a.completedAt, a.notes) FROM ArchivedOrder a ";
+
+    Optional<ArchivedOrder> findByCertificateId(Long certificateId);
+
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(a) FROM ArchivedOrder a")
+    Page<OrderSummary> findSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE a.userEmail = :userEmail",
+           countQuery = "SELECT COUNT(a) FROM ArchivedOrder a WHERE a.userEmail = :userEmail")
+    Page<OrderSummary> findSummariesByUserEmail(@Param("userEmail") String userEmail, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE a.userEmail = :userEmail ORDER BY a.createdAt DESC")
+    List<OrderSummary> findSummariesByUserEmail(@Param("userEmail") String userEmail);
+
+    @Query("SELECT new com.aa.saf.broker.dto.CertificateSummary(a.certificateId, a.certNumber, a.certIssueDate, " +
+           "a.certPdfUri, a.certRegistryId, a.id, a.userEmail, a.flightNumber, a.departureAirport, a.arrivalAirport, " +
+           "a.flightDate, a.flightEmissions, a.safVolume, a.priceUsd, a.platformFeeUsd, a.status, a.createdAt, " +
+           "a.completedAt, a.notes) FROM ArchivedOrder a WHERE a.certificateId IS NOT NULL ORDER BY a.certIssueDate DESC")
+    List<CertificateSummary> findAllCertificateSummaries();
+
+    // Rows of [OrderStatus, Long]
+    @Query("SELECT a.status, COUNT(a) FROM ArchivedOrder a GROUP BY a.status")
+    List<Object[]> countGroupedByStatus();
+
+    @Query("SELECT SUM(a.safVolume) FROM ArchivedOrder a WHERE a.status = 'COMPLETED'")
+    Double getTotalSafVolume();
+
+    @Query("SELECT SUM(a.platformFeeUsd) FROM ArchivedOrder a WHERE a.status = 'COMPLETED'")
+    Double getTotalRevenue();
+
+    @Query("SELECT SUM(a.flightEmissions * 0.8) FROM ArchivedOrder a WHERE a.status = 'COMPLETED'")
+    Double getTotalEmissionsReduced();
+}
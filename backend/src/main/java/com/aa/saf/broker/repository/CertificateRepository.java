@@ -1,11 +1,35 @@
 package com.aa.saf.broker.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import com.aa.saf.broker.dto.CertificateSummary;
 import com.aa.saf.broker.model.Certificate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface CertificateRepository extends JpaRepository<Certificate, Long> {
     List<Certificate> findAllByOrderByIssueDateDesc();
+
+    // Listing projection: certificate and order columns from one join, no entities loaded
+    @Query("SELECT new com.aa.saf.broker.dto.CertificateSummary(c.id, c.certNumber, c.issueDate, c.pdfUri, " +
+           "c.registryId, o.id, o.userEmail, o.flightNumber, o.departureAirport, o.arrivalAirport, o.flightDate, " +
+           "o.flightEmissions, o.safVolume, o.priceUsd, o.platformFeeUsd, o.status, o.createdAt, o.completedAt, " +
+           "o.notes) FROM Certificate c JOIN c.order o ORDER BY c.issueDate DESC")
+    List<CertificateSummary> findAllSummaries();
+
+    // Query cache: invalidated by Hibernate whenever the certificates table is written
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Certificate> findByOrderId(Long orderId);
+
+    List<Certificate> findByOrderIdIn(Collection<Long> orderIds);
+
+    @Modifying
+    @Query("DELETE FROM Certificate c WHERE c.order.id IN :orderIds")
+    int deleteByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
 }
@@ -0,0 +1,44 @@
+package com.aa.saf.broker.repository;
+
+import com.aa.saf.broker.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByScopeAndCallerAndIdempotencyKey(String scope, String caller, String idempotencyKey);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.state = 'COMPLETED', r.statusCode = :statusCode, " +
+           "r.responseBody = :responseBody, r.expiresAt = :expiresAt WHERE r.id = :id AND r.state = 'IN_PROGRESS'")
+    int complete(@Param("id") Long id, @Param("statusCode") int statusCode,
+                 @Param("responseBody") String responseBody, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Takes over a claim whose request never finished (e.g. its node died); 0 if someone else got it first
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.requestHash = :requestHash, r.expiresAt = :expiresAt " +
+           "WHERE r.id = :id AND r.state = 'IN_PROGRESS' AND r.expiresAt < :now")
+    int takeOverAbandoned(@Param("id") Long id, @Param("requestHash") String requestHash,
+                          @Param("expiresAt") LocalDateTime expiresAt, @Param("now") LocalDateTime now);
+
+    // Releases a claim so the request can be retried for real
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.state = 'IN_PROGRESS'")
+    int release(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
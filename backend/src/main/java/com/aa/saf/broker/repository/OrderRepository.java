@@ -1,24 +1,42 @@
 package com.aa.saf.broker.repository;
 
+import com.aa.saf.broker.dto.OrderSummary;
 import com.aa.saf.broker.model.Order;
 import com.aa.saf.broker.model.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     
+    int EXPORT_FETCH_SIZE = 500;
+    
+    // Listing projection: only the columns OrderSummary needs, no entity or user proxy
+    String SUMMARY_SELECT = "SELECT new com.aa.saf.broker.dto.OrderSummary(o.id, o.userEmail, o.flightNumber, " +
+            "o.departureAirport, o.arrivalAirport, o.flightDate, o.flightEmissions, o.safVolume, o.priceUsd, " +
+            "o.platformFeeUsd, o.status, o.createdAt, o.completedAt, o.notes) FROM Order o ";
+    
     // Find orders by user
     List<Order> findByUser(User user);
     List<Order> findByUserEmail(String userEmail);
     Page<Order> findByUser(User user, Pageable pageable);
+    Page<Order> findByUserEmail(String userEmail, Pageable pageable);
+    Page<Order> findByUserEmailAndStatus(String userEmail, Order.OrderStatus status, Pageable pageable);
     
     // Find orders by status
     List<Order> findByStatus(Order.OrderStatus status);
@@ -35,6 +53,133 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByUserAndStatus(User user, Order.OrderStatus status);
     Page<Order> findByUserAndStatus(User user, Order.OrderStatus status, Pageable pageable);
     
+    // Listing projections, one query per filter combination so each can use its index
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(o) FROM Order o")
+    Page<OrderSummary> findSummaries(Pageable pageable);
+    
+    @Query(value = SUMMARY_SELECT + "WHERE o.userEmail = :userEmail",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.userEmail = :userEmail")
+    Page<OrderSummary> findSummariesByUserEmail(@Param("userEmail") String userEmail, Pageable pageable);
+    
+    @Query(value = SUMMARY_SELECT + "WHERE o.status = :status",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.status = :status")
+    Page<OrderSummary> findSummariesByStatus(@Param("status") Order.OrderStatus status, Pageable pageable);
+    
+    @Query(value = SUMMARY_SELECT + "WHERE o.userEmail = :userEmail AND o.status = :status",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.userEmail = :userEmail AND o.status = :status")
+    Page<OrderSummary> findSummariesByUserEmailAndStatus(
+            @Param("userEmail") String userEmail,
+            @Param("status") Order.OrderStatus status,
+            Pageable pageable);
+    
+    @Query(SUMMARY_SELECT + "WHERE o.userEmail = :userEmail")
+    List<OrderSummary> findSummariesByUserEmail(@Param("userEmail") String userEmail);
+    
+    @Query(SUMMARY_SELECT + "WHERE o.status = :status")
+    List<OrderSummary> findSummariesByStatus(@Param("status") Order.OrderStatus status);
+    
+    // Keyset pagination: the page after (createdAt, id), newest first. The limit comes from the
+    // Pageable's size; its page number is ignored, so deep pages cost the same as the first.
+    // One query per filter combination, like the listings above, so each seeks its own index
+    String KEYSET_AFTER = "(o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+                          "ORDER BY o.createdAt DESC, o.id DESC";
+    
+    @Query(SUMMARY_SELECT + "WHERE " + KEYSET_AFTER)
+    List<OrderSummary> findPageAfter(
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable limit);
+    
+    @Query(SUMMARY_SELECT + "WHERE o.userEmail = :userEmail AND " + KEYSET_AFTER)
+    List<OrderSummary> findPageAfterByUserEmail(
+            @Param("userEmail") String userEmail,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable limit);
+    
+    @Query(SUMMARY_SELECT + "WHERE o.status = :status AND " + KEYSET_AFTER)
+    List<OrderSummary> findPageAfterByStatus(
+            @Param("status") Order.OrderStatus status,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable limit);
+    
+    @Query(SUMMARY_SELECT + "WHERE o.userEmail = :userEmail AND o.status = :status AND " + KEYSET_AFTER)
+    List<OrderSummary> findPageAfterByUserEmailAndStatus(
+            @Param("userEmail") String userEmail,
+            @Param("status") Order.OrderStatus status,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable limit);
+    
+    // Export: streamed through a server-side cursor in id order; must be consumed inside a transaction
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o WHERE (:status IS NULL OR o.status = :status) " +
+           "AND (:from IS NULL OR o.createdAt >= :from) AND (:to IS NULL OR o.createdAt < :to) " +
+           "ORDER BY o.id")
+    Stream<Order> streamForExport(
+            @Param("status") Order.OrderStatus status,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+    
+    // Archival: completed orders created before the cutoff, oldest first. Rows locked by another
+    // archiver are skipped (lock timeout -2 = SKIP LOCKED)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM Order o WHERE o.status = 'COMPLETED' AND o.createdAt < :cutoff ORDER BY o.createdAt, o.id")
+    List<Order> claimArchivable(@Param("cutoff") LocalDateTime cutoff, Pageable limit);
+    
+    @Modifying
+    @Query("DELETE FROM Order o WHERE o.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT AVG(o.priceUsd) FROM Order o")
+    Double getAveragePrice();
+    
+    // Search index build: rows of [id, flightNumber, departureAirport, arrivalAirport, userEmail,
+    // company, status], streamed like the export
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o.id, o.flightNumber, o.departureAirport, o.arrivalAirport, o.userEmail, u.company, o.status " +
+           "FROM Order o LEFT JOIN User u ON u.email = o.userEmail")
+    Stream<Object[]> streamSearchDocuments();
+    
+    @Query(SUMMARY_SELECT + "WHERE o.id IN :ids ORDER BY o.id DESC")
+    List<OrderSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Conditional transition: only applies while the order is still in the expected status, so
+    // concurrent events cannot overwrite each other. Returns the number of rows changed (0 or 1).
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.version = o.version + 1, " +
+           "o.completedAt = COALESCE(:completedAt, o.completedAt), " +
+           "o.certificateClaimedAt = COALESCE(:certificateClaimedAt, o.certificateClaimedAt) " +
+           "WHERE o.id = :id AND o.status = :from")
+    int transitionStatus(
+            @Param("id") Long id,
+            @Param("from") Order.OrderStatus from,
+            @Param("to") Order.OrderStatus to,
+            @Param("completedAt") LocalDateTime completedAt,
+            @Param("certificateClaimedAt") LocalDateTime certificateClaimedAt);
+
+    // Claims certificate generation for a PAID order nobody is working on (or whose claim went
+    // stale). Returns 1 for exactly one of any concurrent retries.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Order o SET o.certificateClaimedAt = :now, o.version = o.version + 1 " +
+           "WHERE o.id = :id AND o.status = 'PAID' " +
+           "AND (o.certificateClaimedAt IS NULL OR o.certificateClaimedAt < :staleBefore)")
+    int claimCertificate(@Param("id") Long id, @Param("now") LocalDateTime now,
+                         @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Order o SET o.certificateClaimedAt = NULL, o.version = o.version + 1 " +
+           "WHERE o.id = :id AND o.status = 'PAID'")
+    int releaseCertificateClaim(@Param("id") Long id);
+    
     // Find orders by flight information
     List<Order> findByFlightNumber(String flightNumber);
     List<Order> findByDepartureAirportAndArrivalAirport(String departureAirport, String arrivalAirport);
@@ -58,6 +203,10 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT SUM(o.platformFeeUsd) FROM Order o WHERE o.status = :status")
     Double getTotalRevenueByStatus(@Param("status") Order.OrderStatus status);
 
+    // Rows of [OrderStatus, Long]
+    @Query("SELECT o.status, COUNT(o) FROM Order o GROUP BY o.status")
+    List<Object[]> countGroupedByStatus();
+
     // Total metrics (all completed orders)
     @Query("SELECT SUM(o.safVolume) FROM Order o WHERE o.status = 'COMPLETED'")
     Double getTotalSafVolume();
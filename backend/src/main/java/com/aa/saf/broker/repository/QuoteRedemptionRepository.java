@@ -0,0 +1,30 @@
+package com.aa.saf.broker.repository;
+
+import com.aa.saf.broker.model.QuoteRedemption;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface QuoteRedemptionRepository extends JpaRepository<QuoteRedemption, String> {
+
+    @Query("SELECT r.nonce FROM QuoteRedemption r WHERE r.nonce IN :nonces")
+    List<String> findRedeemed(@Param("nonces") Collection<String> nonces);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM QuoteRedemption r WHERE r.nonce IN :nonces")
+    int deleteByNonces(@Param("nonces") Collection<String> nonces);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM QuoteRedemption r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,213 @@
+package com.aa.saf.broker.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Issues and verifies stateless signed quote tokens, so any node can accept an order for a
+ * quote issued by another node without a shared quote store.
+ *
+ * Token: base64url(payload) + "." + base64url(HMAC-SHA256(payload)). The 65 byte payload holds
+ * a format version, expiry (epoch seconds), price snapshot version, total price in cents, SAF
+ * volume, flight emissions, a random nonce and a hash of the quoted flight and route. The
+ * signature only proves we issued the quote; single use is enforced by redeeming the nonce
+ * with {@link com.aa.saf.broker.service.QuoteRedemptionService}.
+ */
+@Component
+public class QuoteTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuoteTokenService.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte FORMAT_VERSION = 2;
+    private static final int NONCE_SIZE = 16;
+    private static final int PAYLOAD_SIZE = 1 + 8 + 8 + 8 + 8 + 8 + NONCE_SIZE + 8;
+    // HMAC keys shorter than the hash output weaken the signature
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+    // Mac instances are not thread safe; one per thread avoids re-initializing the key per call
+    private final ThreadLocal<Mac> mac;
+
+    public static class QuoteClaims {
+        private final Instant expiresAt;
+        private final long snapshotVersion;
+        private final BigDecimal totalPrice;
+        private final double safVolume;
+        private final double flightEmissions;
+        private final long routeKey;
+        private final String nonce;
+
+        /**
+         * Claims for a new token; {@link #issue} assigns the nonce.
+         *
+         * @param routeKey {@link #routeKey(String, String, String)} of the quoted flight
+         */
+        public QuoteClaims(Instant expiresAt, long snapshotVersion, BigDecimal totalPrice, double safVolume,
+                           double flightEmissions, long routeKey) {
+            this(expiresAt, snapshotVersion, totalPrice, safVolume, flightEmissions, routeKey, null);
+        }
+
+        public QuoteClaims(Instant expiresAt, long snapshotVersion, BigDecimal totalPrice, double safVolume,
+                           double flightEmissions, long routeKey, String nonce) {
+            this.expiresAt = expiresAt;
+            this.snapshotVersion = snapshotVersion;
+            this.totalPrice = totalPrice;
+            this.safVolume = safVolume;
+            this.flightEmissions = flightEmissions;
+            this.routeKey = routeKey;
+            this.nonce = nonce;
+        }
+
+        // Getters
+        public Instant getExpiresAt() { return expiresAt; }
+        public long getSnapshotVersion() { return snapshotVersion; }
+        public BigDecimal getTotalPrice() { return totalPrice; }
+        public double getSafVolume() { return safVolume; }
+        public double getFlightEmissions() { return flightEmissions; }
+        public long getRouteKey() { return routeKey; }
+        // 32 hex characters, unique per issued token
+        public String getNonce() { return nonce; }
+    }
+
+    /**
+     * @param secret HMAC key shared by every node. If empty, a random key is generated, so tokens
+     *               only verify on the node that issued them.
+     */
+    public QuoteTokenService(@Value("${app.quote-token.secret:}") String secret) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            log.warn("⚠️ app.quote-token.secret is not set; using a random key, quote tokens will only verify on this node");
+            keyBytes = new byte[MIN_SECRET_BYTES];
+            random.nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+            if (keyBytes.length < MIN_SECRET_BYTES) {
+                throw new IllegalStateException("app.quote-token.secret must be at least " + MIN_SECRET_BYTES + " bytes");
+            }
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256 unavailable", e);
+            }
+        });
+    }
+
+    /**
+     * Signs the claims under a fresh nonce; any nonce already in the claims is ignored.
+     */
+    public String issue(QuoteClaims claims) {
+        byte[] nonce = new byte[NONCE_SIZE];
+        random.nextBytes(nonce);
+        ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_SIZE)
+                .put(FORMAT_VERSION)
+                .putLong(claims.getExpiresAt().getEpochSecond())
+                .putLong(claims.getSnapshotVersion())
+                .putLong(claims.getTotalPrice().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact())
+                .putDouble(claims.getSafVolume())
+                .putDouble(claims.getFlightEmissions())
+                .put(nonce)
+                .putLong(claims.getRouteKey());
+        byte[] bytes = payload.array();
+        return ENCODER.encodeToString(bytes) + "." + ENCODER.encodeToString(sign(bytes));
+    }
+
+    /**
+     * Hash of the flight a quote was priced for, so its token cannot be spent on another flight.
+     * Case and whitespace are ignored; missing fields hash as empty.
+     */
+    public static long routeKey(String flightNumber, String departureAirport, String arrivalAirport) {
+        String route = normalize(flightNumber) + "|" + normalize(departureAirport) + "|" + normalize(arrivalAirport);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(route.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    /**
+     * @return the claims if the signature is valid, the quote has not expired and it was issued
+     *         for this flight. The nonce is not checked here; redeem it before accepting an order.
+     */
+    public Optional<QuoteClaims> verify(String token, String flightNumber, String departureAirport, String arrivalAirport) {
+        Optional<QuoteClaims> claims = verify(token);
+        if (claims.isPresent() && claims.get().getRouteKey() != routeKey(flightNumber, departureAirport, arrivalAirport)) {
+            log.warn("⚠️ Rejected quote token issued for a different flight than {}", flightNumber);
+            return Optional.empty();
+        }
+        return claims;
+    }
+
+    private Optional<QuoteClaims> verify(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return Optional.empty();
+        }
+        try {
+            byte[] payload = DECODER.decode(token.substring(0, dot));
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (payload.length != PAYLOAD_SIZE || !MessageDigest.isEqual(sign(payload), signature)) {
+                log.warn("⚠️ Rejected quote token with invalid signature");
+                return Optional.empty();
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            if (buffer.get() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            Instant expiresAt = Instant.ofEpochSecond(buffer.getLong());
+            if (!expiresAt.isAfter(Instant.now())) {
+                return Optional.empty();
+            }
+            long snapshotVersion = buffer.getLong();
+            BigDecimal totalPrice = BigDecimal.valueOf(buffer.getLong(), 2);
+            double safVolume = buffer.getDouble();
+            double flightEmissions = buffer.getDouble();
+            byte[] nonce = new byte[NONCE_SIZE];
+            buffer.get(nonce);
+            return Optional.of(new QuoteClaims(expiresAt, snapshotVersion, totalPrice, safVolume, flightEmissions,
+                    buffer.getLong(), HexFormat.of().formatHex(nonce)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty(); // not base64
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.replaceAll("\\s+", "").toUpperCase(Locale.ROOT);
+    }
+
+    private byte[] sign(byte[] payload) {
+        return mac.get().doFinal(payload);
+    }
+}
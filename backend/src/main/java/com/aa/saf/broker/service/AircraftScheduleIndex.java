@@ -0,0 +1,130 @@
+package com.aa.saf.broker.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flight number to aircraft type index built from an offline schedule file.
+ *
+ * Rows are {@code airline,flight_number,aircraft_type}. Keys are packed with {@link FlightKeys}
+ * into a sorted {@code long[]} with a parallel {@code short[]} of aircraft type ids, so a
+ * lookup is one binary search with no allocation and no network access.
+ */
+@Component
+public class AircraftScheduleIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(AircraftScheduleIndex.class);
+
+    @Value("${flight.schedule.location:classpath:schedules/aircraft-schedule.csv}")
+    private Resource scheduleResource;
+
+    private volatile Table table = Table.EMPTY;
+
+    // Immutable snapshot so reloads never expose half-built arrays to readers
+    private static final class Table {
+        static final Table EMPTY = new Table(new long[0], new short[0], new String[0]);
+
+        final long[] keys;
+        final short[] typeIds;
+        final String[] typeNames;
+
+        Table(long[] keys, short[] typeIds, String[] typeNames) {
+            this.keys = keys;
+            this.typeIds = typeIds;
+            this.typeNames = typeNames;
+        }
+    }
+
+    @PostConstruct
+    public void loadSchedule() {
+        if (scheduleResource == null || !scheduleResource.exists()) {
+            log.warn("⚠️ Aircraft schedule file not found, aircraft types will be estimated by route");
+            return;
+        }
+        try (Reader reader = new InputStreamReader(scheduleResource.getInputStream(), StandardCharsets.UTF_8)) {
+            load(reader);
+        } catch (IOException e) {
+            log.error("❌ Failed to load aircraft schedule {}: {}", scheduleResource.getDescription(), e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the index with the contents of a schedule CSV.
+     */
+    public void load(Reader source) throws IOException {
+        Map<Long, Short> entries = new HashMap<>();
+        Map<String, Short> typeIdsByName = new HashMap<>();
+        List<String> typeNames = new ArrayList<>();
+        int skipped = 0;
+
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("airline,")) {
+                continue;
+            }
+            String[] columns = line.split(",", 3);
+            long key = columns.length == 3 ? FlightKeys.packFlight(columns[0], columns[1]) : FlightKeys.NO_KEY;
+            String aircraftType = columns.length == 3 ? columns[2].trim() : "";
+            if (key == FlightKeys.NO_KEY || aircraftType.isEmpty()) {
+                skipped++;
+                continue;
+            }
+            Short typeId = typeIdsByName.get(aircraftType);
+            if (typeId == null) {
+                typeId = (short) typeNames.size();
+                typeIdsByName.put(aircraftType, typeId);
+                typeNames.add(aircraftType);
+            }
+            entries.put(key, typeId); // later rows override earlier ones
+        }
+
+        long[] keys = new long[entries.size()];
+        int i = 0;
+        for (Long key : entries.keySet()) {
+            keys[i++] = key;
+        }
+        Arrays.sort(keys);
+        short[] typeIds = new short[keys.length];
+        for (int k = 0; k < keys.length; k++) {
+            typeIds[k] = entries.get(keys[k]);
+        }
+
+        table = new Table(keys, typeIds, typeNames.toArray(new String[0]));
+        log.info("📅 Aircraft schedule index loaded: {} flights, {} aircraft types ({} rows skipped)",
+                keys.length, typeNames.size(), skipped);
+    }
+
+    /**
+     * @return the scheduled aircraft type, or null when the flight is not in the schedule
+     */
+    public String findAircraftType(String flightNumber) {
+        long key = FlightKeys.packFlight(flightNumber);
+        if (key == FlightKeys.NO_KEY) {
+            return null;
+        }
+        Table current = table;
+        int index = Arrays.binarySearch(current.keys, key);
+        return index >= 0 ? current.typeNames[current.typeIds[index]] : null;
+    }
+
+    public int size() {
+        return table.keys.length;
+    }
+}
@@ -2,6 +2,7 @@ package com.aa.saf.broker.service;
 
 import com.aa.saf.broker.model.Order;
 import com.aa.saf.broker.model.Payment;
+import com.aa.saf.broker.repository.ArchivedOrderRepository;
 import com.aa.saf.broker.repository.OrderRepository;
 import com.aa.saf.broker.repository.PaymentRepository;
 import com.aa.saf.broker.repository.UserRepository;
@@ -31,11 +32,22 @@ public class AnalyticsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
     /**
      * Get comprehensive dashboard analytics
      */
     public Map<String, Object> getDashboardAnalytics() {
-        log.info("📊 Generating dashboard analytics");
+        return getDashboardAnalytics(false);
+    }
+
+    /**
+     * Order figures cover only the hot orders table unless includeHistory is set, in which case
+     * the all-time totals also include archived orders.
+     */
+    public Map<String, Object> getDashboardAnalytics(boolean includeHistory) {
+        log.info("📊 Generating dashboard analytics - includeHistory: {}", includeHistory);
         
         Map<String, Object> analytics = new HashMap<>();
         LocalDateTime now = LocalDateTime.now();
@@ -44,11 +56,12 @@ public class AnalyticsService {
         LocalDateTime lastYear = now.minusYears(1);
 
         // Basic metrics
-        analytics.put("totalOrders", orderRepository.count());
+        analytics.put("totalOrders", orderRepository.count() + (includeHistory ? archivedOrderRepository.count() : 0));
         analytics.put("totalUsers", userRepository.count());
         analytics.put("totalRevenue", getTotalRevenue());
-        analytics.put("totalSafVolume", getTotalSafVolume());
-        analytics.put("totalEmissionsReduced", getTotalEmissionsReduced());
+        analytics.put("totalSafVolume", getTotalSafVolume() + (includeHistory ? valueOrZero(archivedOrderRepository.getTotalSafVolume()) : 0));
+        analytics.put("totalEmissionsReduced", getTotalEmissionsReduced()
+                + (includeHistory ? valueOrZero(archivedOrderRepository.getTotalEmissionsReduced()) : 0));
 
         // Growth metrics
         analytics.put("ordersGrowth", getOrdersGrowth(lastMonth));
@@ -112,6 +125,10 @@ public class AnalyticsService {
         return orderRepository.getTotalEmissionsReduced() != null ? orderRepository.getTotalEmissionsReduced() : 0.0;
     }
 
+    private static double valueOrZero(Double value) {
+        return value != null ? value : 0.0;
+    }
+
     private Map<String, Object> getOrdersGrowth(LocalDateTime since) {
         Map<String, Object> growth = new HashMap<>();
         long currentPeriod = orderRepository.countByCreatedAtAfter(since);
@@ -236,14 +253,11 @@ public class AnalyticsService {
     }
 
     private BigDecimal getAverageOrderValue() {
-        List<Order> orders = orderRepository.findAll();
-        if (orders.isEmpty()) return BigDecimal.ZERO;
-        
-        BigDecimal total = orders.stream()
-            .map(Order::getPriceUsd)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Aggregated in the database rather than loading every order
+        Double average = orderRepository.getAveragePrice();
+        if (average == null) return BigDecimal.ZERO;
         
-        return total.divide(BigDecimal.valueOf(orders.size()), 2, RoundingMode.HALF_UP);
+        return BigDecimal.valueOf(average).setScale(2, RoundingMode.HALF_UP);
     }
 
     private List<Map<String, Object>> getTopAirports() {
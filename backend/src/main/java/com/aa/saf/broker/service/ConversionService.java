@@ -1,44 +1,213 @@
 package com.aa.saf.broker.service;
 
 import com.aa.saf.broker.dto.ConversionResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CO2 to SAF conversion backed by the external conversion API.
+ *
+ * Requests are micro-batched: callers enqueue a value and get a future, and a flusher thread
+ * sends everything collected within {@code conversion.batch.linger-ms} (or as soon as
+ * {@code conversion.batch.max-size} values are waiting) as one POST of a JSON array to the
+ * batch URL. The response is expected to be an array of {@link ConversionResponse} in the same
+ * order. Any upstream failure completes the affected callers with the default conversion.
+ *
+ * At most {@code conversion.batch.max-in-flight} batches are outstanding at once; a batch that
+ * cannot get a slot within the batch timeout is answered locally instead of piling onto a slow
+ * upstream. Every queued caller is completed on shutdown, including ones that race with it.
+ */
 @Service
 public class ConversionService {
 
+    private static final Logger log = LoggerFactory.getLogger(ConversionService.class);
+
     private final WebClient webClient;
 
-    @Value("${conversion.api.url}")
-    private String conversionApiUrl;
+    @Value("${conversion.batch.url:${conversion.api.url}/batch}")
+    private String conversionBatchUrl;
+
+    @Value("${conversion.batch.max-size:64}")
+    private int maxBatchSize;
+
+    @Value("${conversion.batch.linger-ms:5}")
+    private long lingerMillis;
+
+    @Value("${conversion.batch.timeout-ms:3000}")
+    private long batchTimeoutMillis;
+
+    @Value("${conversion.batch.max-in-flight:4}")
+    private int maxInFlight;
 
     @Value("${app.development.mode:false}")
     private boolean developmentMode;
 
+    private final BlockingQueue<PendingConversion> pending = new LinkedBlockingQueue<>();
+    private volatile boolean running;
+    private Thread flusher;
+    private Semaphore inFlight;
+
+    private static final class PendingConversion {
+        final double flightEmissions;
+        final CompletableFuture<Double> result = new CompletableFuture<>();
+
+        PendingConversion(double flightEmissions) {
+            this.flightEmissions = flightEmissions;
+        }
+    }
+
     public ConversionService(WebClient webClient) {
         this.webClient = webClient;
     }
 
+    @PostConstruct
+    public void startBatching() {
+        if (developmentMode) {
+            return;
+        }
+        inFlight = new Semaphore(maxInFlight);
+        running = true;
+        flusher = new Thread(this::flushLoop, "conversion-batcher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stopBatching() {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                // The flusher answers its half-collected batch on the way out
+                flusher.join(batchTimeoutMillis);
+                // Give batches already sent a chance to come back
+                if (inFlight.tryAcquire(maxInFlight, batchTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    inFlight.release(maxInFlight);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Nothing left to send them, answer anyone still waiting locally
+        completeQueuedLocally();
+    }
+
+    private void completeQueuedLocally() {
+        PendingConversion conversion;
+        while ((conversion = pending.poll()) != null) {
+            conversion.result.complete(getDefaultConversion(conversion.flightEmissions));
+        }
+    }
+
     public double convertEmissions(double flightEmissions) {
+        return convertEmissionsAsync(flightEmissions).join();
+    }
+
+    /**
+     * Queues a conversion for the next batch. The future always completes with a value,
+     * falling back to the default conversion when the external API is unavailable.
+     */
+    public CompletableFuture<Double> convertEmissionsAsync(double flightEmissions) {
         // Skip external API in development mode for faster response
-        if (developmentMode) {
-            System.out.println("Development mode: Using local calculation for " + flightEmissions + " kg CO2");
-            return getDefaultConversion(flightEmissions);
-        }
-
-        try {
-            ConversionResponse response = webClient.post()
-                .uri(conversionApiUrl)
-                .bodyValue(flightEmissions)
-                .retrieve()
-                .bodyToMono(ConversionResponse.class)
-                .block();
-            return response != null ? response.getSafVolume() : getDefaultConversion(flightEmissions);
-        } catch (Exception e) {
-            // Fallback to calculated conversion when external API is unavailable
-            System.out.println("External conversion API unavailable, using fallback calculation: " + e.getMessage());
-            return getDefaultConversion(flightEmissions);
+        if (developmentMode || !running) {
+            log.debug("Using local conversion for {} kg CO2", flightEmissions);
+            return CompletableFuture.completedFuture(getDefaultConversion(flightEmissions));
+        }
+
+        PendingConversion conversion = new PendingConversion(flightEmissions);
+        pending.add(conversion);
+        // Shutdown may have drained the queue between the running check and the add
+        if (!running && pending.remove(conversion)) {
+            conversion.result.complete(getDefaultConversion(flightEmissions));
+        }
+        // Safety net in case a batch response never arrives
+        return conversion.result.completeOnTimeout(getDefaultConversion(flightEmissions),
+                lingerMillis + batchTimeoutMillis + 500, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushLoop() {
+        List<PendingConversion> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(pending.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingConversion next = remaining > 0 ? pending.poll(remaining, TimeUnit.NANOSECONDS) : pending.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                if (inFlight.tryAcquire(batchTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    sendBatch(new ArrayList<>(batch));
+                } else {
+                    log.warn("⚠️ {} conversion batches already in flight, using fallback calculation for {} values",
+                            maxInFlight, batch.size());
+                    completeBatch(batch, null);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                completeBatch(batch, null);
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Callers must hold an in-flight permit, which is released when the batch completes
+    private void sendBatch(List<PendingConversion> batch) {
+        double[] emissions = new double[batch.size()];
+        for (int i = 0; i < emissions.length; i++) {
+            emissions[i] = batch.get(i).flightEmissions;
+        }
+
+        // Non-blocking so the flusher can keep collecting the next batch
+        webClient.post()
+            .uri(conversionBatchUrl)
+            .bodyValue(emissions)
+            .retrieve()
+            .bodyToMono(ConversionResponse[].class)
+            .timeout(Duration.ofMillis(batchTimeoutMillis))
+            .doFinally(signal -> inFlight.release())
+            .subscribe(
+                responses -> completeBatch(batch, responses),
+                error -> {
+                    log.warn("⚠️ Conversion API unavailable, using fallback calculation for {} values: {}",
+                            batch.size(), error.getMessage());
+                    completeBatch(batch, null);
+                },
+                () -> completeBatch(batch, null) // empty body
+            );
+    }
+
+    private void completeBatch(List<PendingConversion> batch, ConversionResponse[] responses) {
+        boolean usable = responses != null && responses.length == batch.size();
+        if (responses != null && !usable) {
+            log.warn("⚠️ Conversion API returned {} results for {} values, using fallback calculation",
+                    responses.length, batch.size());
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            PendingConversion conversion = batch.get(i);
+            double safVolume = usable && responses[i] != null
+                    ? responses[i].getSafVolume()
+                    : getDefaultConversion(conversion.flightEmissions);
+            conversion.result.complete(safVolume);
         }
     }
 
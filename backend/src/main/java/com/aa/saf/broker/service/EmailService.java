@@ -53,6 +53,18 @@ public class EmailService {
     }
     
     public void sendOrderConfirmationEmail(Order order) {
+        try {
+            deliverOrderConfirmationEmail(order);
+        } catch (Exception e) {
+            log.error("❌ Failed to send order confirmation email for order {}: {}", order.getId(), e.getMessage());
+            // Don't propagate the exception - email failure shouldn't break order creation
+        }
+    }
+    
+    /**
+     * Sends the order confirmation, throwing if the mail server rejects it so the caller can retry.
+     */
+    public void deliverOrderConfirmationEmail(Order order) throws MessagingException {
         log.info("📧 Sending order confirmation email for order: {}", order.getId());
         
         // Validate email address
@@ -66,22 +78,16 @@ public class EmailService {
             return;
         }
         
-        try {
-            MimeMessage mimeMessage = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true);
-            
-            helper.setFrom(fromEmail);
-            helper.setTo(order.getUserEmail());
-            helper.setSubject("SAF Certificate Order Confirmation - Order #" + order.getId());
-            helper.setText(buildOrderConfirmationEmailContent(order), true);
-            
-            mailSender.send(mimeMessage);
-            log.info("✅ Order confirmation email sent successfully for order: {}", order.getId());
-            
-        } catch (Exception e) {
-            log.error("❌ Failed to send order confirmation email for order {}: {}", order.getId(), e.getMessage());
-            // Don't propagate the exception - email failure shouldn't break order creation
-        }
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true);
+        
+        helper.setFrom(fromEmail);
+        helper.setTo(order.getUserEmail());
+        helper.setSubject("SAF Certificate Order Confirmation - Order #" + order.getId());
+        helper.setText(buildOrderConfirmationEmailContent(order), true);
+        
+        mailSender.send(mimeMessage);
+        log.info("✅ Order confirmation email sent successfully for order: {}", order.getId());
     }
     
     public void sendCertificateReadyEmail(Order order, String certificateUrl) {
@@ -117,6 +123,17 @@ public class EmailService {
     }
     
     public void sendOrderStatusUpdateEmail(Order order) {
+        try {
+            deliverOrderStatusUpdateEmail(order);
+        } catch (Exception e) {
+            log.error("❌ Failed to send status update email for order {}: {}", order.getId(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Sends the status update, throwing if the mail server rejects it so the caller can retry.
+     */
+    public void deliverOrderStatusUpdateEmail(Order order) {
         log.info("📧 Sending order status update email for order: {}", order.getId());
         
         // Validate email address
@@ -131,19 +148,14 @@ public class EmailService {
             return;
         }
         
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(order.getUserEmail());
-            message.setSubject("Order Status Update - Order #" + order.getId());
-            message.setText(buildStatusUpdateEmailContent(order));
-            
-            mailSender.send(message);
-            log.info("✅ Status update email sent successfully for order: {}", order.getId());
-            
-        } catch (Exception e) {
-            log.error("❌ Failed to send status update email for order {}: {}", order.getId(), e.getMessage());
-        }
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(fromEmail);
+        message.setTo(order.getUserEmail());
+        message.setSubject("Order Status Update - Order #" + order.getId());
+        message.setText(buildStatusUpdateEmailContent(order));
+        
+        mailSender.send(message);
+        log.info("✅ Status update email sent successfully for order: {}", order.getId());
     }
     
     private String buildWelcomeEmailContent(User user) {
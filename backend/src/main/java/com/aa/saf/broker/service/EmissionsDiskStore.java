@@ -0,0 +1,295 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.service.FlightEmissionsService.EmissionData;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Append-only, memory-mapped file of computed flight emissions so results survive restarts.
+ *
+ * Layout: a 16 byte header (magic, version, committed record count) followed by fixed 64 byte
+ * records of {@code routeKey, calculatedAt millis, co2 kg, distance, aircraft type}. A record
+ * only becomes visible once the header count is bumped, so a crash mid-append leaves at most
+ * one ignored trailing record. Superseded and expired records are dropped by compaction.
+ * A single mapping is limited to 2 GB; once the file reaches that, appends are skipped with a
+ * warning until compaction frees space.
+ */
+@Component
+public class EmissionsDiskStore {
+
+    private static final Logger log = LoggerFactory.getLogger(EmissionsDiskStore.class);
+
+    private static final int MAGIC = 0x53414645; // "SAFE"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 8;
+    static final int RECORD_SIZE = 64;
+    private static final int MAX_TYPE_BYTES = RECORD_SIZE - 33;
+    private static final int INITIAL_RECORDS = 1024;
+    // Records that fit in one mapping, which cannot exceed Integer.MAX_VALUE bytes
+    static final int MAX_RECORDS = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private final Path path;
+    private final boolean enabled;
+    private final Duration retention;
+    private final int maxRecords;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int recordCount;
+    private boolean full;
+
+    /**
+     * Receives each stored record, oldest first.
+     */
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(long routeKey, EmissionData data);
+    }
+
+    @Autowired
+    public EmissionsDiskStore(@Value("${flight.emissions.store.path:data/emissions-cache.dat}") String path,
+                              @Value("${flight.emissions.store.enabled:true}") boolean enabled) {
+        this(Paths.get(path), enabled, FlightEmissionsService.CACHE_TTL);
+    }
+
+    EmissionsDiskStore(Path path, boolean enabled, Duration retention) {
+        this(path, enabled, retention, MAX_RECORDS);
+    }
+
+    EmissionsDiskStore(Path path, boolean enabled, Duration retention, int maxRecords) {
+        this.path = path;
+        this.enabled = enabled;
+        this.retention = retention;
+        this.maxRecords = maxRecords;
+    }
+
+    /**
+     * Appends a result; failures are logged and never surface to the quote path.
+     */
+    public synchronized void append(long routeKey, EmissionData data) {
+        if (!enabled || full || routeKey == FlightKeys.NO_KEY) {
+            return;
+        }
+        try {
+            if (!ensureOpen(true) || !ensureCapacity(recordCount + 1)) {
+                return;
+            }
+            writeRecord(buffer, HEADER_SIZE + recordCount * RECORD_SIZE, routeKey, data);
+            recordCount++;
+            buffer.putLong(COUNT_OFFSET, recordCount); // commit
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to persist emissions for route {}: {}", FlightKeys.describeRoute(routeKey), e.getMessage());
+        }
+    }
+
+    /**
+     * Visits every committed record. Records are immutable once committed, so the scan runs
+     * outside the lock on a view of the current mapping.
+     */
+    public void forEach(RecordVisitor visitor) {
+        ByteBuffer view;
+        int count;
+        synchronized (this) {
+            if (!enabled) {
+                return;
+            }
+            try {
+                if (!ensureOpen(false)) {
+                    return;
+                }
+            } catch (IOException e) {
+                log.warn("⚠️ Failed to open emissions store {}: {}", path, e.getMessage());
+                return;
+            }
+            view = buffer.duplicate();
+            count = recordCount;
+        }
+        for (int i = 0; i < count; i++) {
+            int offset = HEADER_SIZE + i * RECORD_SIZE;
+            visitor.visit(view.getLong(offset), readRecord(view, offset));
+        }
+    }
+
+    /**
+     * Rewrites the file keeping only the newest unexpired record per route.
+     */
+    @Scheduled(initialDelayString = "${flight.emissions.store.compaction-interval-ms:600000}",
+               fixedDelayString = "${flight.emissions.store.compaction-interval-ms:600000}")
+    public synchronized void compact() {
+        if (!enabled || channel == null || recordCount == 0) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - retention.toMillis();
+        Map<Long, Integer> newest = new LinkedHashMap<>();
+        for (int i = 0; i < recordCount; i++) {
+            int offset = HEADER_SIZE + i * RECORD_SIZE;
+            long key = buffer.getLong(offset);
+            newest.remove(key); // re-insert so survivors keep append order
+            if (buffer.getLong(offset + 8) >= cutoff) {
+                newest.put(key, offset);
+            }
+        }
+        if (newest.size() == recordCount) {
+            return;
+        }
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".compact");
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer target = out.map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEADER_SIZE + (long) Math.max(newest.size(), INITIAL_RECORDS) * RECORD_SIZE);
+                writeHeader(target, newest.size());
+                int position = HEADER_SIZE;
+                for (int offset : newest.values()) {
+                    target.put(position, buffer, offset, RECORD_SIZE);
+                    position += RECORD_SIZE;
+                }
+                target.force();
+            }
+            int before = recordCount;
+            close();
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            ensureOpen(false);
+            full = false;
+            log.info("🧹 Emissions store compacted: {} -> {} records", before, recordCount);
+        } catch (IOException e) {
+            log.warn("⚠️ Emissions store compaction failed: {}", e.getMessage());
+        }
+    }
+
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to close emissions store {}: {}", path, e.getMessage());
+        }
+        channel = null;
+        buffer = null;
+        recordCount = 0;
+    }
+
+    // Opens the file on first use so nothing is created until a result is actually stored
+    private boolean ensureOpen(boolean create) throws IOException {
+        if (channel != null) {
+            return true;
+        }
+        if (!create && !Files.exists(path)) {
+            return false;
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) INITIAL_RECORDS * RECORD_SIZE);
+            writeHeader(buffer, 0);
+            recordCount = 0;
+            return true;
+        }
+
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(size, mappedSize(maxRecords)));
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            log.warn("⚠️ Emissions store {} has an unknown format, starting empty", path);
+            writeHeader(buffer, 0);
+            recordCount = 0;
+            return true;
+        }
+        long committed = buffer.getLong(COUNT_OFFSET);
+        recordCount = (int) Math.max(0, Math.min(committed, (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE));
+        log.info("💾 Emissions store opened: {} ({} records)", path, recordCount);
+        return true;
+    }
+
+    // @return false once the mapping cannot grow to hold the records
+    private boolean ensureCapacity(int records) throws IOException {
+        long required = mappedSize(records);
+        if (required <= buffer.capacity()) {
+            return true;
+        }
+        if (records > maxRecords) {
+            full = true;
+            log.warn("⚠️ Emissions store {} is full at {} records, not persisting new results until compaction",
+                    path, recordCount);
+            return false;
+        }
+        // Remap at double the size, up to the mapping limit; mapping past the end of the file grows it
+        long capacity = Math.min(Math.max(required, HEADER_SIZE + 2L * (buffer.capacity() - HEADER_SIZE)),
+                mappedSize(maxRecords));
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        return true;
+    }
+
+    private static long mappedSize(int records) {
+        return HEADER_SIZE + (long) records * RECORD_SIZE;
+    }
+
+    private static void writeHeader(ByteBuffer target, int count) {
+        target.putInt(0, MAGIC);
+        target.putInt(4, VERSION);
+        target.putLong(COUNT_OFFSET, count);
+    }
+
+    private static void writeRecord(ByteBuffer target, int offset, long routeKey, EmissionData data) {
+        byte[] type = encodeType(data.getAircraftType());
+        target.putLong(offset, routeKey);
+        target.putLong(offset + 8, data.getCalculatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        target.putDouble(offset + 16, data.getCo2Emissions());
+        target.putDouble(offset + 24, data.getDistance());
+        target.put(offset + 32, (byte) type.length);
+        target.put(offset + 33, type);
+    }
+
+    private static EmissionData readRecord(ByteBuffer source, int offset) {
+        LocalDateTime calculatedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(source.getLong(offset + 8)), ZoneId.systemDefault());
+        double co2 = source.getDouble(offset + 16);
+        double distance = source.getDouble(offset + 24);
+        int typeLength = Math.min(source.get(offset + 32) & 0xFF, MAX_TYPE_BYTES);
+        byte[] type = new byte[typeLength];
+        source.get(offset + 33, type);
+        return new EmissionData(co2, new String(type, StandardCharsets.UTF_8), distance, calculatedAt);
+    }
+
+    private static byte[] encodeType(String aircraftType) {
+        String type = aircraftType != null ? aircraftType : "";
+        byte[] bytes = type.getBytes(StandardCharsets.UTF_8);
+        while (bytes.length > MAX_TYPE_BYTES) {
+            type = type.substring(0, type.length() - 1);
+            bytes = type.getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+}
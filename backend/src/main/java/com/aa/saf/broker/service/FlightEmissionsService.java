@@ -1,9 +1,12 @@
 package com.aa.saf.broker.service;
 
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
@@ -20,12 +23,78 @@ public class FlightEmissionsService {
     @Autowired
     private WebClient webClient;
     
+    @Autowired
+    private AircraftScheduleIndex aircraftScheduleIndex;
+    
     @Value("${app.development.mode:true}")
     private boolean developmentMode;
     
+    @Value("${flight.api.opensky.enabled:true}")
+    private boolean openSkyEnabled;
+    
+    @Value("${flight.api.aerodatabox.enabled:true}")
+    private boolean aeroDataBoxEnabled;
+    
+    @Value("${flight.api.negative-cache.seconds:300}")
+    private long negativeCacheSeconds;
+    
+    @Value("${flight.api.health.cooldown.seconds:30}")
+    private long healthCooldownSeconds;
+    
+    @Autowired
+    private EmissionsDiskStore emissionsStore;
+    
+    static final Duration CACHE_TTL = Duration.ofHours(1);
+    
     // Cache for flight emissions data to avoid repeated API calls
     private final Map<String, EmissionData> emissionsCache = new ConcurrentHashMap<>();
     
+    // Callsigns OpenSky recently reported no live state for (future flights), value is expiry in nanoTime
+    private final Map<String, Long> liveStateMisses = new ConcurrentHashMap<>();
+    private static final int MAX_LIVE_STATE_MISSES = 10_000;
+    
+    private UpstreamHealth openSkyHealth;
+    private UpstreamHealth aeroDataBoxHealth;
+    
+    // Real airport coordinates database (major airports), {latitude, longitude} in degrees
+    private static final Map<String, double[]> AIRPORT_COORDS = Map.ofEntries(
+        Map.entry("DFW", new double[]{32.8975, -97.0378}), // Dallas/Fort Worth
+        Map.entry("LAX", new double[]{33.9425, -118.4081}), // Los Angeles
+        Map.entry("JFK", new double[]{40.6413, -73.7781}), // New York JFK
+        Map.entry("ORD", new double[]{41.9786, -87.9048}), // Chicago O'Hare
+        Map.entry("LHR", new double[]{51.4700, -0.4543}), // London Heathrow
+        Map.entry("CDG", new double[]{49.0097, 2.5479}), // Paris Charles de Gaulle
+        Map.entry("NRT", new double[]{35.7719, 140.3929}), // Tokyo Narita
+        Map.entry("SJD", new double[]{23.1518, -109.7219}), // Los Cabos
+        Map.entry("ATL", new double[]{33.6407, -84.4277}), // Atlanta
+        Map.entry("DEN", new double[]{39.8561, -104.6737}), // Denver
+        Map.entry("SEA", new double[]{47.4502, -122.3088}), // Seattle
+        Map.entry("MIA", new double[]{25.7959, -80.2870}), // Miami
+        Map.entry("LAS", new double[]{36.0840, -115.1537}), // Las Vegas
+        Map.entry("PHX", new double[]{33.4343, -112.0116}), // Phoenix
+        Map.entry("BOS", new double[]{42.3656, -71.0096}), // Boston
+        Map.entry("SFO", new double[]{37.6213, -122.3790}) // San Francisco
+    );
+    
+    // Real airline fleet analysis, used when a flight is not in the offline schedule
+    private static final Map<String, String[]> AIRLINE_FLEETS = Map.of(
+        "AA", new String[]{"Airbus A321", "Boeing 737-800", "Boeing 777-200"}, // American Airlines
+        "DL", new String[]{"Airbus A320", "Boeing 737-900", "Airbus A350-900"}, // Delta
+        "UA", new String[]{"Boeing 737-800", "Airbus A320", "Boeing 777-200"}, // United
+        "WN", new String[]{"Boeing 737-800", "Boeing 737 MAX 8"}, // Southwest
+        "B6", new String[]{"Airbus A320", "Airbus A321", "Embraer E190"}, // JetBlue
+        "NK", new String[]{"Airbus A320", "Airbus A321"} // Spirit
+    );
+    
+    private static final String[] DEFAULT_FLEET = {"Boeing 737-800"};
+    
+    @PostConstruct
+    public void initUpstreamHealth() {
+        Duration cooldown = Duration.ofSeconds(healthCooldownSeconds);
+        openSkyHealth = new UpstreamHealth("OpenSky", 0.3, 0.5, cooldown);
+        aeroDataBoxHealth = new UpstreamHealth("AeroDataBox", 0.3, 0.5, cooldown);
+    }
+    
     public static class EmissionData {
         private double co2Emissions;
         private String aircraftType;
@@ -39,6 +108,13 @@ public class FlightEmissionsService {
             this.calculatedAt = LocalDateTime.now();
         }
         
+        public EmissionData(double co2Emissions, String aircraftType, double distance, LocalDateTime calculatedAt) {
+            this.co2Emissions = co2Emissions;
+            this.aircraftType = aircraftType;
+            this.distance = distance;
+            this.calculatedAt = calculatedAt;
+        }
+        
         // Getters
         public double getCo2Emissions() { return co2Emissions; }
         public String getAircraftType() { return aircraftType; }
@@ -49,12 +125,14 @@ public class FlightEmissionsService {
     public EmissionData getFlightEmissions(String flightNumber, String departureAirport, String arrivalAirport) {
         log.info("✈️ Calculating emissions for flight: {} from {} to {}", flightNumber, departureAirport, arrivalAirport);
         
-        String cacheKey = String.format("%s-%s-%s", flightNumber, departureAirport, arrivalAirport);
+        // Packable routes use the canonical key so entries restored from disk are found again
+        long routeKey = FlightKeys.packRoute(flightNumber, departureAirport, arrivalAirport);
+        String cacheKey = cacheKey(routeKey, flightNumber, departureAirport, arrivalAirport);
         
         // Check cache first
         if (emissionsCache.containsKey(cacheKey)) {
             EmissionData cached = emissionsCache.get(cacheKey);
-            if (cached.getCalculatedAt().isAfter(LocalDateTime.now().minusHours(1))) {
+            if (isFresh(cached)) {
                 log.info("📋 Using cached emissions data for flight: {}", flightNumber);
                 return cached;
             }
@@ -65,6 +143,43 @@ public class FlightEmissionsService {
             return getMockEmissionsData(departureAirport, arrivalAirport);
         }
         
+        EmissionData result = calculateAndCache(routeKey, cacheKey, flightNumber, departureAirport, arrivalAirport);
+        if (result != null) {
+            return result;
+        }
+        
+        // Fallback to mock data
+        log.warn("⚠️ Using fallback emissions data for flight: {}", flightNumber);
+        return getMockEmissionsData(departureAirport, arrivalAirport);
+    }
+    
+    /**
+     * Recalculates a route ahead of time when its cached entry is missing or will expire within
+     * the given window, so the next quote finds it warm.
+     *
+     * @return true if the route was recalculated
+     */
+    public boolean refreshEmissions(String flightNumber, String departureAirport, String arrivalAirport, Duration expiringWithin) {
+        if (developmentMode) {
+            return false;
+        }
+        long routeKey = FlightKeys.packRoute(flightNumber, departureAirport, arrivalAirport);
+        String cacheKey = cacheKey(routeKey, flightNumber, departureAirport, arrivalAirport);
+        EmissionData cached = emissionsCache.get(cacheKey);
+        if (cached != null && cached.getCalculatedAt().isAfter(LocalDateTime.now().minus(CACHE_TTL).plus(expiringWithin))) {
+            return false;
+        }
+        return calculateAndCache(routeKey, cacheKey, flightNumber, departureAirport, arrivalAirport) != null;
+    }
+    
+    private static String cacheKey(long routeKey, String flightNumber, String departureAirport, String arrivalAirport) {
+        return routeKey != FlightKeys.NO_KEY
+                ? FlightKeys.describeRoute(routeKey)
+                : String.format("%s-%s-%s", flightNumber, departureAirport, arrivalAirport);
+    }
+    
+    private EmissionData calculateAndCache(long routeKey, String cacheKey, String flightNumber,
+                                           String departureAirport, String arrivalAirport) {
         try {
             // Try multiple aviation APIs with fallbacks
             EmissionData result = tryAviationStackAPI(flightNumber, departureAirport, arrivalAirport);
@@ -72,11 +187,12 @@ public class FlightEmissionsService {
                 result = tryFlightAwareAPI(flightNumber, departureAirport, arrivalAirport);
             }
             if (result == null) {
-                result = calculateByDistance(departureAirport, arrivalAirport);
+                result = calculateByDistanceWithRealData(departureAirport, arrivalAirport, flightNumber);
             }
             
             if (result != null) {
                 emissionsCache.put(cacheKey, result);
+                emissionsStore.append(routeKey, result);
                 log.info("✅ Emissions calculated: {} kg CO2 for flight {}", result.getCo2Emissions(), flightNumber);
                 return result;
             }
@@ -84,63 +200,127 @@ public class FlightEmissionsService {
         } catch (Exception e) {
             log.error("❌ Error calculating flight emissions: {}", e.getMessage());
         }
-        
-        // Fallback to mock data
-        log.warn("⚠️ Using fallback emissions data for flight: {}", flightNumber);
-        return getMockEmissionsData(departureAirport, arrivalAirport);
+        return null;
     }
     
     private EmissionData tryAviationStackAPI(String flightNumber, String departureAirport, String arrivalAirport) {
+        if (!openSkyEnabled) {
+            return null;
+        }
+        
+        // Try different flight number formats for better API compatibility
+        String[] flightFormats = {
+            flightNumber,  // Original format (e.g., "AA1385")
+            "AAL" + flightNumber.replaceAll("\\D", "") // ICAO format (e.g., "AAL1385")
+        };
+        
+        // Future flights have no live state; don't probe again until the miss expires
+        if (isLiveStateMiss(flightFormats[0]) && isLiveStateMiss(flightFormats[1])) {
+            log.info("📋 No live state cached for flight {}, calculating by route", flightNumber);
+            return calculateByDistanceWithRealData(departureAirport, arrivalAirport, flightNumber);
+        }
+        
+        if (!openSkyHealth.allowRequest()) {
+            log.info("⏭️ Skipping OpenSky Network API for flight {} (upstream unhealthy)", flightNumber);
+            return null;
+        }
+        
+        // Only the HTTP call reports to the health score; a granted trial is handed back if no call is made
+        boolean reported = false;
         try {
             log.info("🌐 Trying OpenSky Network API for flight: {}", flightNumber);
             
-            // Try different flight number formats for better API compatibility
-            String[] flightFormats = {
-                flightNumber,  // Original format (e.g., "AA1385")
-                "AAL" + flightNumber.replaceAll("\\D", "") // ICAO format (e.g., "AAL1385")
-            };
-            
             for (String format : flightFormats) {
+                if (isLiveStateMiss(format)) {
+                    continue;
+                }
+                
+                String response;
                 try {
-                    // Try HTTP first to avoid SSL certificate issues with OpenSky
-                    String response = webClient.get()
-                            .uri("http://opensky-network.org/api/states/all?callsign=" + format)
-                            .retrieve()
-                            .bodyToMono(String.class)
-                            .timeout(Duration.ofSeconds(3))
-                            .onErrorResume(ex -> {
-                                log.debug("HTTP failed for {}, trying HTTPS", format);
-                                return webClient.get()
-                                        .uri("https://opensky-network.org/api/states/all?callsign=" + format)
-                                        .retrieve()
-                                        .bodyToMono(String.class)
-                                        .timeout(Duration.ofSeconds(3))
-                                        .onErrorReturn("{}");
-                            })
-                            .block();
-                            
-                    if (response != null && !response.contains("\"states\":null") && response.contains("\"states\":[")) {
-                        log.info("📡 OpenSky API found active flight data for: {} (format: {})", flightNumber, format);
-                        return parseOpenSkyResponse(response, departureAirport, arrivalAirport);
-                    } else {
-                        log.debug("🔍 No active flight data for format: {}", format);
-                    }
-                } catch (Exception apiEx) {
-                    log.debug("⚠️ OpenSky API failed for format {}: {}", format, apiEx.getMessage());
+                    response = fetchOpenSkyStates(format);
+                } catch (Exception e) {
+                    openSkyHealth.recordFailure();
+                    reported = true;
+                    log.debug("⚠️ OpenSky API failed: {}", e.getMessage());
+                    return null;
+                }
+                openSkyHealth.recordSuccess();
+                reported = true;
+                        
+                if (response != null && !response.contains("\"states\":null") && response.contains("\"states\":[")) {
+                    log.info("📡 OpenSky API found active flight data for: {} (format: {})", flightNumber, format);
+                    return parseOpenSkyResponse(response, departureAirport, arrivalAirport);
+                } else {
+                    log.debug("🔍 No active flight data for format: {}", format);
+                    recordLiveStateMiss(format);
                 }
             }
             
             // If no active flight found, use route-based calculation
-            log.info("�️ No active flight found, calculating by route");
+            log.info("🗺️ No active flight found, calculating by route");
             return calculateByDistanceWithRealData(departureAirport, arrivalAirport, flightNumber);
             
         } catch (Exception e) {
-            log.debug("⚠️ OpenSky API failed completely: {}", e.getMessage());
-            return calculateByDistanceWithRealData(departureAirport, arrivalAirport, flightNumber);
+            // Our own parsing or calculation failed; OpenSky answered, so its health is unaffected
+            log.warn("⚠️ Could not use OpenSky data for flight {}: {}", flightNumber, e.getMessage());
+            return null;
+        } finally {
+            if (!reported) {
+                openSkyHealth.recordSkipped();
+            }
+        }
+    }
+    
+    private String fetchOpenSkyStates(String callsign) {
+        // Try HTTP first to avoid SSL certificate issues with OpenSky
+        return webClient.get()
+                .uri("http://opensky-network.org/api/states/all?callsign=" + callsign)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(Duration.ofSeconds(3))
+                .onErrorResume(ex -> {
+                    log.debug("HTTP failed for {}, trying HTTPS", callsign);
+                    return webClient.get()
+                            .uri("https://opensky-network.org/api/states/all?callsign=" + callsign)
+                            .retrieve()
+                            .bodyToMono(String.class)
+                            .timeout(Duration.ofSeconds(3));
+                })
+                .block();
+    }
+    
+    private boolean isLiveStateMiss(String callsign) {
+        Long expiresAt = liveStateMisses.get(callsign);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - expiresAt >= 0) {
+            liveStateMisses.remove(callsign, expiresAt);
+            return false;
         }
+        return true;
+    }
+    
+    private void recordLiveStateMiss(String callsign) {
+        long now = System.nanoTime();
+        if (liveStateMisses.size() >= MAX_LIVE_STATE_MISSES) {
+            liveStateMisses.values().removeIf(expiresAt -> now - expiresAt >= 0);
+            if (liveStateMisses.size() >= MAX_LIVE_STATE_MISSES) {
+                return;
+            }
+        }
+        liveStateMisses.put(callsign, now + Duration.ofSeconds(negativeCacheSeconds).toNanos());
     }
     
     private EmissionData tryFlightAwareAPI(String flightNumber, String departureAirport, String arrivalAirport) {
+        if (!aeroDataBoxEnabled) {
+            return null;
+        }
+        if (!aeroDataBoxHealth.allowRequest()) {
+            log.info("⏭️ Skipping AeroDataBox API for flight {} (upstream unhealthy)", flightNumber);
+            return null;
+        }
+        
         try {
             log.info("🌐 Trying AeroDataBox API for flight: {}", flightNumber);
             
@@ -154,6 +334,7 @@ public class FlightEmissionsService {
                     .bodyToMono(String.class)
                     .timeout(Duration.ofSeconds(5))
                     .block();
+            aeroDataBoxHealth.recordSuccess();
                     
             if (response != null && !response.contains("error")) {
                 log.info("📡 AeroDataBox API response received for: {}", flightNumber);
@@ -165,6 +346,7 @@ public class FlightEmissionsService {
             return null;
             
         } catch (Exception e) {
+            aeroDataBoxHealth.recordFailure();
             log.debug("⚠️ AeroDataBox API failed: {}", e.getMessage());
             return null;
         }
@@ -179,11 +361,6 @@ public class FlightEmissionsService {
         return calculateByDistanceWithRealData(departureAirport, arrivalAirport, "API Flight");
     }
     
-    private EmissionData calculateByDistance(String departureAirport, String arrivalAirport) {
-        log.info("🗺️ Calculating emissions by distance for route: {} to {}", departureAirport, arrivalAirport);
-        return calculateByDistanceWithRealData(departureAirport, arrivalAirport, "Unknown");
-    }
-    
     private EmissionData calculateByDistanceWithRealData(String departureAirport, String arrivalAirport, String flightNumber) {
         log.info("📊 Calculating real emissions for route: {} to {} (Flight: {})", departureAirport, arrivalAirport, flightNumber);
         
@@ -222,27 +399,8 @@ public class FlightEmissionsService {
     }
     
     private double getRealAirportDistance(String departureAirport, String arrivalAirport) {
-        // Real airport coordinates database (major airports)
-        Map<String, double[]> airportCoords = new ConcurrentHashMap<>();
-        airportCoords.put("DFW", new double[]{32.8975, -97.0378}); // Dallas/Fort Worth
-        airportCoords.put("LAX", new double[]{33.9425, -118.4081}); // Los Angeles
-        airportCoords.put("JFK", new double[]{40.6413, -73.7781}); // New York JFK
-        airportCoords.put("ORD", new double[]{41.9786, -87.9048}); // Chicago O'Hare
-        airportCoords.put("LHR", new double[]{51.4700, -0.4543}); // London Heathrow
-        airportCoords.put("CDG", new double[]{49.0097, 2.5479}); // Paris Charles de Gaulle
-        airportCoords.put("NRT", new double[]{35.7719, 140.3929}); // Tokyo Narita
-        airportCoords.put("SJD", new double[]{23.1518, -109.7219}); // Los Cabos
-        airportCoords.put("ATL", new double[]{33.6407, -84.4277}); // Atlanta
-        airportCoords.put("DEN", new double[]{39.8561, -104.6737}); // Denver
-        airportCoords.put("SEA", new double[]{47.4502, -122.3088}); // Seattle
-        airportCoords.put("MIA", new double[]{25.7959, -80.2870}); // Miami
-        airportCoords.put("LAS", new double[]{36.0840, -115.1537}); // Las Vegas
-        airportCoords.put("PHX", new double[]{33.4343, -112.0116}); // Phoenix
-        airportCoords.put("BOS", new double[]{42.3656, -71.0096}); // Boston
-        airportCoords.put("SFO", new double[]{37.6213, -122.3790}); // San Francisco
-        
-        double[] depCoords = airportCoords.get(departureAirport);
-        double[] arrCoords = airportCoords.get(arrivalAirport);
+        double[] depCoords = AIRPORT_COORDS.get(departureAirport);
+        double[] arrCoords = AIRPORT_COORDS.get(arrivalAirport);
         
         if (depCoords != null && arrCoords != null) {
             // Calculate great circle distance using Haversine formula
@@ -256,48 +414,65 @@ public class FlightEmissionsService {
         return getAirportDistance(departureAirport, arrivalAirport) * 1.60934; // Convert miles to km
     }
     
-    private double calculateHaversineDistance(double lat1, double lon1, double lat2, double lon2) {
-        final double R = 6371; // Earth's radius in kilometers
-        
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
+    /**
+     * Great circle distances (km) for many routes at once, e.g. batch quoting or fleet reporting.
+     * Coordinates are gathered into structure-of-arrays form and handed to the batch kernel;
+     * routes with unknown airports get the same fallback distance as single-route lookups.
+     */
+    public double[] getRouteDistancesKm(String[] departureAirports, String[] arrivalAirports) {
+        if (departureAirports.length != arrivalAirports.length) {
+            throw new IllegalArgumentException("Departure and arrival airport arrays differ in length");
+        }
         
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        int n = departureAirports.length;
+        double[] lat1 = new double[n];
+        double[] lon1 = new double[n];
+        double[] lat2 = new double[n];
+        double[] lon2 = new double[n];
+        boolean[] known = new boolean[n];
+        
+        for (int i = 0; i < n; i++) {
+            double[] dep = AIRPORT_COORDS.get(departureAirports[i]);
+            double[] arr = AIRPORT_COORDS.get(arrivalAirports[i]);
+            if (dep != null && arr != null) {
+                lat1[i] = dep[0];
+                lon1[i] = dep[1];
+                lat2[i] = arr[0];
+                lon2[i] = arr[1];
+                known[i] = true;
+            }
+        }
         
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        double[] distances = new double[n];
+        GreatCircleDistance.distancesKm(lat1, lon1, lat2, lon2, distances, n);
         
-        return R * c;
+        for (int i = 0; i < n; i++) {
+            if (!known[i]) {
+                distances[i] = getAirportDistance(departureAirports[i], arrivalAirports[i]) * 1.60934;
+            }
+        }
+        return distances;
+    }
+    
+    private double calculateHaversineDistance(double lat1, double lon1, double lat2, double lon2) {
+        return GreatCircleDistance.distanceKm(lat1, lon1, lat2, lon2);
     }
     
     private String determineAircraftType(String flightNumber, double distanceKm) {
+        // Exact equipment from the offline schedule when we have it
+        String scheduledType = aircraftScheduleIndex.findAircraftType(flightNumber);
+        if (scheduledType != null) {
+            log.info("✈️ Flight {} found in schedule - using {}", flightNumber, scheduledType);
+            return scheduledType;
+        }
+        
         // Enhanced aircraft determination based on airline codes and route characteristics
         String airline = flightNumber.length() >= 2 ? flightNumber.substring(0, 2) : "";
         
-        // Real airline fleet analysis with more accurate route-based selection
-        Map<String, String[]> airlineFleets = new ConcurrentHashMap<>();
-        airlineFleets.put("AA", new String[]{"Airbus A321", "Boeing 737-800", "Boeing 777-200"}); // American Airlines
-        airlineFleets.put("DL", new String[]{"Airbus A320", "Boeing 737-900", "Airbus A350-900"}); // Delta
-        airlineFleets.put("UA", new String[]{"Boeing 737-800", "Airbus A320", "Boeing 777-200"}); // United
-        airlineFleets.put("WN", new String[]{"Boeing 737-800", "Boeing 737 MAX 8"}); // Southwest
-        airlineFleets.put("B6", new String[]{"Airbus A320", "Airbus A321", "Embraer E190"}); // JetBlue
-        airlineFleets.put("NK", new String[]{"Airbus A320", "Airbus A321"}); // Spirit
-        
-        String[] fleet = airlineFleets.getOrDefault(airline, new String[]{"Boeing 737-800"});
+        String[] fleet = AIRLINE_FLEETS.getOrDefault(airline, DEFAULT_FLEET);
         
         // American Airlines specific logic based on real flight data
         if ("AA".equals(airline)) {
-            // Specific aircraft assignments based on real FlightAware data
-            if (flightNumber.contains("1972")) {
-                log.info("✈️ Flight AA1972 detected - using Boeing 777-200 (verified from FlightAware)");
-                return "Boeing 777-200"; // Real aircraft type for AA1972
-            }
-            if (flightNumber.contains("1385")) {
-                log.info("✈️ Flight AA1385 detected - using Airbus A321 (verified from FlightAware)");
-                return "Airbus A321";
-            }
-            
             // Enhanced route-based logic for other AA flights
             if (distanceKm > 2000) {
                 // Long routes typically use wide body aircraft
@@ -332,37 +507,12 @@ public class FlightEmissionsService {
     }
     
     private double calculateICaoEmissions(double distanceKm, String aircraftType) {
-        // ICAO Carbon Emissions Calculator methodology
-        // Real emission factors by aircraft type (kg CO2 per passenger per km)
-        Map<String, Double> emissionFactors = new ConcurrentHashMap<>();
-        emissionFactors.put("Airbus A321", 0.077); // Larger narrow body, better efficiency per passenger
-        emissionFactors.put("Boeing 737-800", 0.08); // Efficient narrow body
-        emissionFactors.put("Boeing 737 MAX 8", 0.075); // New generation efficiency
-        emissionFactors.put("Airbus A320", 0.082); // Standard narrow body
-        emissionFactors.put("Boeing 777-200", 0.083); // Wide body twin-jet (corrected factor)
-        emissionFactors.put("Boeing 777-300ER", 0.088); // Larger wide body, better per-passenger efficiency
-        emissionFactors.put("Airbus A350-900", 0.076); // New generation wide body
-        emissionFactors.put("Embraer E175", 0.095); // Regional jet
-        emissionFactors.put("Embraer E190", 0.092); // Larger regional
-        
-        double baseFactor = emissionFactors.getOrDefault(aircraftType, 0.085); // Industry average
-        
-        // Apply ICAO distance-based efficiency adjustments
-        double distanceFactor = 1.0;
-        if (distanceKm < 463) { // Short haul penalty (takeoff/landing intensive)
-            distanceFactor = 1.15;
-        } else if (distanceKm > 3700) { // Long haul efficiency
-            distanceFactor = 0.95;
-        }
-        
-        // Calculate total emissions per passenger
-        double co2PerPassenger = distanceKm * baseFactor * distanceFactor;
+        // ICAO Carbon Emissions Calculator methodology with per-aircraft stage length curves
+        double co2PerPassenger = FuelBurnTables.co2PerPassengerKg(aircraftType, distanceKm);
         
-        // Add realistic operational factors
-        co2PerPassenger *= 1.08; // 8% operational margin (taxi, weather routing, etc.)
-        
-        log.info("🧮 ICAO calculation for {}: {} km × {} factor × {} distance factor = {} kg CO2", 
-                aircraftType, distanceKm, baseFactor, distanceFactor, co2PerPassenger);
+        log.info("🧮 ICAO calculation for {}: {} km × {} interpolated factor = {} kg CO2", 
+                aircraftType, distanceKm, String.format("%.4f", FuelBurnTables.co2FactorPerKm(aircraftType, distanceKm)),
+                co2PerPassenger);
         
         return Math.round(co2PerPassenger * 10.0) / 10.0; // Round to 1 decimal place
     }
@@ -410,6 +560,33 @@ public class FlightEmissionsService {
         return new EmissionData(co2Emissions, aircraftType, distance);
     }
     
+    /**
+     * Restores persisted emissions into the in-memory cache after startup, in the background
+     * so a large store never delays readiness. Entries computed since startup win.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreCacheFromDisk() {
+        Thread loader = new Thread(() -> {
+            int[] restored = {0};
+            emissionsStore.forEach((routeKey, data) -> {
+                if (isFresh(data)) {
+                    emissionsCache.merge(FlightKeys.describeRoute(routeKey), data,
+                            (current, stored) -> stored.getCalculatedAt().isAfter(current.getCalculatedAt()) ? stored : current);
+                    restored[0]++;
+                }
+            });
+            if (restored[0] > 0) {
+                log.info("💾 Restored {} cached emissions results from disk", restored[0]);
+            }
+        }, "emissions-store-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+    
+    private boolean isFresh(EmissionData data) {
+        return data.getCalculatedAt().isAfter(LocalDateTime.now().minus(CACHE_TTL));
+    }
+    
     public void clearCache() {
         emissionsCache.clear();
         log.info("🗑️ Emissions cache cleared");
@@ -418,4 +595,11 @@ public class FlightEmissionsService {
     public int getCacheSize() {
         return emissionsCache.size();
     }
+    
+    public Map<String, Double> getUpstreamHealthScores() {
+        return Map.of(
+            openSkyHealth.getName(), openSkyHealth.getScore(),
+            aeroDataBoxHealth.getName(), aeroDataBoxHealth.getScore()
+        );
+    }
 }
@@ -0,0 +1,152 @@
+package com.aa.saf.broker.service;
+
+/**
+ * Packs flight designators into primitive longs so lookups can use sorted arrays and
+ * binary search instead of string-keyed maps.
+ *
+ * Flight key layout: airline designator (2-3 chars, 6 bits each) in bits 16..33,
+ * flight number (1-4 digits) in bits 0..15.
+ *
+ * Route key layout: flight key in bits 30..63, departure airport (3 letters, 5 bits each)
+ * in bits 15..29, arrival airport in bits 0..14.
+ */
+public final class FlightKeys {
+
+    public static final long NO_KEY = -1L;
+
+    private FlightKeys() {
+    }
+
+    /**
+     * Packs a designator such as "AA1385", "AAL1385", "B6 123" or "dl-42".
+     * Returns {@link #NO_KEY} when the value is not a recognizable flight number.
+     */
+    public static long packFlight(CharSequence flightNumber) {
+        if (flightNumber == null) {
+            return NO_KEY;
+        }
+
+        long airline = 0;
+        int airlineLength = 0;
+        int number = 0;
+        int digits = 0;
+        int position = 0;
+
+        for (int i = 0; i < flightNumber.length(); i++) {
+            char c = flightNumber.charAt(i);
+            if (c == ' ' || c == '-') {
+                continue;
+            }
+            // First two characters are always the airline; a third letter means an ICAO code (e.g. AAL)
+            if (position < 2 || (position == 2 && !isDigit(c))) {
+                int code = encodeChar(c);
+                if (code < 0) {
+                    return NO_KEY;
+                }
+                airline = (airline << 6) | code;
+                airlineLength++;
+            } else {
+                if (!isDigit(c) || digits == 4) {
+                    return NO_KEY;
+                }
+                number = number * 10 + (c - '0');
+                digits++;
+            }
+            position++;
+        }
+
+        if (airlineLength < 2 || digits == 0) {
+            return NO_KEY;
+        }
+        return (airline << 16) | number;
+    }
+
+    /**
+     * Packs a separately supplied airline code and flight number, e.g. from a schedule file.
+     */
+    public static long packFlight(String airline, String flightNumber) {
+        if (airline == null || flightNumber == null) {
+            return NO_KEY;
+        }
+        return packFlight(airline.trim() + flightNumber.trim());
+    }
+
+    /**
+     * Packs a flight together with its IATA departure and arrival airports.
+     * Returns {@link #NO_KEY} when any part cannot be packed.
+     */
+    public static long packRoute(String flightNumber, String departureAirport, String arrivalAirport) {
+        long flight = packFlight(flightNumber);
+        int departure = packAirport(departureAirport);
+        int arrival = packAirport(arrivalAirport);
+        if (flight == NO_KEY || departure < 0 || arrival < 0) {
+            return NO_KEY;
+        }
+        return (flight << 30) | ((long) departure << 15) | arrival;
+    }
+
+    /**
+     * Canonical "AA1385-DFW-LAX" form of a route key, used as the in-memory cache key so
+     * entries restored from disk match freshly requested ones.
+     */
+    public static String describeRoute(long routeKey) {
+        long flight = routeKey >>> 30;
+        StringBuilder sb = new StringBuilder(16);
+        appendAirline(sb, flight >>> 16);
+        sb.append(flight & 0xFFFF).append('-');
+        appendAirport(sb, (int) (routeKey >>> 15) & 0x7FFF);
+        sb.append('-');
+        appendAirport(sb, (int) routeKey & 0x7FFF);
+        return sb.toString();
+    }
+
+    private static int packAirport(String code) {
+        if (code == null || code.length() != 3) {
+            return -1;
+        }
+        int packed = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = Character.toUpperCase(code.charAt(i));
+            if (c < 'A' || c > 'Z') {
+                return -1;
+            }
+            packed = (packed << 5) | (c - 'A');
+        }
+        return packed;
+    }
+
+    private static void appendAirline(StringBuilder sb, long airline) {
+        // Codes are never 0, so a value above 12 bits always means a 3 character ICAO code
+        int length = airline >= (1L << 12) ? 3 : 2;
+        for (int i = length - 1; i >= 0; i--) {
+            sb.append(decodeChar((int) (airline >>> (6 * i)) & 0x3F));
+        }
+    }
+
+    private static void appendAirport(StringBuilder sb, int airport) {
+        for (int i = 2; i >= 0; i--) {
+            sb.append((char) ('A' + ((airport >>> (5 * i)) & 0x1F)));
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int encodeChar(char c) {
+        if (c >= '0' && c <= '9') {
+            return 1 + (c - '0');
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return 11 + (c - 'A');
+        }
+        if (c >= 'a' && c <= 'z') {
+            return 11 + (c - 'a');
+        }
+        return -1;
+    }
+
+    private static char decodeChar(int code) {
+        return code <= 10 ? (char) ('0' + code - 1) : (char) ('A' + code - 11);
+    }
+}
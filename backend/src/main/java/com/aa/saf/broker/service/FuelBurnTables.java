@@ -0,0 +1,139 @@
+package com.aa.saf.broker.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-aircraft fuel burn curves shared by emissions and SAF volume calculations.
+ *
+ * Each aircraft type has a small sorted table of stage length (km) to CO2 factor
+ * (kg CO2 per passenger per km). Short stages are penalized for takeoff and climb, very long
+ * stages for the fuel carried to fly them. A second table on the same stage lengths gives the
+ * liters of fuel uplifted per kg CO2, which is highest on short stages where the fixed reserve and
+ * taxi fuel are a large share of the uplift. Values between points are linearly interpolated
+ * and clamped at the ends. Lookups do not allocate.
+ */
+public final class FuelBurnTables {
+
+    // Taxi, weather routing and holding on top of the block burn
+    private static final double OPERATIONAL_MARGIN = 1.08;
+
+    // Stage length shapes, scaled by each aircraft's base factor
+    private static final double[] REGIONAL_KM = {200, 463, 1000, 2500};
+    private static final double[] REGIONAL_SHAPE = {1.25, 1.12, 1.00, 1.00};
+    private static final double[] REGIONAL_UPLIFT = {1.10, 1.05, 1.00, 1.00};
+    private static final double[] NARROW_BODY_KM = {200, 463, 1000, 2000, 3700, 6000};
+    private static final double[] NARROW_BODY_SHAPE = {1.30, 1.15, 1.03, 1.00, 0.97, 0.95};
+    private static final double[] NARROW_BODY_UPLIFT = {1.12, 1.06, 1.02, 1.00, 1.00, 1.00};
+    private static final double[] WIDE_BODY_KM = {500, 1500, 3700, 7000, 12000, 16000};
+    private static final double[] WIDE_BODY_SHAPE = {1.20, 1.05, 1.00, 0.95, 0.96, 1.00};
+    private static final double[] WIDE_BODY_UPLIFT = {1.06, 1.02, 1.00, 1.00, 1.00, 1.00};
+
+    private static final Map<String, Integer> INDEX;
+    private static final double[][] DISTANCE_KM;
+    private static final double[][] CO2_FACTOR;
+    private static final double[] FUEL_LITERS_PER_KG_CO2;
+    private static final double[][] FUEL_UPLIFT;
+    private static final int DEFAULT_TYPE;
+
+    static {
+        Definitions tables = new Definitions();
+        // Base factor (kg CO2 / passenger / km) and cruise fuel liters per kg CO2 for each type
+        tables.define("Airbus A321", NARROW_BODY_KM, NARROW_BODY_SHAPE, NARROW_BODY_UPLIFT, 0.077, 3.2);
+        tables.define("Boeing 737-800", NARROW_BODY_KM, NARROW_BODY_SHAPE, NARROW_BODY_UPLIFT, 0.080, 3.4);
+        tables.define("Boeing 737 MAX 8", NARROW_BODY_KM, NARROW_BODY_SHAPE, NARROW_BODY_UPLIFT, 0.075, 3.0);
+        tables.define("Airbus A320", NARROW_BODY_KM, NARROW_BODY_SHAPE, NARROW_BODY_UPLIFT, 0.082, 3.3);
+        tables.define("Boeing 777-200", WIDE_BODY_KM, WIDE_BODY_SHAPE, WIDE_BODY_UPLIFT, 0.083, 3.1);
+        tables.define("Boeing 777-300ER", WIDE_BODY_KM, WIDE_BODY_SHAPE, WIDE_BODY_UPLIFT, 0.088, 3.5);
+        tables.define("Airbus A350-900", WIDE_BODY_KM, WIDE_BODY_SHAPE, WIDE_BODY_UPLIFT, 0.076, 2.9);
+        tables.define("Embraer E175", REGIONAL_KM, REGIONAL_SHAPE, REGIONAL_UPLIFT, 0.095, 3.8);
+        tables.define("Embraer E190", REGIONAL_KM, REGIONAL_SHAPE, REGIONAL_UPLIFT, 0.092, 3.6);
+        DEFAULT_TYPE = tables.define("Industry average", NARROW_BODY_KM, NARROW_BODY_SHAPE, NARROW_BODY_UPLIFT, 0.085, 3.3);
+
+        // Flattened into arrays sized by the definitions above, so lookups stay allocation free
+        INDEX = Map.copyOf(tables.index);
+        DISTANCE_KM = tables.distances.toArray(new double[0][]);
+        CO2_FACTOR = tables.factors.toArray(new double[0][]);
+        FUEL_LITERS_PER_KG_CO2 = tables.fuelPerCo2.stream().mapToDouble(Double::doubleValue).toArray();
+        FUEL_UPLIFT = tables.fuelUplift.toArray(new double[0][]);
+    }
+
+    private FuelBurnTables() {
+    }
+
+    // Collects aircraft definitions while the tables are being built
+    private static final class Definitions {
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<double[]> distances = new ArrayList<>();
+        private final List<double[]> factors = new ArrayList<>();
+        private final List<Double> fuelPerCo2 = new ArrayList<>();
+        private final List<double[]> fuelUplift = new ArrayList<>();
+
+        int define(String aircraftType, double[] stageKm, double[] shape, double[] uplift,
+                   double baseFactor, double cruiseFuelPerCo2) {
+            int id = distances.size();
+            double[] co2 = new double[shape.length];
+            double[] fuel = new double[uplift.length];
+            for (int i = 0; i < shape.length; i++) {
+                co2[i] = shape[i] * baseFactor;
+                fuel[i] = uplift[i] * cruiseFuelPerCo2;
+            }
+            index.put(aircraftType, id);
+            distances.add(stageKm);
+            factors.add(co2);
+            fuelPerCo2.add(cruiseFuelPerCo2);
+            fuelUplift.add(fuel);
+            return id;
+        }
+    }
+
+    private static int typeId(String aircraftType) {
+        Integer id = aircraftType != null ? INDEX.get(aircraftType) : null;
+        return id != null ? id : DEFAULT_TYPE;
+    }
+
+    /**
+     * @return interpolated kg CO2 per passenger per km for the stage length, before operational margin
+     */
+    public static double co2FactorPerKm(String aircraftType, double distanceKm) {
+        int id = typeId(aircraftType);
+        return interpolate(DISTANCE_KM[id], CO2_FACTOR[id], distanceKm);
+    }
+
+    /**
+     * @return kg CO2 per passenger for a flight of the given length, including operational margin
+     */
+    public static double co2PerPassengerKg(String aircraftType, double distanceKm) {
+        return distanceKm * co2FactorPerKm(aircraftType, distanceKm) * OPERATIONAL_MARGIN;
+    }
+
+    /**
+     * @param distanceKm stage length, or 0 if unknown (the cruise rate is used)
+     * @return interpolated liters of fuel attributed per kg of CO2 emitted by this aircraft type
+     */
+    public static double fuelLitersPerKgCo2(String aircraftType, double distanceKm) {
+        int id = typeId(aircraftType);
+        if (distanceKm <= 0) {
+            return FUEL_LITERS_PER_KG_CO2[id];
+        }
+        return interpolate(DISTANCE_KM[id], FUEL_UPLIFT[id], distanceKm);
+    }
+
+    static double interpolate(double[] xs, double[] ys, double x) {
+        int last = xs.length - 1;
+        if (x <= xs[0]) {
+            return ys[0];
+        }
+        if (x >= xs[last]) {
+            return ys[last];
+        }
+        int i = 1;
+        while (xs[i] < x) {
+            i++;
+        }
+        double t = (x - xs[i - 1]) / (xs[i] - xs[i - 1]);
+        return ys[i - 1] + t * (ys[i] - ys[i - 1]);
+    }
+}
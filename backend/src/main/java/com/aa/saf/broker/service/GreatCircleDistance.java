@@ -0,0 +1,121 @@
+package com.aa.saf.broker.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Great-circle (Haversine) distance kernels.
+ *
+ * The batch API takes structure-of-arrays coordinates (one array per component, in degrees)
+ * so the inner loop streams over contiguous doubles. When the JDK Vector API module
+ * ({@code jdk.incubator.vector}) is present at runtime the batch kernel uses SIMD lanes,
+ * otherwise it falls back to the scalar loop. Both paths use the same formula and operation
+ * order, so results agree to within floating point rounding of the trig intrinsics.
+ *
+ * The SIMD kernel is compiled in the separate {@code vector} source set and loaded by name, so
+ * these sources build without the incubator module.
+ */
+public final class GreatCircleDistance {
+
+    private static final Logger log = LoggerFactory.getLogger(GreatCircleDistance.class);
+
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
+    static final double DEG_TO_RAD = Math.PI / 180.0;
+
+    private static final String VECTOR_KERNEL_CLASS = "com.aa.saf.broker.service.VectorizedGreatCircleDistance";
+
+    private static final BatchKernel VECTOR_KERNEL = detectVectorSupport();
+
+    /**
+     * A batch kernel with the same contract as {@link #distancesKm}, minus the bounds check.
+     */
+    public interface BatchKernel {
+        int laneCount();
+
+        void distancesKm(double[] lat1, double[] lon1, double[] lat2, double[] lon2, double[] out, int length);
+    }
+
+    private GreatCircleDistance() {
+    }
+
+    private static BatchKernel detectVectorSupport() {
+        if (!Boolean.parseBoolean(System.getProperty("saf.distance.vector.enabled", "true"))) {
+            return null;
+        }
+        try {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+                return null;
+            }
+            // Touch the kernel once so a broken/unsupported platform falls back to scalar up front
+            BatchKernel kernel = newVectorKernel();
+            return kernel.laneCount() > 1 ? kernel : null;
+        } catch (Throwable t) {
+            log.debug("Vector API unavailable, using scalar distance kernel: {}", t.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Loads the SIMD kernel regardless of the enable flag; for tests and the benchmark.
+     *
+     * @throws ReflectiveOperationException if the kernel is not on the classpath
+     */
+    public static BatchKernel newVectorKernel() throws ReflectiveOperationException {
+        return (BatchKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * @return true when batch calls are served by the SIMD kernel
+     */
+    public static boolean isVectorized() {
+        return VECTOR_KERNEL != null;
+    }
+
+    /**
+     * Distance in kilometers between two points given in degrees.
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = lat1 * DEG_TO_RAD;
+        double phi2 = lat2 * DEG_TO_RAD;
+        double sinDLat = Math.sin((phi2 - phi1) * 0.5);
+        double sinDLon = Math.sin((lon2 * DEG_TO_RAD - lon1 * DEG_TO_RAD) * 0.5);
+
+        double a = sinDLat * sinDLat + Math.cos(phi1) * Math.cos(phi2) * sinDLon * sinDLon;
+        double c = 2.0 * Math.atan2(Math.sqrt(a), Math.sqrt(1.0 - a));
+
+        return EARTH_RADIUS_KM * c;
+    }
+
+    /**
+     * Batch distances in kilometers. All input arrays are in degrees and must hold at least
+     * {@code length} elements; results are written to {@code out[0..length)}.
+     */
+    public static void distancesKm(double[] lat1, double[] lon1, double[] lat2, double[] lon2,
+                                   double[] out, int length) {
+        checkBounds(lat1, lon1, lat2, lon2, out, length);
+        if (VECTOR_KERNEL != null) {
+            VECTOR_KERNEL.distancesKm(lat1, lon1, lat2, lon2, out, length);
+        } else {
+            scalarDistancesKm(lat1, lon1, lat2, lon2, out, 0, length);
+        }
+    }
+
+    /**
+     * Scalar batch kernel; also used for the vector kernel's tail and by the benchmark baseline.
+     */
+    public static void scalarDistancesKm(double[] lat1, double[] lon1, double[] lat2, double[] lon2,
+                                         double[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            out[i] = distanceKm(lat1[i], lon1[i], lat2[i], lon2[i]);
+        }
+    }
+
+    private static void checkBounds(double[] lat1, double[] lon1, double[] lat2, double[] lon2,
+                                    double[] out, int length) {
+        if (length < 0 || lat1.length < length || lon1.length < length
+                || lat2.length < length || lon2.length < length || out.length < length) {
+            throw new IllegalArgumentException("Coordinate arrays shorter than batch length " + length);
+        }
+    }
+}
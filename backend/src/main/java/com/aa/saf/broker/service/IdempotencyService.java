@@ -0,0 +1,255 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.model.IdempotencyRecord;
+import com.aa.saf.broker.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Makes POST endpoints safe to retry with an Idempotency-Key header. The first request runs and
+ * its response is stored; a retry with the same key and body gets the stored response back
+ * without running the handler again.
+ *
+ * Keys are scoped to the caller, so one client cannot replay (or block) another client's request
+ * by guessing its key. Before the handler runs, an IN_PROGRESS row is inserted as a claim; the
+ * unique (scope, caller, key) constraint lets only one request through across all nodes. Completed
+ * responses are kept in a bounded in-memory LRU in front of the idempotency_records table, so
+ * replays on the same node never touch the database. Server errors (5xx) release the claim
+ * instead of being stored, so those requests can be retried for real.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String ANONYMOUS_CALLER = "anonymous";
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration retention;
+    private final Duration claimTimeout;
+    // Completed responses only; claims are never cached
+    private final Map<CacheKey, StoredResponse> recent;
+
+    private record CacheKey(String scope, String caller, String key) {}
+
+    private record StoredResponse(String requestHash, int statusCode, String body, LocalDateTime expiresAt) {
+        boolean isExpired() {
+            return expiresAt.isBefore(LocalDateTime.now());
+        }
+    }
+
+    public IdempotencyService(IdempotencyRecordRepository recordRepository, ObjectMapper objectMapper,
+                              @Value("${idempotency.retention-hours:24}") long retentionHours,
+                              @Value("${idempotency.claim-timeout-seconds:60}") long claimTimeoutSeconds,
+                              @Value("${idempotency.cache.max-entries:10000}") int maxEntries) {
+        this.recordRepository = recordRepository;
+        this.objectMapper = objectMapper;
+        this.retention = Duration.ofHours(retentionHours);
+        this.claimTimeout = Duration.ofSeconds(claimTimeoutSeconds);
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<CacheKey, StoredResponse>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, StoredResponse> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Who a key belongs to: the authenticated principal if there is one, otherwise the email the
+     * request was made for.
+     */
+    public static String callerOf(String userEmail) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "principal:" + authentication.getName();
+        }
+        if (userEmail != null && !userEmail.isBlank()) {
+            return "email:" + userEmail.trim().toLowerCase(Locale.ROOT);
+        }
+        return ANONYMOUS_CALLER;
+    }
+
+    /**
+     * Runs the handler once per (scope, caller, key). Retries with the same body replay the stored
+     * response; the same key with a different body gets 422, and a retry that arrives while
+     * the first request is still running (on any node) gets 409.
+     */
+    public ResponseEntity<?> execute(String scope, String caller, String key, Object request,
+                                     Supplier<ResponseEntity<?>> handler) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return error(HttpStatus.BAD_REQUEST, HEADER + " must be 1-" + MAX_KEY_LENGTH + " characters");
+        }
+        CacheKey cacheKey = new CacheKey(scope, caller, key);
+        String requestHash = hash(request);
+
+        StoredResponse cached = recent.get(cacheKey);
+        if (cached != null && !cached.isExpired()) {
+            return replay(cached, requestHash, key);
+        }
+
+        Long claimId = claim(cacheKey, requestHash);
+        if (claimId == null) {
+            // Someone else holds or finished this key; answer from what they left behind
+            Optional<IdempotencyRecord> existing = recordRepository.findByScopeAndCallerAndIdempotencyKey(scope, caller, key);
+            return existing.isPresent() ? answerExisting(cacheKey, existing.get(), requestHash) : inProgress();
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = handler.get();
+        } catch (RuntimeException e) {
+            release(claimId, key);
+            throw e;
+        }
+        if (response.getStatusCode().is5xxServerError()) {
+            release(claimId, key);
+        } else {
+            complete(cacheKey, claimId, requestHash, response);
+        }
+        return response;
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        recent.values().removeIf(StoredResponse::isExpired);
+        int purged = recordRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.info("🧹 Purged {} expired idempotency records", purged);
+        }
+    }
+
+    /**
+     * @return the id of our IN_PROGRESS claim, or null if another request holds or finished the key
+     */
+    private Long claim(CacheKey cacheKey, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        Optional<IdempotencyRecord> existing = recordRepository.findByScopeAndCallerAndIdempotencyKey(
+                cacheKey.scope(), cacheKey.caller(), cacheKey.key());
+        if (existing.isPresent()) {
+            IdempotencyRecord record = existing.get();
+            if (!record.getExpiresAt().isBefore(now)) {
+                return null;
+            }
+            if (record.getState() == IdempotencyRecord.State.IN_PROGRESS) {
+                // A claim whose request never finished (e.g. its node died); only one taker wins
+                if (recordRepository.takeOverAbandoned(record.getId(), requestHash, now.plus(claimTimeout), now) == 0) {
+                    return null;
+                }
+                log.warn("⚠️ Took over abandoned claim for {} {}", HEADER, cacheKey.key());
+                return record.getId();
+            }
+            // A finished response past retention that the purge has not removed yet
+            recordRepository.delete(record);
+        }
+        try {
+            return recordRepository.saveAndFlush(new IdempotencyRecord(cacheKey.scope(), cacheKey.caller(),
+                    cacheKey.key(), requestHash, now.plus(claimTimeout))).getId();
+        } catch (DataIntegrityViolationException e) {
+            return null;
+        }
+    }
+
+    private ResponseEntity<?> answerExisting(CacheKey cacheKey, IdempotencyRecord record, String requestHash) {
+        if (record.getState() == IdempotencyRecord.State.IN_PROGRESS) {
+            if (!record.getRequestHash().equals(requestHash)) {
+                return mismatch();
+            }
+            return inProgress();
+        }
+        StoredResponse stored = new StoredResponse(record.getRequestHash(), record.getStatusCode(),
+                record.getResponseBody(), record.getExpiresAt());
+        recent.put(cacheKey, stored);
+        return replay(stored, requestHash, cacheKey.key());
+    }
+
+    private void complete(CacheKey cacheKey, Long claimId, String requestHash, ResponseEntity<?> response) {
+        String body;
+        try {
+            body = response.getBody() != null ? objectMapper.writeValueAsString(response.getBody()) : null;
+        } catch (JsonProcessingException e) {
+            log.warn("⚠️ Could not store response for {} {}: {}", HEADER, cacheKey.key(), e.getMessage());
+            release(claimId, cacheKey.key());
+            return;
+        }
+        StoredResponse stored = new StoredResponse(requestHash, response.getStatusCode().value(), body,
+                LocalDateTime.now().plus(retention));
+        if (recordRepository.complete(claimId, stored.statusCode(), body, stored.expiresAt()) == 0) {
+            // The claim timed out and was taken over; that request's response is the canonical one
+            log.warn("⚠️ Claim for {} {} was taken over before the request finished", HEADER, cacheKey.key());
+            return;
+        }
+        recent.put(cacheKey, stored);
+    }
+
+    private void release(Long claimId, String key) {
+        try {
+            recordRepository.release(claimId);
+        } catch (RuntimeException e) {
+            // The claim expires on its own after the claim timeout
+            log.warn("⚠️ Could not release claim for {} {}: {}", HEADER, key, e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash, String key) {
+        if (!stored.requestHash().equals(requestHash)) {
+            return mismatch();
+        }
+        log.info("🔁 Replaying stored response for {} {}", HEADER, key);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.statusCode()).header(REPLAYED_HEADER, "true");
+        if (stored.body() == null) {
+            return builder.build();
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON).body(stored.body());
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+
+    private static ResponseEntity<Map<String, String>> mismatch() {
+        return error(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used with a different request");
+    }
+
+    private static ResponseEntity<Map<String, String>> inProgress() {
+        return error(HttpStatus.CONFLICT, "A request with this " + HEADER + " is already in progress");
+    }
+
+    private static ResponseEntity<Map<String, String>> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(Map.of("error", message));
+    }
+}
@@ -0,0 +1,134 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.model.ArchivedOrder;
+import com.aa.saf.broker.model.Certificate;
+import com.aa.saf.broker.model.Order;
+import com.aa.saf.broker.repository.ArchivedOrderRepository;
+import com.aa.saf.broker.repository.CertificateRepository;
+import com.aa.saf.broker.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps the hot orders table small by moving completed orders older than
+ * {@code order.archive.horizon-months} to orders_archive, with their certificates. Listing and
+ * analytics queries then scan only recent orders, however long the business has been running.
+ *
+ * Each batch is claimed with SKIP LOCKED and moved in one transaction, so several instances can
+ * archive concurrently and a crash never leaves an order in both tables or in neither. Point
+ * lookups (an order or certificate by id) fall back to the find* methods here on a hot miss.
+ */
+@Service
+public class OrderArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderArchiveService.class);
+
+    private final OrderRepository orderRepository;
+    private final CertificateRepository certificateRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final OrderCounters orderCounters;
+    private final OrderSearchIndex orderSearchIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${order.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${order.archive.horizon-months:12}")
+    private int horizonMonths;
+
+    @Value("${order.archive.batch-size:500}")
+    private int batchSize;
+
+    public OrderArchiveService(OrderRepository orderRepository, CertificateRepository certificateRepository,
+                               ArchivedOrderRepository archivedOrderRepository, OrderCounters orderCounters,
+                               OrderSearchIndex orderSearchIndex, PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.certificateRepository = certificateRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.orderCounters = orderCounters;
+        this.orderSearchIndex = orderSearchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${order.archive.interval-ms:86400000}",
+               fixedDelayString = "${order.archive.interval-ms:86400000}")
+    public void archiveColdOrders() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusMonths(horizonMonths);
+        long started = System.currentTimeMillis();
+        int total = 0;
+        int archived;
+        // Keep going while batches come back full
+        do {
+            archived = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            total += archived;
+        } while (archived == batchSize);
+
+        if (total > 0) {
+            log.info("🗄️ Archived {} orders created before {} in {}ms", total, cutoff.toLocalDate(),
+                    System.currentTimeMillis() - started);
+        }
+    }
+
+    /**
+     * @return the archived order as a detached entity; it must not be saved
+     */
+    public Optional<Order> findArchivedOrder(Long orderId) {
+        return archivedOrderRepository.findById(orderId).map(ArchivedOrder::toOrder);
+    }
+
+    /**
+     * @return the archived certificate, with its order, as a detached entity
+     */
+    public Optional<Certificate> findArchivedCertificate(Long certificateId) {
+        return archivedOrderRepository.findByCertificateId(certificateId).map(ArchivedOrder::toCertificate);
+    }
+
+    public Optional<Certificate> findArchivedCertificateByOrderId(Long orderId) {
+        return archivedOrderRepository.findById(orderId).map(ArchivedOrder::toCertificate);
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        List<Order> orders = orderRepository.claimArchivable(cutoff, PageRequest.of(0, batchSize));
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = orders.stream().map(Order::getId).toList();
+        Map<Long, Certificate> certificates = new HashMap<>();
+        for (Certificate certificate : certificateRepository.findByOrderIdIn(ids)) {
+            certificates.put(certificate.getOrder().getId(), certificate);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Order order : orders) {
+            // Ids are assigned, so persist directly; save() would merge and SELECT each row first
+            entityManager.persist(new ArchivedOrder(order, certificates.get(order.getId()), now));
+        }
+        entityManager.flush();
+        certificateRepository.deleteByOrderIdIn(ids);
+        orderRepository.deleteByIdIn(ids);
+
+        orderCounters.recordArchived(orders);
+        orderSearchIndex.recordArchived(ids);
+        return orders.size();
+    }
+}
@@ -0,0 +1,197 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.model.Order;
+import com.aa.saf.broker.model.Order.OrderStatus;
+import com.aa.saf.broker.repository.ArchivedOrderRepository;
+import com.aa.saf.broker.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory order statistics for the stats endpoints, updated as orders are created and change
+ * status so reads are O(1) instead of full-table COUNT/SUM queries.
+ *
+ * Updates are applied after the surrounding transaction commits, so rolled back orders are never
+ * counted. A periodic reconcile resets everything from the database to correct any drift (orders
+ * written by other nodes or outside these hooks).
+ *
+ * Archived orders are included in every figure. Their totals are loaded once at startup and then
+ * only move with {@link #recordArchived}, so the periodic reconcile only reads the hot table.
+ */
+@Component
+public class OrderCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderCounters.class);
+
+    private final LongAdder totalOrders = new LongAdder();
+    private final Map<OrderStatus, LongAdder> byStatus = new EnumMap<>(OrderStatus.class);
+    // Completed orders only, matching the repository's getTotal*Completed queries
+    private final DoubleAdder completedSafVolume = new DoubleAdder();
+    private final DoubleAdder completedRevenue = new DoubleAdder();
+    // Completed orders moved to the archive
+    private final LongAdder archivedOrders = new LongAdder();
+    private final DoubleAdder archivedSafVolume = new DoubleAdder();
+    private final DoubleAdder archivedRevenue = new DoubleAdder();
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    public OrderCounters() {
+        for (OrderStatus status : OrderStatus.values()) {
+            byStatus.put(status, new LongAdder());
+        }
+    }
+
+    public void recordCreated(Order order) {
+        OrderStatus status = order.getStatus();
+        double safVolume = order.getSafVolume();
+        double platformFee = feeOf(order);
+        afterCommit(() -> {
+            totalOrders.increment();
+            byStatus.get(status).increment();
+            if (status == OrderStatus.COMPLETED) {
+                completedSafVolume.add(safVolume);
+                completedRevenue.add(platformFee);
+            }
+        });
+    }
+
+    public void recordCreated(List<Order> orders) {
+        Map<OrderStatus, Long> created = new EnumMap<>(OrderStatus.class);
+        for (Order order : orders) {
+            created.merge(order.getStatus(), 1L, Long::sum);
+        }
+        afterCommit(() -> {
+            totalOrders.add(orders.size());
+            created.forEach((status, count) -> byStatus.get(status).add(count));
+        });
+    }
+
+    /**
+     * @param order the order's figures; only read when moving to COMPLETED
+     */
+    public void recordTransition(OrderStatus from, OrderStatus to, Order order) {
+        double safVolume = to == OrderStatus.COMPLETED ? order.getSafVolume() : 0;
+        double platformFee = to == OrderStatus.COMPLETED ? feeOf(order) : 0;
+        afterCommit(() -> {
+            byStatus.get(from).decrement();
+            byStatus.get(to).increment();
+            if (to == OrderStatus.COMPLETED) {
+                completedSafVolume.add(safVolume);
+                completedRevenue.add(platformFee);
+            }
+        });
+    }
+
+    /**
+     * Moves archived completed orders from the hot figures to the archive ones; the overall
+     * totals do not change.
+     */
+    public void recordArchived(List<Order> orders) {
+        double safVolume = 0;
+        double platformFee = 0;
+        for (Order order : orders) {
+            safVolume += order.getSafVolume();
+            platformFee += feeOf(order);
+        }
+        int count = orders.size();
+        double archivedVolume = safVolume;
+        double archivedFee = platformFee;
+        afterCommit(() -> {
+            totalOrders.add(-count);
+            byStatus.get(OrderStatus.COMPLETED).add(-count);
+            completedSafVolume.add(-archivedVolume);
+            completedRevenue.add(-archivedFee);
+            archivedOrders.add(count);
+            archivedSafVolume.add(archivedVolume);
+            archivedRevenue.add(archivedFee);
+        });
+    }
+
+    public long getTotalOrders() { return totalOrders.sum() + archivedOrders.sum(); }
+    public long getCount(OrderStatus status) {
+        long hot = byStatus.get(status).sum();
+        return status == OrderStatus.COMPLETED ? hot + archivedOrders.sum() : hot;
+    }
+    public double getCompletedSafVolume() { return completedSafVolume.sum() + archivedSafVolume.sum(); }
+    public double getCompletedRevenue() { return completedRevenue.sum() + archivedRevenue.sum(); }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadArchiveTotals() {
+        long count = archivedOrderRepository.count();
+        Double safVolume = archivedOrderRepository.getTotalSafVolume();
+        Double revenue = archivedOrderRepository.getTotalRevenue();
+        archivedOrders.reset();
+        archivedOrders.add(count);
+        archivedSafVolume.reset();
+        archivedSafVolume.add(safVolume != null ? safVolume : 0.0);
+        archivedRevenue.reset();
+        archivedRevenue.add(revenue != null ? revenue : 0.0);
+        log.info("📊 Loaded archive totals: {} orders", count);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${order.counters.reconcile-interval-ms:300000}",
+               fixedDelayString = "${order.counters.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long started = System.currentTimeMillis();
+        List<Object[]> statusCounts = orderRepository.countGroupedByStatus();
+        Double safVolume = orderRepository.getTotalSafVolumeCompleted();
+        Double revenue = orderRepository.getTotalRevenueCompleted();
+
+        // Not atomic with concurrent updates: an order committed mid-reconcile may be off by one
+        // until the next run
+        long total = 0;
+        for (LongAdder adder : byStatus.values()) {
+            adder.reset();
+        }
+        for (Object[] row : statusCounts) {
+            long count = ((Number) row[1]).longValue();
+            byStatus.get((OrderStatus) row[0]).add(count);
+            total += count;
+        }
+        totalOrders.reset();
+        totalOrders.add(total);
+        completedSafVolume.reset();
+        completedSafVolume.add(safVolume != null ? safVolume : 0.0);
+        completedRevenue.reset();
+        completedRevenue.add(revenue != null ? revenue : 0.0);
+
+        log.debug("📊 Order counters reconciled in {}ms: {} orders", System.currentTimeMillis() - started, total);
+    }
+
+    private static double feeOf(Order order) {
+        BigDecimal fee = order.getPlatformFeeUsd();
+        return fee != null ? fee.doubleValue() : 0.0;
+    }
+
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+}
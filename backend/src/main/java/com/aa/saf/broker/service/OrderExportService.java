@@ -0,0 +1,167 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.model.Order;
+import com.aa.saf.broker.repository.OrderRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes orders as NDJSON or CSV straight from a database cursor. Each row is written and then
+ * detached, so memory stays flat however many orders are exported.
+ */
+@Service
+public class OrderExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderExportService.class);
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final String CSV_HEADER = "id,userEmail,flightNumber,departureAirport,arrivalAirport,flightDate," +
+            "flightEmissions,safVolume,priceUsd,platformFeeUsd,status,createdAt,completedAt";
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getExtension() { return extension; }
+    }
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Streams matching orders (any filter may be null) to the output in id order.
+     *
+     * @return the number of orders written
+     */
+    @Transactional(readOnly = true)
+    public long export(Format format, Order.OrderStatus status, LocalDateTime from, LocalDateTime to,
+                       OutputStream out) throws IOException {
+        long started = System.currentTimeMillis();
+        long rows = 0;
+
+        try (Stream<Order> orders = orderRepository.streamForExport(status, from, to);
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            JsonGenerator json = null;
+            if (format == Format.NDJSON) {
+                // One object per line: newlines are written explicitly instead of the default space
+                json = JSON.createGenerator(writer).setRootValueSeparator(null);
+            }
+            if (format == Format.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+
+            Iterator<Order> iterator = orders.iterator();
+            while (iterator.hasNext()) {
+                Order order = iterator.next();
+                if (json != null) {
+                    writeJson(json, order);
+                    json.writeRaw('\n');
+                } else {
+                    writeCsv(writer, order);
+                }
+                entityManager.detach(order);
+
+                // Push each fetch-sized batch to the client as it arrives
+                if (++rows % OrderRepository.EXPORT_FETCH_SIZE == 0) {
+                    if (json != null) {
+                        json.flush();
+                    }
+                    writer.flush();
+                }
+            }
+            if (json != null) {
+                json.flush();
+            }
+        }
+
+        log.info("📤 Exported {} orders as {} in {}ms", rows, format, System.currentTimeMillis() - started);
+        return rows;
+    }
+
+    private void writeJson(JsonGenerator json, Order order) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", order.getId());
+        json.writeStringField("userEmail", order.getUserEmail());
+        json.writeStringField("flightNumber", order.getFlightNumber());
+        json.writeStringField("departureAirport", order.getDepartureAirport());
+        json.writeStringField("arrivalAirport", order.getArrivalAirport());
+        json.writeStringField("flightDate", toText(order.getFlightDate()));
+        json.writeNumberField("flightEmissions", order.getFlightEmissions());
+        json.writeNumberField("safVolume", order.getSafVolume());
+        json.writeNumberField("priceUsd", order.getPriceUsd());
+        json.writeNumberField("platformFeeUsd", order.getPlatformFeeUsd());
+        json.writeStringField("status", order.getStatus().name());
+        json.writeStringField("createdAt", toText(order.getCreatedAt()));
+        json.writeStringField("completedAt", toText(order.getCompletedAt()));
+        json.writeEndObject();
+    }
+
+    private void writeCsv(Writer writer, Order order) throws IOException {
+        writer.write(String.valueOf(order.getId()));
+        writeCsvField(writer, order.getUserEmail());
+        writeCsvField(writer, order.getFlightNumber());
+        writeCsvField(writer, order.getDepartureAirport());
+        writeCsvField(writer, order.getArrivalAirport());
+        writeCsvField(writer, toText(order.getFlightDate()));
+        writeCsvField(writer, String.valueOf(order.getFlightEmissions()));
+        writeCsvField(writer, String.valueOf(order.getSafVolume()));
+        writeCsvField(writer, toText(order.getPriceUsd()));
+        writeCsvField(writer, toText(order.getPlatformFeeUsd()));
+        writeCsvField(writer, order.getStatus().name());
+        writeCsvField(writer, toText(order.getCreatedAt()));
+        writeCsvField(writer, toText(order.getCompletedAt()));
+        writer.write('\n');
+    }
+
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(value);
+        }
+    }
+
+    private static String toText(LocalDateTime value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static String toText(BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
+}
@@ -0,0 +1,428 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.model.Order;
+import com.aa.saf.broker.model.Order.OrderStatus;
+import com.aa.saf.broker.model.User;
+import com.aa.saf.broker.repository.OrderRepository;
+import com.aa.saf.broker.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over order attributes for support searches: flight number, departure
+ * and arrival airport, the customer's company, status, and any fragment of the customer's email.
+ *
+ * Each term maps to a sorted {@code int[]} postings list of order ids; a query intersects the
+ * lists for all its terms starting from the shortest, galloping through the longer ones, so cost
+ * follows the rarest term rather than the number of orders. Emails are indexed as trigrams, which
+ * can over-match (every trigram present, but not contiguously), so email hits are re-checked
+ * against each order's stored address before they are counted or limited.
+ *
+ * Built from the database at startup and updated after commit as orders are created, change
+ * status and are archived; archived orders are not searchable. Company is looked up when the order is indexed; later company edits are not reflected.
+ */
+@Component
+public class OrderSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderSearchIndex.class);
+
+    public static final int MIN_EMAIL_FRAGMENT = 3;
+
+    private static final int BUILD_BATCH_SIZE = 10_000;
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    // Normalized email per order id, to confirm trigram hits
+    private final Map<Integer, String> emails = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Search result: the total number of matches and the ids of the newest {@code limit} of them,
+     * newest first.
+     */
+    public record Result(int totalMatches, List<Long> orderIds) {
+    }
+
+    // Sorted, duplicate-free order ids; appends are O(1) since new orders have the highest ids
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == 0 || ids[size - 1] < id) {
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return;
+            }
+            int insert = -at - 1;
+            ensureCapacity();
+            System.arraycopy(ids, insert, ids, insert + 1, size - insert);
+            ids[insert] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+                size--;
+            }
+        }
+
+        // Removes every id in the sorted {@code removed} array in one compacting pass
+        void removeAll(int[] removed) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (Arrays.binarySearch(removed, ids[i]) < 0) {
+                    ids[kept++] = ids[i];
+                }
+            }
+            size = kept;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+        }
+    }
+
+    public OrderSearchIndex(OrderRepository orderRepository, UserRepository userRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        Integer indexed = transactionTemplate.execute(status -> {
+            int count = 0;
+            List<Object[]> batch = new ArrayList<>(BUILD_BATCH_SIZE);
+            try (Stream<Object[]> rows = orderRepository.streamSearchDocuments()) {
+                for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                    batch.add(row);
+                    if (batch.size() == BUILD_BATCH_SIZE) {
+                        count += indexRows(batch);
+                        batch.clear();
+                    }
+                }
+            }
+            return count + indexRows(batch);
+        });
+        log.info("🔎 Order search index built in {}ms: {} orders, {} terms",
+                System.currentTimeMillis() - started, indexed, termCount());
+    }
+
+    /**
+     * Indexes a new order once the surrounding transaction commits.
+     */
+    public void recordCreated(Order order) {
+        recordCreated(List.of(order));
+    }
+
+    public void recordCreated(List<Order> orders) {
+        // Resolve companies now, inside the caller's transaction; one lookup per distinct email
+        Map<String, String> companies = new HashMap<>();
+        List<Object[]> rows = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            String email = order.getUserEmail();
+            String company = email == null ? null : companies.computeIfAbsent(email,
+                    e -> userRepository.findByEmail(e).map(User::getCompany).orElse(""));
+            rows.add(new Object[]{order.getId(), order.getFlightNumber(), order.getDepartureAirport(),
+                    order.getArrivalAirport(), email, company, order.getStatus()});
+        }
+        afterCommit(() -> indexRows(rows));
+    }
+
+    public void recordTransition(Long orderId, OrderStatus from, OrderStatus to) {
+        int id = docId(orderId);
+        if (id < 0) {
+            return;
+        }
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                Postings old = postings.get(statusTerm(from));
+                if (old != null) {
+                    old.remove(id);
+                }
+                postings.computeIfAbsent(statusTerm(to), t -> new Postings()).add(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Drops archived orders from the index once the archiving transaction commits. Removal has
+     * to visit every postings list, which is fine for the periodic archive batches.
+     */
+    public void recordArchived(List<Long> orderIds) {
+        int[] ids = orderIds.stream().mapToInt(OrderSearchIndex::docId).filter(id -> id >= 0).sorted().toArray();
+        if (ids.length == 0) {
+            return;
+        }
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                postings.values().forEach(list -> list.removeAll(ids));
+                postings.values().removeIf(list -> list.size == 0);
+                for (int id : ids) {
+                    emails.remove(id);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Finds orders matching every given criterion; null or blank criteria are ignored.
+     *
+     * @throws IllegalArgumentException if no criteria are given or the email fragment is shorter
+     *         than {@value #MIN_EMAIL_FRAGMENT} characters
+     */
+    public Result search(String flightNumber, String departureAirport, String arrivalAirport,
+                         String company, String emailFragment, OrderStatus status, int limit) {
+        Set<String> terms = new LinkedHashSet<>();
+        addTerm(terms, "flight:", normalizeFlight(flightNumber));
+        addTerm(terms, "from:", normalize(departureAirport));
+        addTerm(terms, "to:", normalize(arrivalAirport));
+        for (String word : words(company)) {
+            terms.add("company:" + word);
+        }
+        String email = normalize(emailFragment);
+        if (email != null) {
+            if (email.length() < MIN_EMAIL_FRAGMENT) {
+                throw new IllegalArgumentException("Email fragment must be at least " + MIN_EMAIL_FRAGMENT + " characters");
+            }
+            terms.addAll(trigrams(email));
+        }
+        if (status != null) {
+            terms.add(statusTerm(status));
+        }
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("At least one search criterion is required");
+        }
+
+        int[] matches;
+        int matchCount;
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list == null || list.size == 0) {
+                    return new Result(0, List.of());
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            Postings shortest = lists.get(0);
+            matches = Arrays.copyOf(shortest.ids, shortest.size);
+            matchCount = shortest.size;
+            for (int i = 1; i < lists.size() && matchCount > 0; i++) {
+                matchCount = intersect(matches, matchCount, lists.get(i));
+            }
+            if (email != null) {
+                matchCount = containingEmail(matches, matchCount, email);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Long> newest = new ArrayList<>(Math.min(limit, matchCount));
+        for (int i = matchCount - 1; i >= 0 && newest.size() < limit; i--) {
+            newest.add((long) matches[i]);
+        }
+        return new Result(matchCount, newest);
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keeps the ids in {@code matches[0..count)} that are also in {@code list}, compacting them to
+     * the front. Both are sorted, so each lookup gallops forward from the previous position.
+     *
+     * @return the number of ids kept
+     */
+    static int intersect(int[] matches, int count, Postings list) {
+        int[] ids = list.ids;
+        int size = list.size;
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < count && from < size; i++) {
+            int target = matches[i];
+            // Exponential probe for an upper bound, then binary search inside it
+            int step = 1;
+            int hi = from;
+            while (hi < size && ids[hi] < target) {
+                from = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            int at = Arrays.binarySearch(ids, from, Math.min(hi + 1, size), target);
+            if (at >= 0) {
+                matches[kept++] = target;
+                from = at + 1;
+            } else {
+                from = -at - 1;
+            }
+        }
+        return kept;
+    }
+
+    // Keeps the ids whose email really contains the fragment, not just all of its trigrams
+    private int containingEmail(int[] matches, int count, String fragment) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            String email = emails.get(matches[i]);
+            if (email != null && email.contains(fragment)) {
+                matches[kept++] = matches[i];
+            }
+        }
+        return kept;
+    }
+
+    // Rows of [id, flightNumber, departureAirport, arrivalAirport, userEmail, company, status]
+    private int indexRows(List<Object[]> rows) {
+        int indexed = 0;
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : rows) {
+                int id = docId((Long) row[0]);
+                if (id < 0) {
+                    continue;
+                }
+                Set<String> terms = new LinkedHashSet<>();
+                addTerm(terms, "flight:", normalizeFlight((String) row[1]));
+                addTerm(terms, "from:", normalize((String) row[2]));
+                addTerm(terms, "to:", normalize((String) row[3]));
+                String email = normalize((String) row[4]);
+                if (email != null) {
+                    terms.addAll(trigrams(email));
+                    emails.put(id, email);
+                }
+                for (String word : words((String) row[5])) {
+                    terms.add("company:" + word);
+                }
+                if (row[6] != null) {
+                    terms.add(statusTerm((OrderStatus) row[6]));
+                }
+                for (String term : terms) {
+                    postings.computeIfAbsent(term, t -> new Postings()).add(id);
+                }
+                indexed++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return indexed;
+    }
+
+    // Order ids come from a sequence and fit in an int for the life of this system; anything
+    // larger is left out of the index rather than wrapped
+    private static int docId(Long orderId) {
+        if (orderId == null || orderId < 0 || orderId > Integer.MAX_VALUE) {
+            log.warn("⚠️ Order id {} cannot be indexed for search", orderId);
+            return -1;
+        }
+        return orderId.intValue();
+    }
+
+    private static void addTerm(Set<String> terms, String field, String value) {
+        if (value != null) {
+            terms.add(field + value);
+        }
+    }
+
+    private static String statusTerm(OrderStatus status) {
+        return "status:" + status.name();
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // "AA 100" and "aa100" are the same flight
+    private static String normalizeFlight(String flightNumber) {
+        String value = normalize(flightNumber);
+        return value == null ? null : value.replace(" ", "");
+    }
+
+    private static List<String> words(String value) {
+        String normalized = normalize(value);
+        if (normalized == null) {
+            return List.of();
+        }
+        List<String> words = new ArrayList<>();
+        for (String word : normalized.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static Set<String> trigrams(String email) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + MIN_EMAIL_FRAGMENT <= email.length(); i++) {
+            grams.add("email:" + email.substring(i, i + MIN_EMAIL_FRAGMENT));
+        }
+        return grams;
+    }
+
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.model.Order;
+import com.aa.saf.broker.model.OutboxEvent;
+import com.aa.saf.broker.repository.OrderRepository;
+import com.aa.saf.broker.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Order writes that must be atomic with the notifications they trigger.
+ */
+@Service
+public class OrderService {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OrderCounters orderCounters;
+
+    @Autowired
+    private OrderSearchIndex orderSearchIndex;
+
+    /**
+     * Saves the order and queues its notification in one transaction; the email is sent later
+     * by {@link OutboxDispatcher}, so the caller only waits for the database write.
+     */
+    @Transactional
+    public Order saveWithNotification(Order order, OutboxEvent.EventType notification) {
+        Order saved = orderRepository.save(order);
+        outboxEventRepository.save(new OutboxEvent(notification, saved.getId()));
+        orderCounters.recordCreated(saved);
+        orderSearchIndex.recordCreated(saved);
+        return saved;
+    }
+}
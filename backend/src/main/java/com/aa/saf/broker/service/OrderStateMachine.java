@@ -0,0 +1,118 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.model.Order;
+import com.aa.saf.broker.model.Order.OrderStatus;
+import com.aa.saf.broker.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Moves orders through their lifecycle with conditional updates
+ * ({@code UPDATE ... WHERE id = ? AND status = ?}) instead of read-modify-write, so concurrent
+ * payment events (Stripe webhook, redirect, manual completion) never overwrite each other: exactly
+ * one caller wins each transition and the others see {@code false}.
+ *
+ * Claims (PAID, certificate generation) commit in their own short transaction, so they are
+ * visible to concurrent events straight away instead of after certificate generation. COMPLETED
+ * runs in the caller's transaction so it commits together with the certificate. Callers must not
+ * modify the order entity they hold afterwards; its version is now stale.
+ */
+@Service
+public class OrderStateMachine {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStateMachine.class);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderCounters orderCounters;
+
+    @Autowired
+    private OrderSearchIndex orderSearchIndex;
+
+    @Value("${order.certificate.claim-timeout-seconds:300}")
+    private long certificateClaimTimeoutSeconds;
+
+    /**
+     * @return true if this call moved the order from {@code from} to {@code to}, false if the
+     *         order was no longer in {@code from}
+     * @throws IllegalStateException if the transition is not allowed by {@link OrderStatus}
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean transition(Long orderId, OrderStatus from, OrderStatus to) {
+        if (!from.canTransitionTo(to)) {
+            throw new IllegalStateException("Order " + orderId + " cannot move from " + from + " to " + to);
+        }
+        // Whoever marks the order PAID also owns its certificate generation
+        LocalDateTime paidAt = to == OrderStatus.PAID ? LocalDateTime.now() : null;
+        boolean applied = orderRepository.transitionStatus(orderId, from, to, paidAt, paidAt) == 1;
+        if (applied) {
+            log.info("🔀 Order {}: {} -> {}", orderId, from, to);
+            // Completion adds the order's volume and fee to the stats, so read them back
+            Order order = to == OrderStatus.COMPLETED ? orderRepository.findById(orderId).orElse(null) : null;
+            if (to != OrderStatus.COMPLETED || order != null) {
+                orderCounters.recordTransition(from, to, order);
+            }
+            orderSearchIndex.recordTransition(orderId, from, to);
+        } else {
+            log.info("↔️ Order {} is no longer {}; {} already handled by another event", orderId, from, to);
+        }
+        return applied;
+    }
+
+    /**
+     * Claims payment for a PENDING or PROCESSING order, along with its certificate generation.
+     *
+     * @return true if this call marked the order PAID
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean markPaid(Long orderId) {
+        return transition(orderId, OrderStatus.PENDING, OrderStatus.PAID)
+                || transition(orderId, OrderStatus.PROCESSING, OrderStatus.PAID);
+    }
+
+    /**
+     * Must run in the transaction that saves the certificate, so an order is never COMPLETED
+     * without one.
+     *
+     * @return true if this call moved the order from PAID to COMPLETED
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean complete(Long orderId) {
+        return transition(orderId, OrderStatus.PAID, OrderStatus.COMPLETED);
+    }
+
+    /**
+     * Claims certificate generation for an order that is already PAID, e.g. a retry after a
+     * failed generation. A claim older than order.certificate.claim-timeout-seconds is assumed
+     * abandoned and can be taken over.
+     *
+     * @return true if this call owns certificate generation for the order
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean claimCertificate(Long orderId) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean claimed = orderRepository.claimCertificate(orderId, now,
+                now.minusSeconds(certificateClaimTimeoutSeconds)) == 1;
+        if (!claimed) {
+            log.info("↔️ Order {} is not PAID or its certificate is already being generated", orderId);
+        }
+        return claimed;
+    }
+
+    /**
+     * Gives up a certificate claim after a failed generation so the next retry can take it.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void releaseCertificateClaim(Long orderId) {
+        orderRepository.releaseCertificateClaim(orderId);
+    }
+}
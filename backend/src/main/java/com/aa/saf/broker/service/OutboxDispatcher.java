@@ -0,0 +1,148 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.model.Order;
+import com.aa.saf.broker.model.OutboxEvent;
+import com.aa.saf.broker.repository.OrderRepository;
+import com.aa.saf.broker.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Delivers queued order notifications in batches. Each batch is claimed with SKIP LOCKED in a
+ * short transaction that leases the events for {@code outbox.claim-lease-seconds}, so several
+ * instances can dispatch without sending an email twice and no row lock is held while mail is
+ * sent. Each result is then recorded in its own transaction. Failures are retried with
+ * exponential backoff until {@code outbox.max-attempts}, then marked FAILED; events leased by a
+ * dispatcher that died become due again when the lease runs out.
+ */
+@Service
+public class OutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OrderRepository orderRepository;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${outbox.retry-backoff-seconds:30}")
+    private long retryBackoffSeconds;
+
+    @Value("${outbox.retention-days:7}")
+    private int retentionDays;
+
+    // Must comfortably exceed the time to send one batch, or a slow batch could be claimed twice
+    @Value("${outbox.claim-lease-seconds:300}")
+    private long claimLeaseSeconds;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository, OrderRepository orderRepository,
+                            EmailService emailService, PlatformTransactionManager transactionManager) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.orderRepository = orderRepository;
+        this.emailService = emailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.dispatch-interval-ms:2000}")
+    public void dispatch() {
+        int claimed;
+        // Keep draining while batches come back full
+        do {
+            claimed = dispatchBatch();
+        } while (claimed == batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.cleanup-interval-ms:3600000}")
+    public void purgeSent() {
+        Integer purged = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteSentBefore(LocalDateTime.now().minusDays(retentionDays)));
+        if (purged != null && purged > 0) {
+            log.info("🧹 Purged {} delivered outbox events", purged);
+        }
+    }
+
+    private int dispatchBatch() {
+        List<OutboxEvent> events = transactionTemplate.execute(status -> claimBatch());
+        int failed = 0;
+
+        for (OutboxEvent event : events) {
+            try {
+                deliver(event);
+            } catch (Exception e) {
+                failed++;
+                recordFailure(event, e);
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxEventRepository.markSent(event.getId(), LocalDateTime.now()));
+        }
+
+        if (!events.isEmpty()) {
+            log.info("📬 Outbox batch: {} delivered, {} failed", events.size() - failed, failed);
+        }
+        return events.size();
+    }
+
+    // Locks due events, pushes them out of the due window for the lease, and commits straight away
+    private List<OutboxEvent> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = outboxEventRepository.claimDue(now, PageRequest.of(0, batchSize));
+        LocalDateTime leaseUntil = now.plusSeconds(claimLeaseSeconds);
+        for (OutboxEvent event : events) {
+            event.setNextAttemptAt(leaseUntil);
+        }
+        return events;
+    }
+
+    private void deliver(OutboxEvent event) throws Exception {
+        Optional<Order> order = orderRepository.findById(event.getOrderId());
+        if (order.isEmpty()) {
+            log.warn("⚠️ Dropping outbox event {}: order {} no longer exists", event.getId(), event.getOrderId());
+            return;
+        }
+        switch (event.getEventType()) {
+            case ORDER_CONFIRMATION -> emailService.deliverOrderConfirmationEmail(order.get());
+            case ORDER_STATUS_UPDATE -> emailService.deliverOrderStatusUpdateEmail(order.get());
+        }
+    }
+
+    private void recordFailure(OutboxEvent event, Exception e) {
+        int attempts = event.getAttempts() + 1;
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        String lastError = error.length() > 1000 ? error.substring(0, 1000) : error;
+
+        if (attempts >= maxAttempts) {
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxEventRepository.markFailed(event.getId(), attempts, lastError));
+            log.error("❌ Giving up on {} for order {} after {} attempts: {}",
+                    event.getEventType(), event.getOrderId(), attempts, error);
+            return;
+        }
+        // 30s, 60s, 120s, ... capped at an hour
+        Duration backoff = Duration.ofSeconds(retryBackoffSeconds << Math.min(attempts - 1, 20));
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoff.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff);
+        transactionTemplate.executeWithoutResult(status ->
+                outboxEventRepository.scheduleRetry(event.getId(), attempts, lastError, nextAttemptAt));
+        log.warn("⚠️ {} for order {} failed (attempt {}), retrying at {}: {}",
+                event.getEventType(), event.getOrderId(), attempts, nextAttemptAt, error);
+    }
+}
@@ -20,7 +20,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import jakarta.annotation.PostConstruct;
 import java.math.BigDecimal;
@@ -61,6 +64,15 @@ public class PaymentService {
     @Autowired
     private RegistryService registryService;
 
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
     @PostConstruct
     public void init() {
         Stripe.apiKey = stripeSecretKey;
@@ -143,7 +155,12 @@ public class PaymentService {
             }
 
             Payment payment = paymentOpt.get();
-            Order order = payment.getOrder();
+            Optional<Order> orderOpt = findOrder(payment);
+            if (orderOpt.isEmpty()) {
+                log.error("❌ Order {} not found for session: {}", payment.getOrderId(), sessionId);
+                return;
+            }
+            Order order = orderOpt.get();
 
             // Update payment status
             payment.setStatus(Payment.PaymentStatus.SUCCEEDED);
@@ -159,54 +176,20 @@ public class PaymentService {
 
             paymentRepository.save(payment);
 
-            // Update order status to PAID first
-            order.setStatus(Order.OrderStatus.PAID);
-            order.setCompletedAt(LocalDateTime.now());
-            orderRepository.save(order);
+            // Mark the order PAID first; if a concurrent event (webhook vs redirect) already did,
+            // it also owns certificate generation
+            if (!orderStateMachine.markPaid(order.getId())) {
+                log.info("↔️ Order {} was already paid by another payment event", order.getId());
+                return;
+            }
 
             // Send payment confirmation email
             emailService.sendPaymentConfirmationEmail(order, payment);
 
             // Now generate the certificate after successful payment
             try {
-                log.info("📄 Generating PDF certificate after successful payment for order: {}", order.getId());
-                String pdfUrl = pdfService.generateCertificatePdf(
-                    order.getId(), 
-                    order.getUserEmail(), 
-                    order.getSafVolume(), 
-                    order.getPriceUsd().doubleValue()
-                );
-                log.info("✅ PDF generated successfully: {}", pdfUrl);
-
-                log.info("📋 Creating certificate record...");
-                Certificate cert = new Certificate();
-                cert.setOrder(order);
-                cert.setPdfUri(pdfUrl);
-                cert.setIssueDate(LocalDateTime.now());
-                
-                // Generate certificate number - format: CERT-{ORDER_ID}-{SHORT_UUID}
-                String certNumber = String.format("CERT-%d-%s", order.getId(), 
-                        UUID.randomUUID().toString().substring(0, 8).toUpperCase());
-                cert.setCertNumber(certNumber);
-                log.info("📄 Generated certificate number: {}", certNumber);
-                
-                log.info("🌐 Registering certificate with external registry...");
-                String registryId = registryService.registerCertificate(order.getId(), pdfUrl);
-                log.info("✅ Certificate registered with ID: {}", registryId);
-                
-                cert.setRegistryId(registryId);
-                Certificate savedCert = certificateRepository.save(cert);
-                log.info("✅ Certificate saved with ID: {}", savedCert.getId());
-
-                // Update order to COMPLETED only after certificate is successfully generated
-                order.setStatus(Order.OrderStatus.COMPLETED);
-                orderRepository.save(order);
-
-                // Send certificate ready email
-                emailService.sendCertificateReadyEmail(order, pdfUrl);
-                
+                issueCertificate(order);
                 log.info("🎉 Order {} fully completed with certificate generated!", order.getId());
-
             } catch (Exception certError) {
                 log.error("❌ Error generating certificate for order {}: {}", order.getId(), certError.getMessage(), certError);
                 // Order remains in PAID status if certificate generation fails
@@ -220,6 +203,63 @@ public class PaymentService {
         }
     }
 
+    /**
+     * Generates, registers and saves the certificate for an order this caller has claimed (by
+     * marking it PAID or through {@link OrderStateMachine#claimCertificate}). The certificate row
+     * and COMPLETED commit in one transaction; on failure the claim is released for a retry.
+     */
+    private void issueCertificate(Order order) throws Exception {
+        try {
+            log.info("📄 Generating PDF certificate for order: {}", order.getId());
+            String pdfUrl = pdfService.generateCertificatePdf(
+                order.getId(), 
+                order.getUserEmail(), 
+                order.getSafVolume(), 
+                order.getPriceUsd().doubleValue()
+            );
+            log.info("✅ PDF generated successfully: {}", pdfUrl);
+
+            log.info("📋 Creating certificate record...");
+            Certificate cert = new Certificate();
+            cert.setPdfUri(pdfUrl);
+            cert.setIssueDate(LocalDateTime.now());
+            
+            // Generate certificate number - format: CERT-{ORDER_ID}-{SHORT_UUID}
+            String certNumber = String.format("CERT-%d-%s", order.getId(), 
+                    UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+            cert.setCertNumber(certNumber);
+            log.info("📄 Generated certificate number: {}", certNumber);
+            
+            log.info("🌐 Registering certificate with external registry...");
+            String registryId = registryService.registerCertificate(order.getId(), pdfUrl);
+            log.info("✅ Certificate registered with ID: {}", registryId);
+            cert.setRegistryId(registryId);
+
+            certificateTransaction().executeWithoutResult(status -> {
+                cert.setOrder(orderRepository.getReferenceById(order.getId()));
+                Certificate savedCert = certificateRepository.saveAndFlush(cert);
+                log.info("✅ Certificate saved with ID: {}", savedCert.getId());
+
+                // COMPLETED only together with the certificate
+                if (!orderStateMachine.complete(order.getId())) {
+                    throw new IllegalStateException("Order " + order.getId() + " is no longer PAID");
+                }
+            });
+
+            // Send certificate ready email
+            emailService.sendCertificateReadyEmail(order, pdfUrl);
+        } catch (Exception e) {
+            orderStateMachine.releaseCertificateClaim(order.getId());
+            throw e;
+        }
+    }
+
+    private TransactionTemplate certificateTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
     /**
      * Handle failed payment
      */
@@ -239,8 +279,15 @@ public class PaymentService {
         paymentRepository.save(payment);
 
         // Keep order in PENDING status for retry
-        Order order = payment.getOrder();
-        log.info("⏳ Order {} remains pending for payment retry", order.getId());
+        log.info("⏳ Order {} remains pending for payment retry", payment.getOrderId());
+    }
+
+    /**
+     * The payment's order, from the hot table or, once it has been archived, from orders_archive.
+     */
+    public Optional<Order> findOrder(Payment payment) {
+        return orderRepository.findById(payment.getOrderId())
+            .or(() -> orderArchiveService.findArchivedOrder(payment.getOrderId()));
     }
 
     /**
@@ -334,57 +381,26 @@ public class PaymentService {
             log.info("🔄 Order {} is already paid, checking certificate", orderId);
             Optional<Certificate> existingCert = certificateRepository.findByOrderId(orderId);
             if (existingCert.isPresent()) {
-                order.setStatus(Order.OrderStatus.COMPLETED);
-                orderRepository.save(order);
+                orderStateMachine.complete(orderId);
                 log.info("✅ Order {} marked as completed with existing certificate", orderId);
                 return;
             }
-        }
-        
-        try {
-            // Update order status to PAID first
-            order.setStatus(Order.OrderStatus.PAID);
-            order.setCompletedAt(LocalDateTime.now());
-            orderRepository.save(order);
+            // A PAID order without a certificate is a retry of a failed generation; only one retry
+            // may generate it, and not while the payment event that marked it PAID still is
+            if (!orderStateMachine.claimCertificate(orderId)) {
+                log.info("↔️ Certificate for order {} is already being generated", orderId);
+                return;
+            }
+        } else if (!orderStateMachine.markPaid(orderId)) {
+            log.info("↔️ Order {} was already paid by another payment event", orderId);
+            return;
+        } else {
             log.info("✅ Order {} marked as PAID for manual completion", orderId);
+        }
 
+        try {
             // Generate the certificate after payment
-            log.info("📄 Generating PDF certificate for manual payment completion, order: {}", order.getId());
-            String pdfUrl = pdfService.generateCertificatePdf(
-                order.getId(), 
-                order.getUserEmail(), 
-                order.getSafVolume(), 
-                order.getPriceUsd().doubleValue()
-            );
-            log.info("✅ PDF generated successfully: {}", pdfUrl);
-
-            log.info("📋 Creating certificate record...");
-            Certificate cert = new Certificate();
-            cert.setOrder(order);
-            cert.setPdfUri(pdfUrl);
-            cert.setIssueDate(LocalDateTime.now());
-            
-            // Generate certificate number - format: CERT-{ORDER_ID}-{SHORT_UUID}
-            String certNumber = String.format("CERT-%d-%s", order.getId(), 
-                    UUID.randomUUID().toString().substring(0, 8).toUpperCase());
-            cert.setCertNumber(certNumber);
-            log.info("📄 Generated certificate number: {}", certNumber);
-            
-            log.info("🌐 Registering certificate with external registry...");
-            String registryId = registryService.registerCertificate(order.getId(), pdfUrl);
-            log.info("✅ Certificate registered with ID: {}", registryId);
-            
-            cert.setRegistryId(registryId);
-            Certificate savedCert = certificateRepository.save(cert);
-            log.info("✅ Certificate saved with ID: {}", savedCert.getId());
-
-            // Update order to COMPLETED only after certificate is successfully generated
-            order.setStatus(Order.OrderStatus.COMPLETED);
-            orderRepository.save(order);
-
-            // Send certificate ready email
-            emailService.sendCertificateReadyEmail(order, pdfUrl);
-            
+            issueCertificate(order);
             log.info("🎉 Manual payment completion successful for order: {}", order.getId());
 
         } catch (Exception certError) {
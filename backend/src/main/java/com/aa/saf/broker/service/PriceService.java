@@ -1,6 +1,8 @@
 package com.aa.saf.broker.service;
 
 import com.aa.saf.broker.dto.PriceResponse;
+import com.aa.saf.broker.dto.ScenarioQuoteResponse;
+import com.aa.saf.broker.security.QuoteTokenService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,15 +11,19 @@ import org.springframework.web.reactive.function.client.WebClient;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class PriceService {
 
     private static final Logger log = LoggerFactory.getLogger(PriceService.class);
     private final WebClient webClient;
+    private final QuoteTokenService quoteTokenService;
 
     @Value("${pricing.api.url:}")
     private String pricingApiUrl;
@@ -42,8 +48,18 @@ public class PriceService {
 
     // Cache for pricing data to avoid repeated calculations
     private final Map<String, PriceData> priceCache = new ConcurrentHashMap<>();
+    private static final String CURRENT_PRICES_KEY = "current_prices";
+
+    private static final double PROCESSING_FEE_RATE = 0.035;
+    private static final double REGULATORY_FEE_RATE = 0.017;
+    private static final double DEFAULT_SAF_BLEND = 0.25; // 25% SAF blend
+    private static final double SAF_EMISSIONS_REDUCTION = 0.80; // SAF reduces lifecycle emissions by ~80%
+
+    // Snapshot versions, so a signed quote records which prices it was computed from
+    private static final AtomicLong SNAPSHOT_VERSIONS = new AtomicLong();
 
     public static class PriceData {
+        private final long version = SNAPSHOT_VERSIONS.incrementAndGet();
         private BigDecimal safPricePerLiter;
         private BigDecimal carbonCreditRate;
         private LocalDateTime lastUpdated;
@@ -55,52 +71,47 @@ public class PriceService {
         }
 
         // Getters
+        public long getVersion() { return version; }
         public BigDecimal getSafPricePerLiter() { return safPricePerLiter; }
         public BigDecimal getCarbonCreditRate() { return carbonCreditRate; }
         public LocalDateTime getLastUpdated() { return lastUpdated; }
         
-        public boolean isExpired() {
-            return lastUpdated.isBefore(LocalDateTime.now().minusMinutes(15)); // Will be made configurable
+        public boolean isExpired(Duration maxAge) {
+            return lastUpdated.isBefore(LocalDateTime.now().minus(maxAge));
         }
     }
 
-    public PriceService(WebClient webClient) {
+    public PriceService(WebClient webClient, QuoteTokenService quoteTokenService) {
         this.webClient = webClient;
+        this.quoteTokenService = quoteTokenService;
     }
 
     public PriceResponse calculateDetailedQuote(double flightEmissions, double distanceKm, String aircraftType) {
+        return calculateDetailedQuote(flightEmissions, distanceKm, aircraftType, getCurrentMarketPrices());
+    }
+
+    /**
+     * Prices a quote against a previously acquired snapshot, so several quotes
+     * (e.g. the legs of an itinerary) are guaranteed to use the same market prices.
+     */
+    public PriceResponse calculateDetailedQuote(double flightEmissions, double distanceKm, String aircraftType,
+                                                PriceData currentPrices) {
         log.info("💰 Calculating detailed SAF quote for {} kg CO2 emissions", flightEmissions);
         
-        // Get current market prices
-        PriceData currentPrices = getCurrentMarketPrices();
-        
         // Calculate SAF volume needed (industry standard conversion)
-        double safVolumeNeeded = calculateSafVolumeFromEmissions(flightEmissions, aircraftType);
+        double safVolumeNeeded = calculateSafVolumeFromEmissions(flightEmissions, distanceKm, aircraftType);
         
         // Calculate pricing components
-        BigDecimal baseCost = currentPrices.getSafPricePerLiter()
-                .multiply(BigDecimal.valueOf(safVolumeNeeded))
-                .setScale(2, RoundingMode.HALF_UP);
-        
-        BigDecimal carbonCredit = currentPrices.getCarbonCreditRate()
-                .multiply(BigDecimal.valueOf(flightEmissions))
-                .setScale(2, RoundingMode.HALF_UP);
-        
-        BigDecimal processingFee = baseCost.multiply(BigDecimal.valueOf(0.035))
-                .setScale(2, RoundingMode.HALF_UP);
-        
-        BigDecimal regulatoryFee = baseCost.multiply(BigDecimal.valueOf(0.017))
-                .setScale(2, RoundingMode.HALF_UP);
-        
-        // Volume discount for larger orders
-        BigDecimal volumeDiscount = calculateVolumeDiscount(safVolumeNeeded, baseCost);
-        
-        BigDecimal totalPrice = baseCost.add(carbonCredit).add(processingFee)
-                .add(regulatoryFee).subtract(volumeDiscount)
-                .setScale(2, RoundingMode.HALF_UP);
+        Pricing pricing = priceFor(safVolumeNeeded, carbonCreditFor(flightEmissions, currentPrices), currentPrices);
+        BigDecimal baseCost = pricing.baseCost();
+        BigDecimal carbonCredit = pricing.carbonCredit();
+        BigDecimal processingFee = pricing.processingFee();
+        BigDecimal regulatoryFee = pricing.regulatoryFee();
+        BigDecimal volumeDiscount = pricing.volumeDiscount();
+        BigDecimal totalPrice = pricing.totalPrice();
         
         // Calculate carbon reduction (SAF reduces emissions by ~80%)
-        double carbonReduction = flightEmissions * 0.80;
+        double carbonReduction = carbonReductionFor(flightEmissions);
         
         // Create detailed response
         PriceResponse response = new PriceResponse();
@@ -130,24 +141,145 @@ public class PriceService {
         return response;
     }
 
-    private PriceData getCurrentMarketPrices() {
-        String cacheKey = "current_prices";
+    /**
+     * Prices several SAF blend ratios for one flight in a single pass. Fuel volume and the price
+     * snapshot are evaluated once. Rows use the same pricing as {@link #calculateDetailedQuote}:
+     * the carbon credit and reduction cover the flight's emissions, and only the SAF costs depend
+     * on the blend, so the DEFAULT_SAF_BLEND row matches /api/quote. The result is informational
+     * and is not signed or reserved.
+     */
+    public ScenarioQuoteResponse calculateBlendScenarios(double flightEmissions, double distanceKm, String aircraftType,
+                                                        double[] blendRatios, PriceData currentPrices) {
+        log.info("💰 Calculating {} SAF blend scenarios for {} kg CO2 emissions", blendRatios.length, flightEmissions);
+        
+        double totalFuelVolume = flightEmissions * FuelBurnTables.fuelLitersPerKgCo2(aircraftType, distanceKm);
+        BigDecimal carbonCredit = carbonCreditFor(flightEmissions, currentPrices);
+        double carbonReduction = carbonReductionFor(flightEmissions);
+        
+        ScenarioQuoteResponse response = new ScenarioQuoteResponse();
+        response.setFlightEmissions(flightEmissions);
+        response.setAircraftType(aircraftType);
+        response.setDistance(distanceKm);
+        response.setTotalFuelVolume(Math.round(totalFuelVolume * 10.0) / 10.0);
+        response.setPricePerLiter(currentPrices.getSafPricePerLiter());
+        response.setCarbonCredit(carbonCredit);
+        response.setValidUntil(LocalDateTime.now().plusHours(1));
+        
+        for (double blendRatio : blendRatios) {
+            // Rounded like calculateSafVolumeFromEmissions
+            double safVolume = Math.round(totalFuelVolume * blendRatio * 10.0) / 10.0;
+            Pricing pricing = priceFor(safVolume, carbonCredit, currentPrices);
+            
+            ScenarioQuoteResponse.Scenario scenario = new ScenarioQuoteResponse.Scenario();
+            scenario.setBlendRatio(blendRatio);
+            scenario.setSafVolume(safVolume);
+            scenario.setBaseCost(pricing.baseCost());
+            scenario.setCarbonCredit(pricing.carbonCredit());
+            scenario.setProcessingFee(pricing.processingFee());
+            scenario.setRegulatoryFee(pricing.regulatoryFee());
+            scenario.setVolumeDiscount(pricing.volumeDiscount());
+            scenario.setTotalPrice(pricing.totalPrice());
+            scenario.setCarbonReduction(carbonReduction);
+            response.getScenarios().add(scenario);
+        }
+        return response;
+    }
+
+    private record Pricing(BigDecimal baseCost, BigDecimal carbonCredit, BigDecimal processingFee,
+                           BigDecimal regulatoryFee, BigDecimal volumeDiscount, BigDecimal totalPrice) {}
+
+    // Fee evaluation shared by quotes and blend scenarios
+    private Pricing priceFor(double safVolume, BigDecimal carbonCredit, PriceData prices) {
+        BigDecimal baseCost = prices.getSafPricePerLiter()
+                .multiply(BigDecimal.valueOf(safVolume))
+                .setScale(2, RoundingMode.HALF_UP);
+        
+        BigDecimal processingFee = baseCost.multiply(BigDecimal.valueOf(PROCESSING_FEE_RATE))
+                .setScale(2, RoundingMode.HALF_UP);
+        
+        BigDecimal regulatoryFee = baseCost.multiply(BigDecimal.valueOf(REGULATORY_FEE_RATE))
+                .setScale(2, RoundingMode.HALF_UP);
+        
+        // Volume discount for larger orders
+        BigDecimal volumeDiscount = calculateVolumeDiscount(safVolume, baseCost);
         
+        BigDecimal totalPrice = baseCost.add(carbonCredit).add(processingFee)
+                .add(regulatoryFee).subtract(volumeDiscount)
+                .setScale(2, RoundingMode.HALF_UP);
+        return new Pricing(baseCost, carbonCredit, processingFee, regulatoryFee, volumeDiscount, totalPrice);
+    }
+
+    // Credits cover the flight's full emissions, whatever share of its fuel is SAF
+    private static BigDecimal carbonCreditFor(double flightEmissions, PriceData prices) {
+        return prices.getCarbonCreditRate()
+                .multiply(BigDecimal.valueOf(flightEmissions))
+                .setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static double carbonReductionFor(double flightEmissions) {
+        return flightEmissions * SAF_EMISSIONS_REDUCTION;
+    }
+
+    /**
+     * Attaches a signed token carrying the quote's price, volume, snapshot version and expiry,
+     * which any node can verify when the order is placed. The token is bound to the quoted
+     * flight and route, so it is only accepted for an order on that flight.
+     */
+    public void signQuote(PriceResponse quote, long snapshotVersion,
+                          String flightNumber, String departureAirport, String arrivalAirport) {
+        QuoteTokenService.QuoteClaims claims = new QuoteTokenService.QuoteClaims(
+                quote.getValidUntil().atZone(ZoneId.systemDefault()).toInstant(),
+                snapshotVersion,
+                quote.getTotalPrice(),
+                quote.getRecommendedSafVolume(),
+                quote.getFlightEmissions(),
+                QuoteTokenService.routeKey(flightNumber, departureAirport, arrivalAirport));
+        quote.setQuoteToken(quoteTokenService.issue(claims));
+    }
+
+    /**
+     * @return the current market price snapshot (cached for the refresh interval)
+     */
+    public PriceData getPriceSnapshot() {
+        return getCurrentMarketPrices();
+    }
+
+    /**
+     * Reloads the market price snapshot when it is missing or will expire within the given
+     * window, so quotes keep hitting a warm cache.
+     *
+     * @return true if the snapshot was reloaded
+     */
+    public boolean refreshPriceSnapshot(Duration expiringWithin) {
+        PriceData cached = priceCache.get(CURRENT_PRICES_KEY);
+        if (cached != null && !cached.isExpired(Duration.ofMinutes(cacheRefreshMinutes).minus(expiringWithin))) {
+            return false;
+        }
+        loadMarketPrices();
+        return true;
+    }
+
+    private PriceData getCurrentMarketPrices() {
         // Check cache first
-        if (priceCache.containsKey(cacheKey)) {
-            PriceData cached = priceCache.get(cacheKey);
-            if (!cached.isExpired()) {
+        if (priceCache.containsKey(CURRENT_PRICES_KEY)) {
+            PriceData cached = priceCache.get(CURRENT_PRICES_KEY);
+            if (!cached.isExpired(Duration.ofMinutes(cacheRefreshMinutes))) {
                 log.debug("📋 Using cached pricing data");
                 return cached;
             }
         }
-        
+        return loadMarketPrices();
+    }
+
+    private PriceData loadMarketPrices() {
         // Try external API first (if configured and not in development mode)
         if (!developmentMode && pricingApiUrl != null && !pricingApiUrl.isEmpty()) {
             try {
                 log.info("🌐 Fetching real-time SAF market prices");
                 // This would call a real SAF pricing API in production
-                return fetchExternalPrices();
+                PriceData externalPrices = fetchExternalPrices();
+                priceCache.put(CURRENT_PRICES_KEY, externalPrices);
+                return externalPrices;
             } catch (Exception e) {
                 log.warn("⚠️ External pricing API failed, using market-based defaults: {}", e.getMessage());
             }
@@ -155,7 +287,7 @@ public class PriceService {
         
         // Use realistic market-based pricing as fallback
         PriceData marketPrices = getRealisticMarketPrices();
-        priceCache.put(cacheKey, marketPrices);
+        priceCache.put(CURRENT_PRICES_KEY, marketPrices);
         return marketPrices;
     }
 
@@ -378,32 +510,20 @@ public class PriceService {
         );
     }
 
-    private double calculateSafVolumeFromEmissions(double flightEmissions, String aircraftType) {
+    private double calculateSafVolumeFromEmissions(double flightEmissions, double distanceKm, String aircraftType) {
         // SAF Certificate calculation: Based on actual fuel volume needed for the flight
         // This is more realistic than just offsetting emissions
         // Average fuel consumption: ~3-4 liters per kg CO2 for commercial aviation
         
-        Map<String, Double> fuelConsumptionRates = Map.of(
-            "Airbus A321", 3.2,        // Liters of fuel per kg CO2 emitted
-            "Boeing 737-800", 3.4,     // Slightly less efficient  
-            "Boeing 737 MAX 8", 3.0,   // More efficient new generation
-            "Airbus A320", 3.3,        // Standard narrow body
-            "Boeing 777-200", 3.1,     // Wide body efficiency (corrected from 3.6)
-            "Boeing 777-300ER", 3.5,   // Larger wide body, better per-passenger
-            "Airbus A350-900", 2.9,    // Very efficient new generation
-            "Embraer E175", 3.8,       // Regional jets less efficient per kg CO2
-            "Embraer E190", 3.6
-        );
-        
-        double fuelPerCO2 = fuelConsumptionRates.getOrDefault(aircraftType, 3.3); // Default rate
+        // Liters of fuel per kg CO2 emitted for this stage length, from the same aircraft tables used for emissions
+        double fuelPerCO2 = FuelBurnTables.fuelLitersPerKgCo2(aircraftType, distanceKm);
         
         // Calculate fuel volume needed for this flight segment
         double totalFuelVolume = flightEmissions * fuelPerCO2;
         
         // SAF certificates typically cover 10-50% of fuel volume (blending requirements)
         // For environmental impact, assume 25% SAF blend requirement
-        double safBlendPercentage = 0.25; // 25% SAF blend
-        double safVolume = totalFuelVolume * safBlendPercentage;
+        double safVolume = totalFuelVolume * DEFAULT_SAF_BLEND;
         
         log.debug("⛽ Enhanced fuel calculation for {}: {} kg CO2 × {} L/kg = {} L total fuel, {} L SAF (25% blend)", 
                 aircraftType, flightEmissions, fuelPerCO2, String.format("%.1f", totalFuelVolume), 
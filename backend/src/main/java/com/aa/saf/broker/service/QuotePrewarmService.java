@@ -0,0 +1,127 @@
+package com.aa.saf.broker.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the most quoted routes warm.
+ *
+ * Quote traffic is counted per packed route key; counts are halved every run so they follow
+ * recent traffic. Each run refreshes the emissions of the top routes whose cache entries are
+ * about to expire, plus the market price snapshot, so users rarely pay for a cold lookup.
+ */
+@Service
+public class QuotePrewarmService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuotePrewarmService.class);
+
+    @Autowired
+    private FlightEmissionsService flightEmissionsService;
+
+    @Autowired
+    private PriceService priceService;
+
+    @Value("${quote.prewarm.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quote.prewarm.top-routes:500}")
+    private int topRoutes;
+
+    @Value("${quote.prewarm.max-tracked-routes:10000}")
+    private int maxTrackedRoutes;
+
+    @Value("${quote.prewarm.expiring-within-seconds:300}")
+    private long expiringWithinSeconds;
+
+    private final Map<Long, AtomicLong> routeHits = new ConcurrentHashMap<>();
+
+    /**
+     * Counts a quote for a route. New routes are ignored once the tracking table is full; decay
+     * frees slots as routes go cold.
+     */
+    public void recordQuote(String flightNumber, String departureAirport, String arrivalAirport) {
+        if (!enabled) {
+            return;
+        }
+        long routeKey = FlightKeys.packRoute(flightNumber, departureAirport, arrivalAirport);
+        if (routeKey == FlightKeys.NO_KEY) {
+            return;
+        }
+        AtomicLong hits = routeHits.get(routeKey);
+        if (hits == null) {
+            if (routeHits.size() >= maxTrackedRoutes) {
+                return;
+            }
+            hits = routeHits.computeIfAbsent(routeKey, key -> new AtomicLong());
+        }
+        hits.incrementAndGet();
+    }
+
+    @Scheduled(initialDelayString = "${quote.prewarm.interval-ms:60000}",
+               fixedDelayString = "${quote.prewarm.interval-ms:60000}")
+    public void prewarm() {
+        if (!enabled) {
+            return;
+        }
+        Duration window = Duration.ofSeconds(expiringWithinSeconds);
+        try {
+            priceService.refreshPriceSnapshot(window);
+        } catch (Exception e) {
+            log.warn("⚠️ Price snapshot pre-warm failed: {}", e.getMessage());
+        }
+
+        int refreshed = 0;
+        List<Long> hottest = getHottestRoutes(topRoutes);
+        for (long routeKey : hottest) {
+            String[] route = FlightKeys.describeRoute(routeKey).split("-");
+            try {
+                if (flightEmissionsService.refreshEmissions(route[0], route[1], route[2], window)) {
+                    refreshed++;
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ Pre-warm failed for {}: {}", String.join("-", route), e.getMessage());
+            }
+        }
+        if (refreshed > 0) {
+            log.info("🔥 Pre-warmed {} of the {} hottest routes", refreshed, hottest.size());
+        }
+
+        decay();
+    }
+
+    /**
+     * @return up to {@code limit} route keys, most quoted first
+     */
+    public List<Long> getHottestRoutes(int limit) {
+        List<Map.Entry<Long, Long>> counts = new ArrayList<>(routeHits.size());
+        routeHits.forEach((key, hits) -> counts.add(Map.entry(key, hits.get())));
+        counts.sort(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder()));
+
+        List<Long> hottest = new ArrayList<>(Math.min(limit, counts.size()));
+        for (int i = 0; i < counts.size() && i < limit; i++) {
+            hottest.add(counts.get(i).getKey());
+        }
+        return hottest;
+    }
+
+    // Halve every count and forget routes that have gone cold
+    private void decay() {
+        routeHits.entrySet().removeIf(entry -> entry.getValue().updateAndGet(hits -> hits >> 1) == 0);
+    }
+
+    public int getTrackedRouteCount() {
+        return routeHits.size();
+    }
+}
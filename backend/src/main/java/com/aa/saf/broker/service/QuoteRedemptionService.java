@@ -0,0 +1,124 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.model.QuoteRedemption;
+import com.aa.saf.broker.repository.QuoteRedemptionRepository;
+import com.aa.saf.broker.security.QuoteTokenService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Makes signed quote tokens single use. Each token's nonce is inserted into quote_redemptions
+ * when an order is placed against it; the primary key rejects a second insert, so a token
+ * cannot be spent twice even when the retries land on different nodes.
+ *
+ * Like a consumed reservation, a redeemed token stays spent if a single order then fails to
+ * save; the client requests a new quote. A failed bulk insert hands its tokens back with
+ * {@link #releaseAll}, since none of its orders were created.
+ */
+@Service
+public class QuoteRedemptionService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuoteRedemptionService.class);
+
+    // Keeps the IN list of the already-redeemed lookup well under database limits
+    private static final int CHUNK_SIZE = 1000;
+
+    private final QuoteRedemptionRepository redemptionRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public QuoteRedemptionService(QuoteRedemptionRepository redemptionRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.redemptionRepository = redemptionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @return true if this call spent the token, false if it had already been redeemed
+     */
+    public boolean redeem(QuoteTokenService.QuoteClaims claims) {
+        try {
+            redemptionRepository.saveAndFlush(toRedemption(claims));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            log.warn("⚠️ Rejected reuse of quote token {}", claims.getNonce());
+            return false;
+        }
+    }
+
+    /**
+     * Redeems many tokens with one lookup and one batched insert per chunk. A token that appears
+     * more than once is redeemed once.
+     *
+     * @return the nonces this call redeemed; tokens missing from it were already spent
+     */
+    public Set<String> redeemAll(List<QuoteTokenService.QuoteClaims> claims) {
+        Map<String, QuoteTokenService.QuoteClaims> byNonce = new LinkedHashMap<>();
+        for (QuoteTokenService.QuoteClaims claim : claims) {
+            byNonce.putIfAbsent(claim.getNonce(), claim);
+        }
+        List<QuoteTokenService.QuoteClaims> unique = new ArrayList<>(byNonce.values());
+
+        Set<String> redeemed = new HashSet<>();
+        for (int from = 0; from < unique.size(); from += CHUNK_SIZE) {
+            List<QuoteTokenService.QuoteClaims> chunk = unique.subList(from, Math.min(from + CHUNK_SIZE, unique.size()));
+            Set<String> spent = new HashSet<>(redemptionRepository.findRedeemed(
+                    chunk.stream().map(QuoteTokenService.QuoteClaims::getNonce).toList()));
+            List<QuoteTokenService.QuoteClaims> fresh = chunk.stream()
+                    .filter(claim -> !spent.contains(claim.getNonce()))
+                    .toList();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    redemptionRepository.saveAll(fresh.stream().map(this::toRedemption).toList());
+                    redemptionRepository.flush();
+                });
+                fresh.forEach(claim -> redeemed.add(claim.getNonce()));
+            } catch (DataIntegrityViolationException e) {
+                // Another request redeemed one of these since the lookup; settle them one by one
+                for (QuoteTokenService.QuoteClaims claim : fresh) {
+                    if (redeem(claim)) {
+                        redeemed.add(claim.getNonce());
+                    }
+                }
+            }
+        }
+        return redeemed;
+    }
+
+    /**
+     * Un-spends tokens whose orders were never saved, so they can be redeemed again.
+     */
+    public void releaseAll(List<String> nonces) {
+        int released = 0;
+        for (int from = 0; from < nonces.size(); from += CHUNK_SIZE) {
+            released += redemptionRepository.deleteByNonces(nonces.subList(from, Math.min(from + CHUNK_SIZE, nonces.size())));
+        }
+        log.info("🔄 Released {} quote tokens", released);
+    }
+
+    @Scheduled(fixedDelayString = "${quote-token.redemption.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        int purged = redemptionRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            log.info("🧹 Purged {} expired quote redemptions", purged);
+        }
+    }
+
+    private QuoteRedemption toRedemption(QuoteTokenService.QuoteClaims claims) {
+        return new QuoteRedemption(claims.getNonce(),
+                LocalDateTime.ofInstant(claims.getExpiresAt(), ZoneId.systemDefault()));
+    }
+}
@@ -0,0 +1,119 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.dto.PriceResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds issued quotes server-side until their validUntil, so orders can only be placed at a
+ * price we actually quoted. Expiry is driven by a {@link TimingWheel} ticked on a schedule.
+ */
+@Service
+public class QuoteReservationService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuoteReservationService.class);
+
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    private final TimingWheel<String> expiryWheel;
+
+    public static class Reservation {
+        private final String quoteId;
+        private final double flightEmissions;
+        private final double safVolume;
+        private final BigDecimal totalPrice;
+        private final LocalDateTime validUntil;
+        private TimingWheel.Timeout<String> timeout;
+
+        public Reservation(String quoteId, double flightEmissions, double safVolume, BigDecimal totalPrice, LocalDateTime validUntil) {
+            this.quoteId = quoteId;
+            this.flightEmissions = flightEmissions;
+            this.safVolume = safVolume;
+            this.totalPrice = totalPrice;
+            this.validUntil = validUntil;
+        }
+
+        // Getters
+        public String getQuoteId() { return quoteId; }
+        public double getFlightEmissions() { return flightEmissions; }
+        public double getSafVolume() { return safVolume; }
+        public BigDecimal getTotalPrice() { return totalPrice; }
+        public LocalDateTime getValidUntil() { return validUntil; }
+
+        public boolean isExpired() {
+            return !validUntil.isAfter(LocalDateTime.now());
+        }
+    }
+
+    public QuoteReservationService(@Value("${quote.reservation.tick-ms:1000}") long tickMillis) {
+        this.expiryWheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+    }
+
+    /**
+     * Reserves a quote until its validUntil and stamps it with the new quote ID.
+     */
+    public String reserve(PriceResponse quote) {
+        String quoteId = "Q-" + UUID.randomUUID();
+        LocalDateTime validUntil = quote.getValidUntil() != null ? quote.getValidUntil() : LocalDateTime.now().plusHours(1);
+        Reservation reservation = new Reservation(quoteId, quote.getFlightEmissions(),
+                quote.getRecommendedSafVolume(), quote.getTotalPrice(), validUntil);
+
+        reservations.put(quoteId, reservation);
+        reservation.timeout = expiryWheel.schedule(quoteId,
+                validUntil.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        quote.setQuoteId(quoteId);
+        return quoteId;
+    }
+
+    /**
+     * Takes a reservation for an order. Each quote can be consumed once.
+     *
+     * @return the reservation, or empty if the quote ID is unknown, used or expired
+     */
+    public Optional<Reservation> consume(String quoteId) {
+        if (quoteId == null) {
+            return Optional.empty();
+        }
+        Reservation reservation = reservations.remove(quoteId);
+        if (reservation == null) {
+            return Optional.empty();
+        }
+        expiryWheel.cancel(reservation.timeout);
+        // The wheel expires on tick boundaries, so check the exact deadline too
+        return reservation.isExpired() ? Optional.empty() : Optional.of(reservation);
+    }
+
+    /**
+     * Puts back a consumed reservation whose order was never saved. Ignored once it has expired.
+     */
+    public void release(Reservation reservation) {
+        if (reservation.isExpired()) {
+            return;
+        }
+        reservations.put(reservation.getQuoteId(), reservation);
+        reservation.timeout = expiryWheel.schedule(reservation.getQuoteId(),
+                reservation.getValidUntil().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    @Scheduled(fixedRateString = "${quote.reservation.tick-ms:1000}")
+    public void expireReservations() {
+        int expired = expiryWheel.advance(System.currentTimeMillis(), reservations::remove);
+        if (expired > 0) {
+            log.debug("⌛ Expired {} quote reservations, {} outstanding", expired, reservations.size());
+        }
+    }
+
+    public int getOutstandingCount() {
+        return reservations.size();
+    }
+}
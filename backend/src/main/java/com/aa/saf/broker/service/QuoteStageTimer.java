@@ -0,0 +1,86 @@
+package com.aa.saf.broker.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times the stages of a quote (emissions, price feed, pricing, conversion, serialization).
+ *
+ * Every stage is recorded in the {@code quote.stage} timer, tagged by stage, with p50/p95/p99
+ * and a percentile histogram so it shows up under /actuator/metrics. Per request, the stages
+ * are also rendered as a {@code Server-Timing} header value.
+ */
+@Component
+public class QuoteStageTimer {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+    private static final String METRIC_NAME = "quote.stage";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public QuoteStageTimer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Stages start() {
+        return new Stages();
+    }
+
+    public void record(String stage, long nanos) {
+        timers.computeIfAbsent(stage, name -> Timer.builder(METRIC_NAME)
+                .description("Time spent in each stage of a quote request")
+                .tag("stage", name)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stage timings for one quote request. Stages may finish on pool threads, so adding is synchronized.
+     */
+    public final class Stages {
+        private final long startNanos = System.nanoTime();
+        private final StringBuilder serverTiming = new StringBuilder();
+
+        private Stages() {
+        }
+
+        public <T> T time(String stage, Supplier<T> work) {
+            long begin = System.nanoTime();
+            try {
+                return work.get();
+            } finally {
+                add(stage, System.nanoTime() - begin);
+            }
+        }
+
+        public void add(String stage, long nanos) {
+            record(stage, nanos);
+            synchronized (serverTiming) {
+                if (serverTiming.length() > 0) {
+                    serverTiming.append(", ");
+                }
+                serverTiming.append(stage).append(";dur=").append(String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0));
+            }
+        }
+
+        /**
+         * Records the total and returns the Server-Timing header value.
+         */
+        public String finish() {
+            add("total", System.nanoTime() - startNanos);
+            synchronized (serverTiming) {
+                return serverTiming.toString();
+            }
+        }
+    }
+}
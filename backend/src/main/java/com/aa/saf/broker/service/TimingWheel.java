@@ -0,0 +1,161 @@
+package com.aa.saf.broker.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical hashed timing wheel.
+ *
+ * Four levels of 64 slots; level 0 slots are one tick wide, each higher level's slots cover a
+ * full rotation of the level below. Scheduling and cancelling are O(1) (intrusive doubly linked
+ * buckets), and advancing one tick touches only the current level 0 slot, plus one slot per
+ * higher level when a lower level wraps and its entries cascade down. Deadlines beyond the top
+ * level's range are parked in its farthest slot and re-filed as they cascade.
+ */
+public class TimingWheel<T> {
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final long startMillis;
+    @SuppressWarnings("unchecked")
+    private final Timeout<T>[] buckets = new Timeout[LEVELS * SLOTS];
+    private long currentTick;
+    private int size;
+
+    /**
+     * Handle for a scheduled entry, used to cancel it.
+     */
+    public static final class Timeout<T> {
+        private final T payload;
+        private final long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private int bucket = -1;
+
+        private Timeout(T payload, long deadlineTick) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getPayload() { return payload; }
+        public boolean isPending() { return bucket >= 0; }
+    }
+
+    public TimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+    }
+
+    /**
+     * Schedules a payload to expire at the first tick at or after the deadline. Deadlines in the
+     * past expire on the next tick.
+     */
+    public synchronized Timeout<T> schedule(T payload, long deadlineMillis) {
+        long deadlineTick = Math.floorDiv(deadlineMillis - startMillis + tickMillis - 1, tickMillis);
+        Timeout<T> timeout = new Timeout<>(payload, Math.max(deadlineTick, currentTick + 1));
+        link(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * @return true if the entry was still pending and is now cancelled
+     */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout == null || !timeout.isPending()) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves the wheel forward to {@code nowMillis}, handing every expired payload to the callback.
+     *
+     * @return number of expired entries
+     */
+    public synchronized int advance(long nowMillis, Consumer<T> onExpire) {
+        long targetTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        int expired = 0;
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            int bucket = (int) (currentTick & SLOT_MASK);
+            Timeout<T> timeout = buckets[bucket];
+            buckets[bucket] = null;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                timeout.bucket = -1;
+                size--;
+                expired++;
+                onExpire.accept(timeout.payload);
+                timeout = next;
+            }
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // When a level wraps, its entries move down into finer slots of the levels below
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if (((currentTick >>> (SLOT_BITS * (level - 1))) & SLOT_MASK) != 0) {
+                return;
+            }
+            int bucket = level * SLOTS + (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+            Timeout<T> timeout = buckets[bucket];
+            buckets[bucket] = null;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                link(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    private void link(Timeout<T> timeout) {
+        long ticks = timeout.deadlineTick - currentTick;
+        long placeTick = ticks < MAX_SPAN ? timeout.deadlineTick : currentTick + MAX_SPAN - 1;
+        long distance = placeTick - currentTick;
+
+        int level = 0;
+        while (level < LEVELS - 1 && distance >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int bucket = level * SLOTS + (int) ((placeTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+
+        Timeout<T> head = buckets[bucket];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[bucket] = timeout;
+        timeout.bucket = bucket;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+}
@@ -0,0 +1,94 @@
+package com.aa.saf.broker.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * Health score for one external upstream (e.g. OpenSky, AeroDataBox).
+ *
+ * The score is an exponentially weighted success rate in [0, 1]. Once it drops below the
+ * unhealthy threshold the upstream is skipped for a cooldown period; after that a single
+ * trial request is let through and its outcome decides whether the upstream is used again.
+ */
+public class UpstreamHealth {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamHealth.class);
+
+    private final String name;
+    private final double alpha;
+    private final double unhealthyBelow;
+    private final long cooldownNanos;
+
+    private double score = 1.0;
+    private boolean open;
+    private long openUntilNanos;
+    private boolean trialInFlight;
+
+    public UpstreamHealth(String name, double alpha, double unhealthyBelow, Duration cooldown) {
+        this.name = name;
+        this.alpha = alpha;
+        this.unhealthyBelow = unhealthyBelow;
+        this.cooldownNanos = cooldown.toNanos();
+    }
+
+    /**
+     * @return true if a request may be sent now. Callers that get true must report the
+     * outcome with {@link #recordSuccess()} or {@link #recordFailure()}, or call
+     * {@link #recordSkipped()} if they end up not sending it.
+     */
+    public synchronized boolean allowRequest() {
+        if (!open) {
+            return true;
+        }
+        if (System.nanoTime() - openUntilNanos < 0 || trialInFlight) {
+            return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+
+    public synchronized void recordSuccess() {
+        score = score * (1 - alpha) + alpha;
+        trialInFlight = false;
+        if (open) {
+            open = false;
+            score = Math.max(score, (1.0 + unhealthyBelow) / 2);
+            log.info("✅ Upstream {} recovered, resuming calls", name);
+        }
+    }
+
+    /**
+     * Hands back a permit from {@link #allowRequest()} that was not used, so a half-open
+     * upstream can give its trial to the next caller. The score is unchanged.
+     */
+    public synchronized void recordSkipped() {
+        trialInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        score = score * (1 - alpha);
+        trialInFlight = false;
+        if (score < unhealthyBelow) {
+            if (!open) {
+                log.warn("⚠️ Upstream {} unhealthy (score {}), skipping it for {} s",
+                        name, String.format("%.2f", score), Duration.ofNanos(cooldownNanos).toSeconds());
+            }
+            open = true;
+            openUntilNanos = System.nanoTime() + cooldownNanos;
+        }
+    }
+
+    public synchronized double getScore() {
+        return score;
+    }
+
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
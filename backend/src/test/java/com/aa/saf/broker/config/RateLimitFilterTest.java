@@ -0,0 +1,87 @@
+package com.aa.saf.broker.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitFilterTest {
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
+
+    @Mock
+    private FilterChain chain;
+
+    // IP tier: 2 requests; API key tier: 4. Neither refills during the test.
+    private final RateLimitFilter filter = new RateLimitFilter(true, false, 1, 2, 0.0001, 4, 0.0001, 1000, "issued-key, other-key");
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(request.getRemoteAddr()).thenReturn("10.0.0.1");
+    }
+
+    @Test
+    void unknownKeysAreLimitedByIp() throws Exception {
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        // A fresh made-up key per request must not get a fresh bucket
+        for (int i = 0; i < 3; i++) {
+            when(request.getHeader("X-API-Key")).thenReturn("made-up-" + i);
+            filter.doFilterInternal(request, response, chain);
+        }
+
+        verify(chain, times(2)).doFilter(request, response);
+        verify(response).setStatus(429);
+    }
+
+    @Test
+    void issuedKeyGetsTheHigherLimit() throws Exception {
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        when(request.getHeader("X-API-Key")).thenReturn("issued-key");
+        for (int i = 0; i < 5; i++) {
+            filter.doFilterInternal(request, response, chain);
+        }
+
+        verify(chain, times(4)).doFilter(request, response);
+        verify(response).setStatus(429);
+    }
+
+    @Test
+    void switchingIssuedKeysDoesNotRaiseTheIpLimit() throws Exception {
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        for (int i = 0; i < 6; i++) {
+            when(request.getHeader("X-API-Key")).thenReturn(i % 2 == 0 ? "issued-key" : "other-key");
+            filter.doFilterInternal(request, response, chain);
+        }
+
+        verify(chain, times(4)).doFilter(request, response);
+        verify(response, times(2)).setStatus(429);
+    }
+
+    @Test
+    void spoofedForwardedForEntriesDoNotGetFreshBuckets() throws Exception {
+        RateLimitFilter behindProxy = new RateLimitFilter(true, true, 1, 2, 0.0001, 4, 0.0001, 1000, "");
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        // The client varies the leading entry; our proxy appends the address it actually saw
+        for (int i = 0; i < 3; i++) {
+            when(request.getHeader("X-Forwarded-For")).thenReturn("198.51.100." + i + ", 203.0.113.7");
+            behindProxy.doFilterInternal(request, response, chain);
+        }
+
+        verify(chain, times(2)).doFilter(request, response);
+        verify(response).setStatus(429);
+    }
+}
@@ -0,0 +1,59 @@
+package com.aa.saf.broker.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void allowsBurstUpToCapacityThenRefills() {
+        AtomicLong clock = new AtomicLong(0);
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 1, 1000, clock::get);
+
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertEquals(SECOND, limiter.tryAcquire("10.0.0.1"));
+
+        // Other clients have their own bucket
+        assertEquals(0, limiter.tryAcquire("10.0.0.2"));
+
+        clock.set(SECOND);
+        assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+        assertTrue(limiter.tryAcquire("10.0.0.1") > 0);
+    }
+
+    @Test
+    void evictsOnlyFullyRefilledBuckets() {
+        AtomicLong clock = new AtomicLong(0);
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 1, 1000, clock::get);
+
+        limiter.tryAcquire("idle");
+        clock.set(SECOND / 2);
+        limiter.tryAcquire("busy");
+        limiter.tryAcquire("busy");
+
+        clock.set(SECOND);
+        limiter.evictIdle();
+        assertEquals(1, limiter.size());
+
+        // The busy client is still limited after the sweep
+        assertTrue(limiter.tryAcquire("busy") > 0);
+    }
+
+    @Test
+    void memoryStaysBoundedUnderManyKeys() {
+        AtomicLong clock = new AtomicLong(0);
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(5, 1, 256, clock::get);
+
+        for (int i = 0; i < 10_000; i++) {
+            limiter.tryAcquire("client-" + i);
+        }
+        assertTrue(limiter.size() <= 256);
+    }
+}
@@ -1,10 +1,24 @@
 package com.aa.saf.broker.controller;
 
+import com.aa.saf.broker.dto.BulkOrderRequest;
 import com.aa.saf.broker.dto.OrderRequest;
+import com.aa.saf.broker.dto.OrderSummary;
 import com.aa.saf.broker.model.Order;
+import com.aa.saf.broker.model.OutboxEvent;
+import com.aa.saf.broker.repository.ArchivedOrderRepository;
 import com.aa.saf.broker.repository.OrderRepository;
+import com.aa.saf.broker.security.QuoteTokenService;
+import com.aa.saf.broker.service.BulkOrderService;
 import com.aa.saf.broker.service.EmailService;
+import com.aa.saf.broker.service.IdempotencyService;
+import com.aa.saf.broker.service.OrderArchiveService;
+import com.aa.saf.broker.service.OrderCounters;
+import com.aa.saf.broker.service.OrderExportService;
+import com.aa.saf.broker.service.OrderSearchIndex;
+import com.aa.saf.broker.service.OrderService;
 import com.aa.saf.broker.service.PdfService;
+import com.aa.saf.broker.service.QuoteRedemptionService;
+import com.aa.saf.broker.service.QuoteReservationService;
 import com.aa.saf.broker.service.RegistryService;
 import com.aa.saf.broker.config.TestSecurityConfig;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -15,15 +29,26 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -53,6 +78,39 @@ class OrderControllerIntegrationTest {
     
     @MockBean
     private com.aa.saf.broker.service.FlightEmissionsService flightEmissionsService;
+    
+    @MockBean
+    private QuoteReservationService quoteReservationService;
+    
+    @MockBean
+    private QuoteTokenService quoteTokenService;
+    
+    @MockBean
+    private QuoteRedemptionService quoteRedemptionService;
+    
+    @MockBean
+    private OrderExportService orderExportService;
+    
+    @MockBean
+    private BulkOrderService bulkOrderService;
+    
+    @MockBean
+    private OrderService orderService;
+    
+    @MockBean
+    private IdempotencyService idempotencyService;
+    
+    @MockBean
+    private OrderCounters orderCounters;
+
+    @MockBean
+    private OrderSearchIndex orderSearchIndex;
+
+    @MockBean
+    private OrderArchiveService orderArchiveService;
+
+    @MockBean
+    private ArchivedOrderRepository archivedOrderRepository;
 
     private ObjectMapper objectMapper;
 
@@ -88,9 +146,13 @@ class OrderControllerIntegrationTest {
         orderRequest.setDepartureAirport("DFW");
         orderRequest.setArrivalAirport("LAX");
         orderRequest.setFlightDate(LocalDateTime.now().plusDays(1).toString());
+        orderRequest.setQuoteId("Q-1");
 
+        when(quoteReservationService.consume("Q-1")).thenReturn(Optional.of(new QuoteReservationService.Reservation(
+                "Q-1", 1000.0, 30.0, new BigDecimal("75.00"), LocalDateTime.now().plusHours(1))));
         Order savedOrder = createTestOrder("test@example.com", Order.OrderStatus.COMPLETED);
-        when(orderRepository.save(any(Order.class))).thenReturn(savedOrder);
+        when(orderService.saveWithNotification(any(Order.class), eq(OutboxEvent.EventType.ORDER_CONFIRMATION)))
+                .thenReturn(savedOrder);
 
         // When & Then
         mockMvc.perform(post("/api/orders")
@@ -103,6 +165,133 @@ class OrderControllerIntegrationTest {
                 .andExpect(jsonPath("$.status").value("COMPLETED"));
     }
 
+    @Test
+    void createOrder_AcceptsSignedQuoteToken() throws Exception {
+        // Given
+        OrderRequest orderRequest = new OrderRequest();
+        orderRequest.setUserEmail("test@example.com");
+        orderRequest.setFlightNumber("AA123");
+        orderRequest.setQuoteToken("signed-token");
+
+        QuoteTokenService.QuoteClaims claims = claims("nonce-1");
+        when(quoteTokenService.verify("signed-token", "AA123", null, null)).thenReturn(Optional.of(claims));
+        when(quoteRedemptionService.redeem(claims)).thenReturn(true);
+        Order savedOrder = createTestOrder("test@example.com", Order.OrderStatus.PENDING);
+        when(orderService.saveWithNotification(any(Order.class), any())).thenReturn(savedOrder);
+
+        // When & Then
+        mockMvc.perform(post("/api/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(orderRequest)))
+                .andExpect(status().isOk());
+        verify(orderService).saveWithNotification(argThat(order ->
+                order.getPriceUsd().compareTo(new BigDecimal("75.00")) == 0 && order.getSafVolume() == 30.0),
+                eq(OutboxEvent.EventType.ORDER_CONFIRMATION));
+        verify(quoteReservationService, never()).consume(any());
+    }
+
+    @Test
+    void createOrder_RejectsReusedQuoteToken() throws Exception {
+        // Given
+        OrderRequest orderRequest = new OrderRequest();
+        orderRequest.setUserEmail("test@example.com");
+        orderRequest.setFlightNumber("AA123");
+        orderRequest.setQuoteToken("signed-token");
+
+        QuoteTokenService.QuoteClaims claims = claims("nonce-1");
+        when(quoteTokenService.verify("signed-token", "AA123", null, null)).thenReturn(Optional.of(claims));
+        when(quoteRedemptionService.redeem(claims)).thenReturn(false);
+
+        // When & Then
+        mockMvc.perform(post("/api/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(orderRequest)))
+                .andExpect(status().isBadRequest());
+        verify(orderService, never()).saveWithNotification(any(Order.class), any());
+    }
+
+    @Test
+    void createOrders_AcceptsEachQuoteTokenOnce() throws Exception {
+        // Given: the same token twice, and one already spent by an earlier request
+        OrderRequest first = tokenOrder("token-a");
+        OrderRequest repeated = tokenOrder("token-a");
+        OrderRequest spent = tokenOrder("token-b");
+        BulkOrderRequest bulkRequest = new BulkOrderRequest();
+        bulkRequest.setOrders(List.of(first, repeated, spent));
+
+        when(quoteTokenService.verify("token-a", "AA123", "DFW", "LAX")).thenReturn(Optional.of(claims("nonce-a")));
+        when(quoteTokenService.verify("token-b", "AA123", "DFW", "LAX")).thenReturn(Optional.of(claims("nonce-b")));
+        when(quoteRedemptionService.redeemAll(anyList())).thenReturn(new HashSet<>(List.of("nonce-a")));
+        when(bulkOrderService.insertAll(anyList())).thenReturn(List.of(1L));
+
+        // When & Then
+        mockMvc.perform(post("/api/orders/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(bulkRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rejectedIndexes[0]").value(1))
+                .andExpect(jsonPath("$.rejectedIndexes[1]").value(2));
+        verify(bulkOrderService).insertAll(argThat(orders -> orders.size() == 1));
+    }
+
+    @Test
+    void createOrder_RejectsUnknownOrExpiredQuote() throws Exception {
+        // Given
+        OrderRequest orderRequest = new OrderRequest();
+        orderRequest.setUserEmail("test@example.com");
+        orderRequest.setFlightEmissions(1000.0);
+        orderRequest.setSafVolume(30.0);
+        orderRequest.setPriceUsd(new BigDecimal("1.00"));
+        orderRequest.setQuoteId("Q-expired");
+
+        when(quoteReservationService.consume("Q-expired")).thenReturn(Optional.empty());
+
+        // When & Then
+        mockMvc.perform(post("/api/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(orderRequest)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllOrders_ContinuesByCursorOnTheFilterQuery() throws Exception {
+        // Given: a full first page, so the listing hands back a cursor at its last row
+        LocalDateTime newest = LocalDateTime.of(2025, 3, 1, 12, 0);
+        List<OrderSummary> firstPage = List.of(summary(30L, newest), summary(20L, newest.minusHours(1)));
+        when(orderRepository.findSummariesByUserEmail(eq("test@example.com"), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(firstPage, PageRequest.of(0, 2), 3));
+        String cursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((newest.minusHours(1) + "|20").getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(get("/api/orders").param("size", "2").param("userEmail", "test@example.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value(cursor));
+
+        // When: the next page is requested by cursor; one row is left, so there is no further cursor
+        when(orderRepository.findPageAfterByUserEmail(eq("test@example.com"), eq(newest.minusHours(1)), eq(20L), any(Pageable.class)))
+                .thenReturn(List.of(summary(10L, newest.minusHours(2))));
+
+        // Then
+        mockMvc.perform(get("/api/orders").param("size", "2").param("userEmail", "test@example.com")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(10))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+        verify(orderRepository, never()).findPageAfter(any(), any(), any());
+    }
+
+    @Test
+    void getAllOrders_RejectsCursorWithAnotherSort() throws Exception {
+        String cursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("2025-03-01T12:00|20".getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(get("/api/orders").param("cursor", cursor).param("sortDir", "asc"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/orders").param("cursor", cursor).param("sortBy", "priceUsd"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(orderRepository);
+    }
+
     @Test
     void getOrderById_Success() throws Exception {
         // Given
@@ -141,4 +330,24 @@ class OrderControllerIntegrationTest {
         
         return order;
     }
+    
+    private QuoteTokenService.QuoteClaims claims(String nonce) {
+        return new QuoteTokenService.QuoteClaims(Instant.now().plusSeconds(600), 7L, new BigDecimal("75.00"),
+                30.0, 1000.0, 0L, nonce);
+    }
+    
+    private OrderRequest tokenOrder(String token) {
+        OrderRequest orderRequest = new OrderRequest();
+        orderRequest.setUserEmail("test@example.com");
+        orderRequest.setFlightNumber("AA123");
+        orderRequest.setDepartureAirport("DFW");
+        orderRequest.setArrivalAirport("LAX");
+        orderRequest.setQuoteToken(token);
+        return orderRequest;
+    }
+    
+    private OrderSummary summary(Long id, LocalDateTime createdAt) {
+        return new OrderSummary(id, "test@example.com", "AA123", "DFW", "LAX", null, 1000.0, 30.0,
+                new BigDecimal("75.00"), new BigDecimal("2.63"), Order.OrderStatus.PENDING, createdAt, null, null);
+    }
 }
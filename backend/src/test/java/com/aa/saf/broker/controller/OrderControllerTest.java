@@ -0,0 +1,81 @@
+package com.aa.saf.broker.controller;
+
+import com.aa.saf.broker.dto.BulkOrderRequest;
+import com.aa.saf.broker.dto.BulkOrderResponse;
+import com.aa.saf.broker.dto.OrderRequest;
+import com.aa.saf.broker.security.QuoteTokenService;
+import com.aa.saf.broker.service.BulkOrderService;
+import com.aa.saf.broker.service.QuoteRedemptionService;
+import com.aa.saf.broker.service.QuoteReservationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderControllerTest {
+
+    @Mock
+    private QuoteReservationService quoteReservationService;
+
+    @Mock
+    private QuoteTokenService quoteTokenService;
+
+    @Mock
+    private QuoteRedemptionService quoteRedemptionService;
+
+    @Mock
+    private BulkOrderService bulkOrderService;
+
+    @InjectMocks
+    private OrderController orderController;
+
+    @Test
+    void failedBulkInsertReleasesTheBatchQuotes() {
+        QuoteTokenService.QuoteClaims token = new QuoteTokenService.QuoteClaims(Instant.now().plusSeconds(600), 1L,
+                new BigDecimal("10.00"), 3.0, 10.0, 0L, "nonce-1");
+        QuoteReservationService.Reservation reservation = new QuoteReservationService.Reservation("Q-1", 3.0, 10.0,
+                new BigDecimal("12.00"), LocalDateTime.now().plusMinutes(10));
+        when(quoteTokenService.verify(eq("token-1"), any(), any(), any())).thenReturn(Optional.of(token));
+        when(quoteRedemptionService.redeemAll(anyList())).thenReturn(new HashSet<>(Set.of("nonce-1")));
+        when(quoteReservationService.consume("Q-1")).thenReturn(Optional.of(reservation));
+        when(bulkOrderService.insertAll(anyList())).thenThrow(new DataAccessResourceFailureException("connection reset"));
+
+        BulkOrderRequest request = new BulkOrderRequest();
+        request.setOrders(List.of(order("token-1", null), order(null, "Q-1")));
+        ResponseEntity<BulkOrderResponse> response = orderController.createOrders(request);
+
+        assertEquals(500, response.getStatusCode().value());
+        assertEquals(List.of(0, 1), response.getBody().getRejectedIndexes());
+        assertEquals(0, response.getBody().getCreated());
+        assertNotNull(response.getBody().getError());
+        verify(quoteRedemptionService).releaseAll(List.of("nonce-1"));
+        verify(quoteReservationService).release(reservation);
+    }
+
+    private static OrderRequest order(String quoteToken, String quoteId) {
+        OrderRequest order = new OrderRequest();
+        order.setUserEmail("travel@example.com");
+        order.setFlightNumber("AA100");
+        order.setDepartureAirport("DFW");
+        order.setArrivalAirport("ORD");
+        order.setQuoteToken(quoteToken);
+        order.setQuoteId(quoteId);
+        return order;
+    }
+}
@@ -0,0 +1,145 @@
+package com.aa.saf.broker.controller;
+
+import com.aa.saf.broker.dto.ItineraryQuoteRequest;
+import com.aa.saf.broker.dto.ItineraryQuoteResponse;
+import com.aa.saf.broker.dto.PriceResponse;
+import com.aa.saf.broker.dto.QuoteRequest;
+import com.aa.saf.broker.service.ConversionService;
+import com.aa.saf.broker.service.FlightEmissionsService;
+import com.aa.saf.broker.service.PriceService;
+import com.aa.saf.broker.service.QuotePrewarmService;
+import com.aa.saf.broker.service.QuoteReservationService;
+import com.aa.saf.broker.service.QuoteStageTimer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QuoteControllerTest {
+
+    @Mock
+    private ConversionService conversionService;
+
+    @Mock
+    private PriceService priceService;
+
+    @Mock
+    private FlightEmissionsService flightEmissionsService;
+
+    @Mock
+    private QuoteStageTimer stageTimer;
+
+    @Mock
+    private QuotePrewarmService prewarmService;
+
+    @Mock
+    private QuoteReservationService reservationService;
+
+    private ExecutorService quoteExecutor;
+
+    private QuoteController controller;
+
+    @BeforeEach
+    void setUp() {
+        quoteExecutor = Executors.newFixedThreadPool(4);
+        controller = new QuoteController(conversionService, priceService, flightEmissionsService, quoteExecutor,
+                stageTimer, prewarmService, reservationService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        quoteExecutor.shutdownNow();
+    }
+
+    @Test
+    void itineraryPricesEveryLegAgainstOneSnapshot() {
+        PriceService.PriceData prices = new PriceService.PriceData(new BigDecimal("2.50"), new BigDecimal("0.05"));
+        when(priceService.getPriceSnapshot()).thenReturn(prices);
+        when(priceService.calculateDetailedQuote(anyDouble(), anyDouble(), anyString(), any(PriceService.PriceData.class)))
+                .thenReturn(quote("100.00", 40.0));
+
+        ResponseEntity<ItineraryQuoteResponse> response = controller.getItineraryQuote(
+                itinerary(leg("AA100", "DFW", "ORD"), leg("AA50", "ORD", "LHR")));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().getLegs().size());
+        assertEquals(new BigDecimal("200.00"), response.getBody().getTotalPrice());
+        assertEquals(80.0, response.getBody().getTotalSafVolume());
+        verify(priceService, times(1)).getPriceSnapshot();
+    }
+
+    @Test
+    void itineraryRejectsTooManyOrMissingLegs() {
+        List<QuoteRequest> legs = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            legs.add(leg("AA" + i, "DFW", "ORD"));
+        }
+        ItineraryQuoteRequest tooMany = new ItineraryQuoteRequest();
+        tooMany.setLegs(legs);
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.getItineraryQuote(tooMany).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.getItineraryQuote(new ItineraryQuoteRequest()).getStatusCode());
+        verify(priceService, never()).getPriceSnapshot();
+    }
+
+    @Test
+    void itineraryLegWithoutFlightDataIsABadRequest() {
+        when(priceService.getPriceSnapshot()).thenReturn(
+                new PriceService.PriceData(new BigDecimal("2.50"), new BigDecimal("0.05")));
+        QuoteRequest incomplete = new QuoteRequest();
+        incomplete.setFlightNumber("AA100");
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.getItineraryQuote(itinerary(incomplete)).getStatusCode());
+    }
+
+    @Test
+    void itineraryUpstreamFailureIsAServerError() {
+        when(priceService.getPriceSnapshot()).thenThrow(new IllegalStateException("pricing feed down"));
+
+        ResponseEntity<ItineraryQuoteResponse> response = controller.getItineraryQuote(itinerary(leg("AA100", "DFW", "ORD")));
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    }
+
+    private static ItineraryQuoteRequest itinerary(QuoteRequest... legs) {
+        ItineraryQuoteRequest request = new ItineraryQuoteRequest();
+        request.setLegs(List.of(legs));
+        return request;
+    }
+
+    // Legs carry their own emissions, so no emissions lookup is needed
+    private static QuoteRequest leg(String flightNumber, String from, String to) {
+        QuoteRequest leg = new QuoteRequest();
+        leg.setFlightNumber(flightNumber);
+        leg.setDepartureAirport(from);
+        leg.setArrivalAirport(to);
+        leg.setFlightEmissions(150.0);
+        leg.setAircraftType("Airbus A321");
+        leg.setDistance(1200.0);
+        return leg;
+    }
+
+    private static PriceResponse quote(String totalPrice, double safVolume) {
+        PriceResponse quote = new PriceResponse();
+        quote.setTotalPrice(new BigDecimal(totalPrice));
+        quote.setRecommendedSafVolume(safVolume);
+        quote.setValidUntil(LocalDateTime.now().plusHours(1));
+        return quote;
+    }
+}
@@ -0,0 +1,80 @@
+package com.aa.saf.broker.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuoteTokenServiceTest {
+
+    private static final long ROUTE = QuoteTokenService.routeKey("AA100", "DFW", "LAX");
+
+    private final QuoteTokenService tokenService = new QuoteTokenService("testSecretKey123456789012345678901234567890");
+
+    @Test
+    void issuedTokenVerifiesWithSameClaims() {
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+        String token = tokenService.issue(new QuoteTokenService.QuoteClaims(
+                expiresAt, 42L, new BigDecimal("123.45"), 31.7, 165.0, QuoteTokenService.routeKey("AA100", "DFW", "LAX")));
+
+        QuoteTokenService.QuoteClaims claims = tokenService.verify(token, "aa 100", "dfw", "LAX").orElseThrow();
+        assertEquals(expiresAt.getEpochSecond(), claims.getExpiresAt().getEpochSecond());
+        assertEquals(42L, claims.getSnapshotVersion());
+        assertEquals(new BigDecimal("123.45"), claims.getTotalPrice());
+        assertEquals(31.7, claims.getSafVolume());
+        assertEquals(165.0, claims.getFlightEmissions());
+        assertEquals(32, claims.getNonce().length());
+    }
+
+    @Test
+    void eachTokenGetsItsOwnNonce() {
+        QuoteTokenService.QuoteClaims quote = new QuoteTokenService.QuoteClaims(
+                Instant.now().plusSeconds(3600), 1L, new BigDecimal("10.00"), 3.0, 10.0, ROUTE);
+
+        String first = tokenService.verify(tokenService.issue(quote), "AA100", "DFW", "LAX").orElseThrow().getNonce();
+        String second = tokenService.verify(tokenService.issue(quote), "AA100", "DFW", "LAX").orElseThrow().getNonce();
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void tokenIsOnlyValidForTheQuotedFlight() {
+        String token = tokenService.issue(new QuoteTokenService.QuoteClaims(
+                Instant.now().plusSeconds(3600), 1L, new BigDecimal("10.00"), 3.0, 10.0, ROUTE));
+
+        assertTrue(tokenService.verify(token, "AA101", "DFW", "LAX").isEmpty());
+        assertTrue(tokenService.verify(token, "AA100", "DFW", "ORD").isEmpty());
+        assertTrue(tokenService.verify(token, null, null, null).isEmpty());
+    }
+
+    @Test
+    void shortSecretIsRefused() {
+        assertThrows(IllegalStateException.class, () -> new QuoteTokenService("short"));
+    }
+
+    @Test
+    void tamperedOrForeignTokensAreRejected() {
+        String token = tokenService.issue(new QuoteTokenService.QuoteClaims(
+                Instant.now().plusSeconds(3600), 1L, new BigDecimal("500.00"), 100.0, 1000.0, ROUTE));
+        String cheaper = tokenService.issue(new QuoteTokenService.QuoteClaims(
+                Instant.now().plusSeconds(3600), 1L, new BigDecimal("1.00"), 100.0, 1000.0, ROUTE));
+
+        // Cheaper payload with the original signature
+        String spliced = cheaper.substring(0, cheaper.indexOf('.')) + token.substring(token.indexOf('.'));
+        assertEquals(Optional.empty(), tokenService.verify(spliced, "AA100", "DFW", "LAX"));
+
+        QuoteTokenService otherNodeKey = new QuoteTokenService("anotherSecretKey12345678901234567890123456");
+        assertEquals(Optional.empty(), otherNodeKey.verify(token, "AA100", "DFW", "LAX"));
+        assertEquals(Optional.empty(), tokenService.verify("not-a-token", "AA100", "DFW", "LAX"));
+        assertEquals(Optional.empty(), tokenService.verify(null, "AA100", "DFW", "LAX"));
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        String token = tokenService.issue(new QuoteTokenService.QuoteClaims(
+                Instant.now().minusSeconds(1), 1L, new BigDecimal("10.00"), 3.0, 10.0, ROUTE));
+        assertTrue(tokenService.verify(token, "AA100", "DFW", "LAX").isEmpty());
+    }
+}
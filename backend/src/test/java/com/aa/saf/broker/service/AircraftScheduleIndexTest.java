@@ -0,0 +1,62 @@
+package com.aa.saf.broker.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AircraftScheduleIndexTest {
+
+    private AircraftScheduleIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = new AircraftScheduleIndex();
+        index.load(new StringReader(String.join("\n",
+                "# comment",
+                "airline,flight_number,aircraft_type",
+                "AA,1972,Boeing 777-200",
+                "AA,1385,Airbus A321",
+                "B6,523,Airbus A320",
+                "DL,42,Airbus A320",
+                "DL,42,Airbus A350-900",
+                "not,a,flight",
+                "")));
+    }
+
+    @Test
+    void findAircraftType_ExactMatch() {
+        assertEquals("Boeing 777-200", index.findAircraftType("AA1972"));
+        assertEquals("Airbus A321", index.findAircraftType("AA1385"));
+        assertEquals("Airbus A320", index.findAircraftType("B6523"));
+    }
+
+    @Test
+    void findAircraftType_NormalizesDesignator() {
+        assertEquals("Airbus A321", index.findAircraftType("aa 1385"));
+        assertEquals("Airbus A321", index.findAircraftType("AA-1385"));
+    }
+
+    @Test
+    void findAircraftType_LaterRowsOverride() {
+        assertEquals("Airbus A350-900", index.findAircraftType("DL42"));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void findAircraftType_UnknownOrInvalidFlight() {
+        assertNull(index.findAircraftType("AA1973"));
+        assertNull(index.findAircraftType("UA1385"));
+        assertNull(index.findAircraftType("Unknown"));
+        assertNull(index.findAircraftType(null));
+    }
+
+    @Test
+    void packFlight_DistinguishesIataAndIcaoAirlines() {
+        assertNotEquals(FlightKeys.packFlight("AA1385"), FlightKeys.packFlight("AAL1385"));
+        assertEquals(FlightKeys.packFlight("AA", "1385"), FlightKeys.packFlight("AA1385"));
+        assertEquals(FlightKeys.NO_KEY, FlightKeys.packFlight("AA12345"));
+    }
+}
@@ -0,0 +1,107 @@
+package com.aa.saf.broker.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversionServiceTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    private ConversionService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.stopBatching();
+        }
+    }
+
+    @Test
+    void concurrentCallsShareOneBatchRequest() throws Exception {
+        start(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header("Content-Type", "application/json")
+                .body("[{\"safVolume\":1.5},{\"safVolume\":2.5},{\"safVolume\":3.5}]")
+                .build()), 3, 1000, 2);
+
+        CompletableFuture<Double> first = service.convertEmissionsAsync(100);
+        CompletableFuture<Double> second = service.convertEmissionsAsync(200);
+        CompletableFuture<Double> third = service.convertEmissionsAsync(300);
+
+        assertEquals(1.5, first.get(2, TimeUnit.SECONDS), 1e-9);
+        assertEquals(2.5, second.get(2, TimeUnit.SECONDS), 1e-9);
+        assertEquals(3.5, third.get(2, TimeUnit.SECONDS), 1e-9);
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void slowUpstreamCompletesWithDefaultAfterTimeout() throws Exception {
+        start(request -> Mono.never(), 64, 100, 2);
+
+        long started = System.nanoTime();
+        assertEquals(3.0, service.convertEmissionsAsync(100).get(2, TimeUnit.SECONDS), 1e-9);
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1), "answered by the batch timeout");
+    }
+
+    @Test
+    void inFlightBatchesAreBounded() throws Exception {
+        start(request -> Mono.never(), 1, 300, 1);
+
+        List<CompletableFuture<Double>> results = List.of(
+                service.convertEmissionsAsync(100),
+                service.convertEmissionsAsync(200),
+                service.convertEmissionsAsync(300));
+
+        for (CompletableFuture<Double> result : results) {
+            result.get(3, TimeUnit.SECONDS);
+        }
+        assertEquals(1, maxActive.get());
+    }
+
+    @Test
+    void shutdownAnswersQueuedAndLateCallers() throws Exception {
+        start(request -> Mono.never(), 1, 500, 1);
+        CompletableFuture<Double> sent = service.convertEmissionsAsync(100);
+        CompletableFuture<Double> waitingForSlot = service.convertEmissionsAsync(200);
+        // Let the flusher send the first batch and block on the second
+        Thread.sleep(100);
+
+        service.stopBatching();
+
+        assertTrue(sent.isDone());
+        assertEquals(6.0, waitingForSlot.getNow(-1.0), 1e-9);
+        CompletableFuture<Double> late = service.convertEmissionsAsync(300);
+        assertEquals(9.0, late.getNow(-1.0), 1e-9);
+    }
+
+    private void start(ExchangeFunction upstream, int maxBatchSize, long timeoutMillis, int maxInFlight) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    requests.incrementAndGet();
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    return upstream.exchange(request).doFinally(signal -> active.decrementAndGet());
+                })
+                .build();
+        service = new ConversionService(webClient);
+        ReflectionTestUtils.setField(service, "conversionBatchUrl", "http://conversion.test/batch");
+        ReflectionTestUtils.setField(service, "maxBatchSize", maxBatchSize);
+        ReflectionTestUtils.setField(service, "lingerMillis", 50L);
+        ReflectionTestUtils.setField(service, "batchTimeoutMillis", timeoutMillis);
+        ReflectionTestUtils.setField(service, "maxInFlight", maxInFlight);
+        service.startBatching();
+    }
+}
@@ -0,0 +1,99 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.service.FlightEmissionsService.EmissionData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmissionsDiskStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void appendedRecordsSurviveReopen() {
+        Path file = tempDir.resolve("emissions.dat");
+        long route = FlightKeys.packRoute("AA1385", "DFW", "LAX");
+
+        EmissionsDiskStore store = new EmissionsDiskStore(file, true, Duration.ofHours(1));
+        store.append(route, new EmissionData(4210.5, "Airbus A321", 1983.2));
+        store.close();
+
+        List<EmissionData> restored = new ArrayList<>();
+        List<Long> keys = new ArrayList<>();
+        EmissionsDiskStore reopened = new EmissionsDiskStore(file, true, Duration.ofHours(1));
+        reopened.forEach((key, data) -> {
+            keys.add(key);
+            restored.add(data);
+        });
+
+        assertEquals(List.of(route), keys);
+        assertEquals(4210.5, restored.get(0).getCo2Emissions());
+        assertEquals(1983.2, restored.get(0).getDistance());
+        assertEquals("Airbus A321", restored.get(0).getAircraftType());
+        assertEquals("AA1385-DFW-LAX", FlightKeys.describeRoute(keys.get(0)));
+    }
+
+    @Test
+    void growsPastInitialMapping() {
+        EmissionsDiskStore store = new EmissionsDiskStore(tempDir.resolve("grow.dat"), true, Duration.ofHours(1));
+        for (int i = 0; i < 3000; i++) {
+            store.append(FlightKeys.packRoute("DL" + i, "ATL", "JFK"), new EmissionData(i, "Airbus A320", 760));
+        }
+        assertEquals(3000, store.getRecordCount());
+
+        double[] last = {-1};
+        store.forEach((key, data) -> last[0] = data.getCo2Emissions());
+        assertEquals(2999, last[0]);
+    }
+
+    @Test
+    void stopsAppendingAtTheMappingLimit() {
+        Path file = tempDir.resolve("full.dat");
+        EmissionsDiskStore store = new EmissionsDiskStore(file, true, Duration.ofHours(1), 1500);
+        for (int i = 0; i < 2000; i++) {
+            store.append(FlightKeys.packRoute("UA" + i, "SFO", "EWR"), new EmissionData(i, "Boeing 777-200", 4130));
+        }
+        assertEquals(1500, store.getRecordCount());
+        store.close();
+
+        EmissionsDiskStore reopened = new EmissionsDiskStore(file, true, Duration.ofHours(1), 1500);
+        int[] count = {0};
+        reopened.forEach((key, data) -> count[0]++);
+        assertEquals(1500, count[0]);
+    }
+
+    @Test
+    void compactionKeepsNewestUnexpiredRecordPerRoute() {
+        EmissionsDiskStore store = new EmissionsDiskStore(tempDir.resolve("compact.dat"), true, Duration.ofHours(1));
+        long dfwLax = FlightKeys.packRoute("AA1385", "DFW", "LAX");
+        long jfkLhr = FlightKeys.packRoute("AA100", "JFK", "LHR");
+        store.append(dfwLax, new EmissionData(1, "Airbus A321", 1983));
+        store.append(dfwLax, new EmissionData(2, "Airbus A321", 1983));
+        store.append(jfkLhr, new EmissionData(3, "Boeing 777-300ER", 5540, LocalDateTime.now().minusHours(2)));
+
+        store.compact();
+
+        assertEquals(1, store.getRecordCount());
+        store.forEach((key, data) -> {
+            assertEquals(dfwLax, key);
+            assertEquals(2, data.getCo2Emissions());
+        });
+    }
+
+    @Test
+    void disabledStoreIgnoresWrites() {
+        Path file = tempDir.resolve("disabled.dat");
+        EmissionsDiskStore store = new EmissionsDiskStore(file, false, Duration.ofHours(1));
+        store.append(FlightKeys.packRoute("AA1385", "DFW", "LAX"), new EmissionData(1, "Airbus A321", 1983));
+        assertEquals(0, store.getRecordCount());
+        assertFalse(file.toFile().exists());
+    }
+}
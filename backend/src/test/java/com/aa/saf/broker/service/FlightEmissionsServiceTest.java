@@ -0,0 +1,86 @@
+package com.aa.saf.broker.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class FlightEmissionsServiceTest {
+
+    @Mock
+    private AircraftScheduleIndex aircraftScheduleIndex;
+
+    @Mock
+    private EmissionsDiskStore emissionsStore;
+
+    private final AtomicInteger openSkyCalls = new AtomicInteger();
+
+    private FlightEmissionsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new FlightEmissionsService();
+        ReflectionTestUtils.setField(service, "aircraftScheduleIndex", aircraftScheduleIndex);
+        ReflectionTestUtils.setField(service, "emissionsStore", emissionsStore);
+        ReflectionTestUtils.setField(service, "developmentMode", false);
+        ReflectionTestUtils.setField(service, "openSkyEnabled", true);
+        ReflectionTestUtils.setField(service, "aeroDataBoxEnabled", false);
+        ReflectionTestUtils.setField(service, "negativeCacheSeconds", 300L);
+        ReflectionTestUtils.setField(service, "healthCooldownSeconds", 30L);
+        service.initUpstreamHealth();
+    }
+
+    @Test
+    void flightWithoutLiveStateIsNotProbedAgain() {
+        stubOpenSky(() -> ClientResponse.create(HttpStatus.OK)
+                .header("Content-Type", "application/json")
+                .body("{\"time\":1,\"states\":null}")
+                .build());
+
+        assertNotNull(service.getFlightEmissions("AA100", "DFW", "LAX"));
+        // Both callsign formats were tried once
+        assertEquals(2, openSkyCalls.get());
+
+        // A different route for the same flight misses the emissions cache but hits the negative cache
+        assertNotNull(service.getFlightEmissions("AA100", "DFW", "ORD"));
+        assertEquals(2, openSkyCalls.get());
+    }
+
+    @Test
+    void upstreamErrorsTripTheHealthCheck() {
+        stubOpenSky(() -> {
+            throw new IllegalStateException(new IOException("connection refused"));
+        });
+
+        // Each lookup tries HTTP then HTTPS once, then falls back to the route calculation
+        assertNotNull(service.getFlightEmissions("AA100", "DFW", "LAX"));
+        assertNotNull(service.getFlightEmissions("AA100", "DFW", "ORD"));
+        assertEquals(4, openSkyCalls.get());
+
+        assertNotNull(service.getFlightEmissions("AA100", "DFW", "JFK"));
+        assertEquals(4, openSkyCalls.get(), "OpenSky is skipped once unhealthy");
+    }
+
+    private void stubOpenSky(Supplier<ClientResponse> response) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    openSkyCalls.incrementAndGet();
+                    return Mono.fromSupplier(response);
+                })
+                .build();
+        ReflectionTestUtils.setField(service, "webClient", webClient);
+    }
+}
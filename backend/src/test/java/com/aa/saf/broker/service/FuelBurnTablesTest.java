@@ -0,0 +1,60 @@
+package com.aa.saf.broker.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuelBurnTablesTest {
+
+    private static final double EPSILON = 1e-12;
+
+    @Test
+    void interpolate_HitsBreakpointsExactly() {
+        double[] xs = {200, 463, 1000, 2000};
+        double[] ys = {1.30, 1.15, 1.03, 1.00};
+
+        for (int i = 0; i < xs.length; i++) {
+            assertEquals(ys[i], FuelBurnTables.interpolate(xs, ys, xs[i]), EPSILON, "breakpoint " + xs[i]);
+        }
+    }
+
+    @Test
+    void interpolate_IsLinearBetweenAndClampedOutsideBreakpoints() {
+        double[] xs = {200, 463, 1000, 2000};
+        double[] ys = {1.30, 1.15, 1.03, 1.00};
+
+        assertEquals(1.09, FuelBurnTables.interpolate(xs, ys, 731.5), EPSILON);
+        assertEquals(1.015, FuelBurnTables.interpolate(xs, ys, 1500), EPSILON);
+        assertEquals(1.30, FuelBurnTables.interpolate(xs, ys, 50), EPSILON);
+        assertEquals(1.00, FuelBurnTables.interpolate(xs, ys, 9000), EPSILON);
+    }
+
+    @Test
+    void co2Factor_FollowsTheAircraftCurve() {
+        // A321: narrow-body shape scaled by 0.077
+        assertEquals(1.15 * 0.077, FuelBurnTables.co2FactorPerKm("Airbus A321", 463), EPSILON);
+        assertEquals(1.03 * 0.077, FuelBurnTables.co2FactorPerKm("Airbus A321", 1000), EPSILON);
+        assertEquals(1.00 * 0.077, FuelBurnTables.co2FactorPerKm("Airbus A321", 2000), EPSILON);
+        assertEquals(0.95 * 0.077, FuelBurnTables.co2FactorPerKm("Airbus A321", 12000), EPSILON);
+        // 777-300ER: wide-body shape scaled by 0.088
+        assertEquals(0.95 * 0.088, FuelBurnTables.co2FactorPerKm("Boeing 777-300ER", 7000), EPSILON);
+        assertEquals(1000 * 1.03 * 0.077 * 1.08, FuelBurnTables.co2PerPassengerKg("Airbus A321", 1000), 1e-9);
+    }
+
+    @Test
+    void fuelRate_FollowsTheStageLengthCurve() {
+        assertEquals(1.12 * 3.2, FuelBurnTables.fuelLitersPerKgCo2("Airbus A321", 200), EPSILON);
+        assertEquals(1.04 * 3.2, FuelBurnTables.fuelLitersPerKgCo2("Airbus A321", 731.5), EPSILON);
+        assertEquals(3.2, FuelBurnTables.fuelLitersPerKgCo2("Airbus A321", 3000), EPSILON);
+        assertEquals(1.10 * 3.8, FuelBurnTables.fuelLitersPerKgCo2("Embraer E175", 200), EPSILON);
+        // Unknown stage length uses the cruise rate
+        assertEquals(3.2, FuelBurnTables.fuelLitersPerKgCo2("Airbus A321", 0), EPSILON);
+    }
+
+    @Test
+    void unknownAircraftUsesIndustryAverage() {
+        assertEquals(0.085, FuelBurnTables.co2FactorPerKm("Concorde", 2000), EPSILON);
+        assertEquals(0.085, FuelBurnTables.co2FactorPerKm(null, 2000), EPSILON);
+        assertEquals(3.3, FuelBurnTables.fuelLitersPerKgCo2("Concorde", 5000), EPSILON);
+    }
+}
@@ -0,0 +1,81 @@
+package com.aa.saf.broker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GreatCircleDistanceTest {
+
+    private static final double TOLERANCE_KM = 1e-6;
+
+    @Test
+    void distanceKm_KnownRoute() {
+        // DFW -> LAX is roughly 1,983 km great circle
+        double distance = GreatCircleDistance.distanceKm(32.8975, -97.0378, 33.9425, -118.4081);
+
+        assertEquals(1983.2, distance, 1.0);
+    }
+
+    @Test
+    void distanceKm_SamePointIsZero() {
+        assertEquals(0.0, GreatCircleDistance.distanceKm(51.47, -0.4543, 51.47, -0.4543), TOLERANCE_KM);
+    }
+
+    @Test
+    void distancesKm_MatchesScalarForOddBatchSizes() {
+        // Sizes that are not lane multiples exercise the scalar tail of the vector kernel
+        for (int size : new int[]{0, 1, 3, 7, 64, 1001}) {
+            double[] lat1 = new double[size];
+            double[] lon1 = new double[size];
+            double[] lat2 = new double[size];
+            double[] lon2 = new double[size];
+            fillRandom(size, lat1, lon1, lat2, lon2);
+
+            double[] batch = new double[size];
+            GreatCircleDistance.distancesKm(lat1, lon1, lat2, lon2, batch, size);
+
+            for (int i = 0; i < size; i++) {
+                double expected = GreatCircleDistance.distanceKm(lat1[i], lon1[i], lat2[i], lon2[i]);
+                assertEquals(expected, batch[i], TOLERANCE_KM, "route " + i + " of batch " + size);
+            }
+        }
+    }
+
+    @Test
+    void distancesKm_VectorKernelMatchesScalarKernel() throws ReflectiveOperationException {
+        int size = 4099;
+        double[] lat1 = new double[size];
+        double[] lon1 = new double[size];
+        double[] lat2 = new double[size];
+        double[] lon2 = new double[size];
+        fillRandom(size, lat1, lon1, lat2, lon2);
+
+        double[] scalar = new double[size];
+        double[] vector = new double[size];
+        GreatCircleDistance.scalarDistancesKm(lat1, lon1, lat2, lon2, scalar, 0, size);
+        GreatCircleDistance.newVectorKernel().distancesKm(lat1, lon1, lat2, lon2, vector, size);
+
+        assertArrayEquals(scalar, vector, TOLERANCE_KM);
+    }
+
+    @Test
+    void distancesKm_RejectsShortArrays() {
+        double[] coords = new double[2];
+        double[] out = new double[1];
+
+        assertThrows(IllegalArgumentException.class,
+                () -> GreatCircleDistance.distancesKm(coords, coords, coords, coords, out, 2));
+    }
+
+    private static void fillRandom(int size, double[] lat1, double[] lon1, double[] lat2, double[] lon2) {
+        SplittableRandom random = new SplittableRandom(size);
+        for (int i = 0; i < size; i++) {
+            lat1[i] = random.nextDouble(-89, 89);
+            lon1[i] = random.nextDouble(-180, 180);
+            lat2[i] = random.nextDouble(-89, 89);
+            lon2[i] = random.nextDouble(-180, 180);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.model.IdempotencyRecord;
+import com.aa.saf.broker.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final String CALLER = "email:alice@example.com";
+
+    @Mock
+    private IdempotencyRecordRepository recordRepository;
+
+    // The idempotency_records table, keyed like its unique constraint
+    private final Map<String, IdempotencyRecord> table = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicInteger handlerRuns = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(recordRepository.findByScopeAndCallerAndIdempotencyKey(anyString(), anyString(), anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(table.get(
+                        rowKey(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)))));
+        lenient().when(recordRepository.saveAndFlush(any(IdempotencyRecord.class))).thenAnswer(invocation -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            record.setId(ids.incrementAndGet());
+            if (table.putIfAbsent(rowKey(record.getScope(), record.getCaller(), record.getIdempotencyKey()), record) != null) {
+                throw new DataIntegrityViolationException("uk_idempotency_scope_caller_key");
+            }
+            return record;
+        });
+        lenient().when(recordRepository.complete(anyLong(), anyInt(), any(), any())).thenAnswer(invocation -> {
+            IdempotencyRecord record = byId(invocation.getArgument(0));
+            if (record == null || record.getState() != IdempotencyRecord.State.IN_PROGRESS) {
+                return 0;
+            }
+            record.setStatusCode(invocation.getArgument(1));
+            record.setResponseBody(invocation.getArgument(2));
+            record.setExpiresAt(invocation.getArgument(3));
+            record.setState(IdempotencyRecord.State.COMPLETED);
+            return 1;
+        });
+        lenient().when(recordRepository.release(anyLong())).thenAnswer(invocation -> {
+            IdempotencyRecord record = byId(invocation.getArgument(0));
+            return record != null && table.values().remove(record) ? 1 : 0;
+        });
+    }
+
+    @Test
+    void retryWithSameBodyReplaysStoredResponseWithoutRunningHandlerAgain() {
+        IdempotencyService service = newService();
+
+        ResponseEntity<?> first = service.execute("orders", CALLER, "key-1", Map.of("a", 1), this::created);
+        ResponseEntity<?> retry = service.execute("orders", CALLER, "key-1", Map.of("a", 1), this::created);
+
+        assertEquals(201, first.getStatusCode().value());
+        assertEquals(201, retry.getStatusCode().value());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, handlerRuns.get());
+    }
+
+    @Test
+    void completedResponseIsReplayedOnAnotherNode() {
+        newService().execute("orders", CALLER, "key-1", Map.of("a", 1), this::created);
+
+        // A second instance has an empty in-memory cache and must go to the table
+        ResponseEntity<?> retry = newService().execute("orders", CALLER, "key-1", Map.of("a", 1), this::created);
+
+        assertEquals(201, retry.getStatusCode().value());
+        assertEquals("{\"id\":1}", retry.getBody());
+        assertEquals(1, handlerRuns.get());
+    }
+
+    @Test
+    void sameKeyWithDifferentBodyIsRejected() {
+        IdempotencyService service = newService();
+        service.execute("orders", CALLER, "key-1", Map.of("a", 1), this::created);
+
+        ResponseEntity<?> reused = service.execute("orders", CALLER, "key-1", Map.of("a", 2), this::created);
+
+        assertEquals(422, reused.getStatusCode().value());
+        assertEquals(1, handlerRuns.get());
+    }
+
+    @Test
+    void sameKeyFromAnotherCallerRunsSeparately() {
+        IdempotencyService service = newService();
+        service.execute("orders", CALLER, "key-1", Map.of("a", 1), this::created);
+
+        ResponseEntity<?> other = service.execute("orders", "email:mallory@example.com", "key-1", Map.of("a", 1), this::created);
+
+        assertNull(other.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(2, handlerRuns.get());
+    }
+
+    @Test
+    void concurrentRetriesOnDifferentNodesRunTheHandlerOnce() throws Exception {
+        CountDownLatch firstRunning = new CountDownLatch(1);
+        CountDownLatch retriesDone = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ResponseEntity<?>> first = executor.submit(() -> newService().execute("orders", CALLER, "key-1",
+                    Map.of("a", 1), () -> {
+                        firstRunning.countDown();
+                        awaitQuietly(retriesDone);
+                        return created();
+                    }));
+            assertTrue(firstRunning.await(5, TimeUnit.SECONDS));
+
+            // Claims live in the table, so a retry landing on another node sees them too
+            ResponseEntity<?> sameBody = newService().execute("orders", CALLER, "key-1", Map.of("a", 1), this::created);
+            ResponseEntity<?> otherBody = newService().execute("orders", CALLER, "key-1", Map.of("a", 2), this::created);
+            retriesDone.countDown();
+
+            assertEquals(409, sameBody.getStatusCode().value());
+            assertEquals(422, otherBody.getStatusCode().value());
+            assertEquals(201, first.get(5, TimeUnit.SECONDS).getStatusCode().value());
+            assertEquals(1, handlerRuns.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void claimLostToConcurrentInsertGetsConflict() {
+        // Both requests saw no row; the other one inserted its claim first
+        when(recordRepository.findByScopeAndCallerAndIdempotencyKey("orders", CALLER, "key-1"))
+                .thenReturn(Optional.empty())
+                .thenAnswer(invocation -> Optional.ofNullable(table.get(rowKey("orders", CALLER, "key-1"))));
+        table.put(rowKey("orders", CALLER, "key-1"),
+                new IdempotencyRecord("orders", CALLER, "key-1", hashOf(Map.of("a", 1)), LocalDateTime.now().plusSeconds(60)));
+
+        ResponseEntity<?> response = newService().execute("orders", CALLER, "key-1", Map.of("a", 1), this::created);
+
+        assertEquals(409, response.getStatusCode().value());
+        assertEquals(0, handlerRuns.get());
+    }
+
+    @Test
+    void serverErrorReleasesClaimSoRetryRunsAgain() {
+        IdempotencyService service = newService();
+
+        ResponseEntity<?> failed = service.execute("orders", CALLER, "key-1", Map.of("a", 1), () -> {
+            handlerRuns.incrementAndGet();
+            return ResponseEntity.status(503).build();
+        });
+        ResponseEntity<?> retry = service.execute("orders", CALLER, "key-1", Map.of("a", 1), this::created);
+
+        assertEquals(503, failed.getStatusCode().value());
+        assertEquals(201, retry.getStatusCode().value());
+        assertNull(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(2, handlerRuns.get());
+    }
+
+    @Test
+    void handlerExceptionReleasesClaim() {
+        IdempotencyService service = newService();
+
+        assertThrows(IllegalStateException.class, () -> service.execute("orders", CALLER, "key-1", Map.of("a", 1), () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertTrue(table.isEmpty());
+        assertEquals(201, service.execute("orders", CALLER, "key-1", Map.of("a", 1), this::created).getStatusCode().value());
+    }
+
+    @Test
+    void abandonedClaimIsTakenOver() {
+        IdempotencyRecord abandoned = new IdempotencyRecord("orders", CALLER, "key-1", hashOf(Map.of("a", 1)),
+                LocalDateTime.now().minusSeconds(1));
+        abandoned.setId(42L);
+        table.put(rowKey("orders", CALLER, "key-1"), abandoned);
+        when(recordRepository.takeOverAbandoned(eq(42L), anyString(), any(), any())).thenReturn(1);
+
+        ResponseEntity<?> response = newService().execute("orders", CALLER, "key-1", Map.of("a", 1), this::created);
+
+        assertEquals(201, response.getStatusCode().value());
+        assertEquals(IdempotencyRecord.State.COMPLETED, abandoned.getState());
+        assertEquals(1, handlerRuns.get());
+    }
+
+    private IdempotencyService newService() {
+        return new IdempotencyService(recordRepository, new ObjectMapper(), 24, 60, 100);
+    }
+
+    private ResponseEntity<?> created() {
+        handlerRuns.incrementAndGet();
+        return ResponseEntity.status(201).body(Map.of("id", 1));
+    }
+
+    private IdempotencyRecord byId(Long id) {
+        List<IdempotencyRecord> matches = table.values().stream().filter(record -> id.equals(record.getId())).toList();
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    private static String rowKey(String scope, String caller, String key) {
+        return scope + "|" + caller + "|" + key;
+    }
+
+    private static String hashOf(Object request) {
+        try {
+            byte[] json = new ObjectMapper().writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.model.Order;
+import com.aa.saf.broker.model.Order.OrderStatus;
+import com.aa.saf.broker.repository.ArchivedOrderRepository;
+import com.aa.saf.broker.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderCountersTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @InjectMocks
+    private OrderCounters orderCounters;
+
+    @Test
+    void reconcileLoadsTotalsFromDatabase() {
+        when(orderRepository.countGroupedByStatus()).thenReturn(List.of(
+                new Object[]{OrderStatus.PENDING, 3L},
+                new Object[]{OrderStatus.COMPLETED, 2L}));
+        when(orderRepository.getTotalSafVolumeCompleted()).thenReturn(60.0);
+        when(orderRepository.getTotalRevenueCompleted()).thenReturn(5.25);
+
+        orderCounters.reconcile();
+
+        assertEquals(5, orderCounters.getTotalOrders());
+        assertEquals(3, orderCounters.getCount(OrderStatus.PENDING));
+        assertEquals(2, orderCounters.getCount(OrderStatus.COMPLETED));
+        assertEquals(60.0, orderCounters.getCompletedSafVolume(), 1e-9);
+        assertEquals(5.25, orderCounters.getCompletedRevenue(), 1e-9);
+    }
+
+    @Test
+    void tracksOrdersThroughTheirLifecycle() {
+        Order order = new Order();
+        order.setSafVolume(30.0);
+        order.setPlatformFeeUsd(new BigDecimal("2.63"));
+
+        orderCounters.recordCreated(order);
+        orderCounters.recordTransition(OrderStatus.PENDING, OrderStatus.PAID, order);
+        orderCounters.recordTransition(OrderStatus.PAID, OrderStatus.COMPLETED, order);
+
+        assertEquals(1, orderCounters.getTotalOrders());
+        assertEquals(0, orderCounters.getCount(OrderStatus.PENDING));
+        assertEquals(0, orderCounters.getCount(OrderStatus.PAID));
+        assertEquals(1, orderCounters.getCount(OrderStatus.COMPLETED));
+        assertEquals(30.0, orderCounters.getCompletedSafVolume(), 1e-9);
+        assertEquals(2.63, orderCounters.getCompletedRevenue(), 1e-9);
+    }
+
+    @Test
+    void archivingKeepsTotalsAndSurvivesReconcile() {
+        when(archivedOrderRepository.count()).thenReturn(4L);
+        when(archivedOrderRepository.getTotalSafVolume()).thenReturn(40.0);
+        when(archivedOrderRepository.getTotalRevenue()).thenReturn(3.5);
+        when(orderRepository.countGroupedByStatus()).thenReturn(List.<Object[]>of(
+                new Object[]{OrderStatus.COMPLETED, 1L}));
+        when(orderRepository.getTotalSafVolumeCompleted()).thenReturn(10.0);
+        when(orderRepository.getTotalRevenueCompleted()).thenReturn(1.0);
+        orderCounters.loadArchiveTotals();
+        orderCounters.reconcile();
+
+        Order order = new Order();
+        order.setSafVolume(10.0);
+        order.setPlatformFeeUsd(new BigDecimal("1.00"));
+        orderCounters.recordArchived(List.of(order));
+
+        assertEquals(5, orderCounters.getTotalOrders());
+        assertEquals(5, orderCounters.getCount(OrderStatus.COMPLETED));
+        assertEquals(50.0, orderCounters.getCompletedSafVolume(), 1e-9);
+        assertEquals(4.5, orderCounters.getCompletedRevenue(), 1e-9);
+
+        // The hot table no longer has the archived order
+        when(orderRepository.countGroupedByStatus()).thenReturn(List.of());
+        when(orderRepository.getTotalSafVolumeCompleted()).thenReturn(null);
+        when(orderRepository.getTotalRevenueCompleted()).thenReturn(null);
+        orderCounters.reconcile();
+
+        assertEquals(5, orderCounters.getTotalOrders());
+        assertEquals(50.0, orderCounters.getCompletedSafVolume(), 1e-9);
+    }
+}
@@ -0,0 +1,119 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.model.Order;
+import com.aa.saf.broker.model.Order.OrderStatus;
+import com.aa.saf.broker.model.User;
+import com.aa.saf.broker.repository.OrderRepository;
+import com.aa.saf.broker.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderSearchIndexTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OrderSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new OrderSearchIndex(orderRepository, userRepository, transactionManager);
+    }
+
+    @Test
+    void matchesAllTermsNewestFirst() {
+        when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        // Out of id order, as orders committed by concurrent requests can be
+        index.recordCreated(List.of(
+                order(30L, "AA 100", "JFK", "LAX", "a@example.com"),
+                order(10L, "AA100", "JFK", "LAX", "b@example.com"),
+                order(20L, "AA100", "JFK", "ORD", "c@example.com"),
+                order(40L, "UA200", "JFK", "LAX", "d@example.com")));
+
+        OrderSearchIndex.Result result = index.search("aa100", "jfk", "lax", null, null, null, 10);
+
+        assertEquals(2, result.totalMatches());
+        assertEquals(List.of(30L, 10L), result.orderIds());
+        assertEquals(List.of(40L), index.search(null, "JFK", "LAX", null, null, null, 1).orderIds());
+        assertEquals(0, index.search("AA100", null, null, null, null, OrderStatus.PAID, 10).totalMatches());
+    }
+
+    @Test
+    void matchesCompanyWordsAndEmailFragments() {
+        User acme = new User();
+        acme.setCompany("Acme Travel Ltd");
+        when(userRepository.findByEmail("alice@acme.com")).thenReturn(Optional.of(acme));
+        when(userRepository.findByEmail("bob@globex.com")).thenReturn(Optional.empty());
+        index.recordCreated(List.of(
+                order(1L, "AA1", "JFK", "LAX", "alice@acme.com"),
+                order(2L, "AA1", "JFK", "LAX", "alice@acme.com"),
+                order(3L, "AA1", "JFK", "LAX", "bob@globex.com")));
+
+        assertEquals(List.of(2L, 1L), index.search(null, null, null, "acme travel", null, null, 10).orderIds());
+        assertEquals(List.of(3L), index.search(null, null, null, null, "GLOBEX", null, 10).orderIds());
+        assertEquals(0, index.search(null, null, null, "acme", "bob@", null, 10).totalMatches());
+        // One user lookup per distinct email
+        verify(userRepository, times(1)).findByEmail("alice@acme.com");
+    }
+
+    @Test
+    void emailTrigramFalsePositivesDoNotTakeResultSlots() {
+        when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        // "abcxbcd" holds both trigrams of "abcd" but not the fragment itself
+        index.recordCreated(List.of(
+                order(1L, "AA1", "JFK", "LAX", "abcd@example.com"),
+                order(2L, "AA1", "JFK", "LAX", "abcxbcd@example.com"),
+                order(3L, "AA1", "JFK", "LAX", "abcxbcd@example.com")));
+
+        OrderSearchIndex.Result result = index.search(null, null, null, null, "abcd", null, 1);
+
+        assertEquals(1, result.totalMatches());
+        assertEquals(List.of(1L), result.orderIds());
+    }
+
+    @Test
+    void followsStatusTransitions() {
+        when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        index.recordCreated(order(7L, "AA1", "JFK", "LAX", "a@example.com"));
+
+        index.recordTransition(7L, OrderStatus.PENDING, OrderStatus.PAID);
+
+        assertEquals(0, index.search(null, null, null, null, null, OrderStatus.PENDING, 10).totalMatches());
+        assertEquals(List.of(7L), index.search("AA1", null, null, null, null, OrderStatus.PAID, 10).orderIds());
+    }
+
+    @Test
+    void rejectsEmptyAndTooShortQueries() {
+        assertThrows(IllegalArgumentException.class, () -> index.search(null, " ", null, null, null, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.search(null, null, null, null, "ab", null, 10));
+    }
+
+    private static Order order(Long id, String flight, String from, String to, String email) {
+        Order order = new Order();
+        order.setId(id);
+        order.setFlightNumber(flight);
+        order.setDepartureAirport(from);
+        order.setArrivalAirport(to);
+        order.setUserEmail(email);
+        order.setStatus(OrderStatus.PENDING);
+        return order;
+    }
+}
@@ -0,0 +1,120 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.model.Order;
+import com.aa.saf.broker.model.OutboxEvent;
+import com.aa.saf.broker.repository.OrderRepository;
+import com.aa.saf.broker.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxDispatcherTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OutboxDispatcher dispatcher;
+
+    // Tracks whether the mocked transaction manager has a transaction open
+    private final AtomicBoolean inTransaction = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new OutboxDispatcher(outboxEventRepository, orderRepository, emailService, transactionManager);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 100);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "retryBackoffSeconds", 30L);
+        ReflectionTestUtils.setField(dispatcher, "claimLeaseSeconds", 300L);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            inTransaction.set(true);
+            return null;
+        });
+        doAnswer(invocation -> {
+            inTransaction.set(false);
+            return null;
+        }).when(transactionManager).commit(any());
+        when(orderRepository.findById(anyLong())).thenReturn(Optional.of(new Order()));
+    }
+
+    @Test
+    void sendsOutsideTheClaimTransactionAndMarksEachEventSent() throws Exception {
+        OutboxEvent event = event(1L, 0);
+        when(outboxEventRepository.claimDue(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(event));
+        doAnswer(invocation -> {
+            assertFalse(inTransaction.get(), "email sent while the claim transaction was open");
+            return null;
+        }).when(emailService).deliverOrderConfirmationEmail(any(Order.class));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        // Leased out of the due window before the claim committed
+        assertFalse(event.getNextAttemptAt().isBefore(before.plusSeconds(300)));
+        verify(emailService).deliverOrderConfirmationEmail(any(Order.class));
+        verify(outboxEventRepository).markSent(eq(1L), any(LocalDateTime.class));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void failedSendIsRetriedWithBackoff() throws Exception {
+        when(outboxEventRepository.claimDue(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(event(1L, 1)));
+        doThrow(new RuntimeException("SMTP unavailable")).when(emailService).deliverOrderConfirmationEmail(any(Order.class));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        // Second attempt failed: 30s << 1 = 60s
+        verify(outboxEventRepository).scheduleRetry(eq(1L), eq(2), eq("SMTP unavailable"), argThat(next ->
+                !next.isBefore(before.plusSeconds(60)) && next.isBefore(before.plusSeconds(61))));
+        verify(outboxEventRepository, never()).markSent(anyLong(), any());
+        verify(outboxEventRepository, never()).markFailed(anyLong(), anyInt(), any());
+    }
+
+    @Test
+    void lastAttemptMarksTheEventFailed() throws Exception {
+        when(outboxEventRepository.claimDue(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(event(1L, 2), event(2L, 0)));
+        doThrow(new RuntimeException("mailbox full"))
+                .doNothing()
+                .when(emailService).deliverOrderConfirmationEmail(any(Order.class));
+
+        dispatcher.dispatch();
+
+        // One event's failure does not hold back the other's result
+        verify(outboxEventRepository).markFailed(1L, 3, "mailbox full");
+        verify(outboxEventRepository).markSent(eq(2L), any(LocalDateTime.class));
+        verify(outboxEventRepository, never()).scheduleRetry(anyLong(), anyInt(), any(), any());
+    }
+
+    private static OutboxEvent event(Long id, int attempts) {
+        OutboxEvent event = new OutboxEvent(OutboxEvent.EventType.ORDER_CONFIRMATION, 10L + id);
+        event.setId(id);
+        event.setAttempts(attempts);
+        return event;
+    }
+}
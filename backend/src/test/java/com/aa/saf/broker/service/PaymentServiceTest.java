@@ -0,0 +1,187 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.model.Certificate;
+import com.aa.saf.broker.model.Order;
+import com.aa.saf.broker.model.Payment;
+import com.aa.saf.broker.repository.CertificateRepository;
+import com.aa.saf.broker.repository.OrderRepository;
+import com.aa.saf.broker.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private CertificateRepository certificateRepository;
+
+    @Mock
+    private PdfService pdfService;
+
+    @Mock
+    private RegistryService registryService;
+
+    @Mock
+    private OrderStateMachine orderStateMachine;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private OrderArchiveService orderArchiveService;
+
+    @InjectMocks
+    private PaymentService paymentService;
+
+    private final Order order = new Order();
+    // Tracks whether the mocked transaction manager has a transaction open
+    private final AtomicBoolean inTransaction = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        order.setId(7L);
+        order.setUserEmail("alice@example.com");
+        order.setSafVolume(120.0);
+        order.setPriceUsd(new BigDecimal("250.00"));
+        order.setStatus(Order.OrderStatus.PAID);
+        lenient().when(orderRepository.findById(7L)).thenReturn(Optional.of(order));
+        lenient().when(orderRepository.getReferenceById(7L)).thenReturn(order);
+        lenient().when(certificateRepository.findByOrderId(7L)).thenReturn(Optional.empty());
+        lenient().when(pdfService.generateCertificatePdf(anyLong(), anyString(), anyDouble(), anyDouble()))
+                .thenReturn("https://blob/cert-7.pdf");
+        lenient().when(registryService.registerCertificate(anyLong(), anyString())).thenReturn("REG-7");
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            inTransaction.set(true);
+            return null;
+        });
+        lenient().doAnswer(invocation -> {
+            inTransaction.set(false);
+            return null;
+        }).when(transactionManager).commit(any());
+        lenient().doAnswer(invocation -> {
+            inTransaction.set(false);
+            return null;
+        }).when(transactionManager).rollback(any());
+    }
+
+    @Test
+    void certificateAndCompletionCommitInOneTransaction() {
+        List<String> steps = new ArrayList<>();
+        when(orderStateMachine.claimCertificate(7L)).thenReturn(true);
+        when(certificateRepository.saveAndFlush(any(Certificate.class))).thenAnswer(invocation -> {
+            steps.add("certificate in transaction: " + inTransaction.get());
+            return invocation.getArgument(0);
+        });
+        when(orderStateMachine.complete(7L)).thenAnswer(invocation -> {
+            steps.add("complete in transaction: " + inTransaction.get());
+            return true;
+        });
+
+        paymentService.handleManualPaymentCompletion(7L);
+
+        assertEquals(List.of("certificate in transaction: true", "complete in transaction: true"), steps);
+        verify(transactionManager).commit(any());
+        verify(orderStateMachine, never()).releaseCertificateClaim(anyLong());
+    }
+
+    @Test
+    void failedCertificateInsertLeavesOrderPaidAndReleasesClaim() {
+        when(orderStateMachine.claimCertificate(7L)).thenReturn(true);
+        when(certificateRepository.saveAndFlush(any(Certificate.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_certificates_order"));
+
+        assertThrows(RuntimeException.class, () -> paymentService.handleManualPaymentCompletion(7L));
+
+        verify(orderStateMachine, never()).complete(anyLong());
+        verify(transactionManager).rollback(any());
+        verify(orderStateMachine).releaseCertificateClaim(7L);
+        verify(emailService, never()).sendCertificateReadyEmail(any(), anyString());
+    }
+
+    @Test
+    void retryWhileCertificateIsClaimedDoesNotGenerateAnother() throws Exception {
+        when(orderStateMachine.claimCertificate(7L)).thenReturn(false);
+
+        paymentService.handleManualPaymentCompletion(7L);
+
+        verify(pdfService, never()).generateCertificatePdf(anyLong(), anyString(), anyDouble(), anyDouble());
+        verify(certificateRepository, never()).saveAndFlush(any(Certificate.class));
+    }
+
+    @Test
+    void concurrentRetriesOfPaidOrderGenerateOneCertificate() throws Exception {
+        // The conditional claim update: only the first caller sees a row change
+        AtomicBoolean claimed = new AtomicBoolean();
+        when(orderStateMachine.claimCertificate(7L)).thenAnswer(invocation -> claimed.compareAndSet(false, true));
+        when(orderStateMachine.complete(7L)).thenReturn(true);
+        when(certificateRepository.saveAndFlush(any(Certificate.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Hold the winner inside PDF generation until the other retry has finished
+        CountDownLatch generating = new CountDownLatch(1);
+        CountDownLatch loserDone = new CountDownLatch(1);
+        AtomicInteger pdfs = new AtomicInteger();
+        when(pdfService.generateCertificatePdf(anyLong(), anyString(), anyDouble(), anyDouble())).thenAnswer(invocation -> {
+            pdfs.incrementAndGet();
+            generating.countDown();
+            loserDone.await(5, TimeUnit.SECONDS);
+            return "https://blob/cert-7.pdf";
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> winner = executor.submit(() -> paymentService.handleManualPaymentCompletion(7L));
+            assertTrue(generating.await(5, TimeUnit.SECONDS));
+
+            paymentService.handleManualPaymentCompletion(7L);
+            loserDone.countDown();
+            winner.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, pdfs.get());
+        verify(registryService, times(1)).registerCertificate(anyLong(), anyString());
+        verify(certificateRepository, times(1)).saveAndFlush(any(Certificate.class));
+    }
+
+    @Test
+    void paymentOrderIsResolvedFromTheArchiveOnceArchived() {
+        Payment payment = new Payment(order, null, new BigDecimal("250.00"));
+        when(orderRepository.findById(7L)).thenReturn(Optional.empty());
+        when(orderArchiveService.findArchivedOrder(7L)).thenReturn(Optional.of(order));
+
+        assertEquals(Long.valueOf(7L), payment.getOrderId());
+        assertSame(order, paymentService.findOrder(payment).orElseThrow());
+    }
+}
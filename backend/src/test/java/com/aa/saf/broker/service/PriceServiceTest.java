@@ -0,0 +1,60 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.dto.PriceResponse;
+import com.aa.saf.broker.dto.ScenarioQuoteResponse;
+import com.aa.saf.broker.security.QuoteTokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceServiceTest {
+
+    private final PriceService priceService = new PriceService(WebClient.builder().build(),
+            new QuoteTokenService("testSecretKey123456789012345678901234567890"));
+
+    // A321 at 2000 km burns 3.2 L per kg CO2: 3200 L for 1000 kg
+    private final PriceService.PriceData prices = new PriceService.PriceData(new BigDecimal("2.00"), new BigDecimal("0.05"));
+
+    @Test
+    void scenariosPriceTheirBlendVolumeAndTheFlightsCarbonCredit() {
+        ScenarioQuoteResponse response = priceService.calculateBlendScenarios(1000.0, 2000.0, "Airbus A321",
+                new double[] {0.1, 0.5, 1.0}, prices);
+
+        assertEquals(3200.0, response.getTotalFuelVolume());
+        assertEquals(new BigDecimal("50.00"), response.getCarbonCredit());
+
+        // 320 L: 640.00 base + 50.00 credit + 22.40 processing + 10.88 regulatory - 32.00 discount
+        ScenarioQuoteResponse.Scenario tenth = response.getScenarios().get(0);
+        assertEquals(320.0, tenth.getSafVolume());
+        assertEquals(new BigDecimal("50.00"), tenth.getCarbonCredit());
+        assertEquals(new BigDecimal("691.28"), tenth.getTotalPrice());
+
+        ScenarioQuoteResponse.Scenario half = response.getScenarios().get(1);
+        assertEquals(1600.0, half.getSafVolume());
+        assertEquals(new BigDecimal("3256.40"), half.getTotalPrice());
+        assertEquals(800.0, half.getCarbonReduction());
+
+        ScenarioQuoteResponse.Scenario full = response.getScenarios().get(2);
+        assertEquals(new BigDecimal("50.00"), full.getCarbonCredit());
+        assertEquals(new BigDecimal("6462.80"), full.getTotalPrice());
+    }
+
+    @Test
+    void defaultBlendScenarioMatchesDetailedQuote() {
+        PriceResponse quote = priceService.calculateDetailedQuote(1000.0, 2000.0, "Airbus A321", prices);
+        ScenarioQuoteResponse.Scenario scenario = priceService.calculateBlendScenarios(1000.0, 2000.0, "Airbus A321",
+                new double[] {0.25}, prices).getScenarios().get(0);
+
+        assertEquals(quote.getRecommendedSafVolume(), scenario.getSafVolume());
+        assertEquals(quote.getBaseCost(), scenario.getBaseCost());
+        assertEquals(quote.getCarbonCredit(), scenario.getCarbonCredit());
+        assertEquals(quote.getProcessingFee(), scenario.getProcessingFee());
+        assertEquals(quote.getRegulatoryFee(), scenario.getRegulatoryFee());
+        assertEquals(quote.getVolumeDiscount(), scenario.getVolumeDiscount());
+        assertEquals(quote.getTotalPrice(), scenario.getTotalPrice());
+        assertEquals(quote.getCarbonReduction(), scenario.getCarbonReduction());
+    }
+}
@@ -0,0 +1,90 @@
+package com.aa.saf.broker.service;
+
+import com.aa.saf.broker.repository.QuoteRedemptionRepository;
+import com.aa.saf.broker.security.QuoteTokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QuoteRedemptionServiceTest {
+
+    @Mock
+    private QuoteRedemptionRepository redemptionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private QuoteRedemptionService redemptionService;
+
+    @BeforeEach
+    void setUp() {
+        redemptionService = new QuoteRedemptionService(redemptionRepository, transactionManager);
+    }
+
+    @Test
+    void secondRedemptionOfATokenFails() {
+        when(redemptionRepository.saveAndFlush(any()))
+                .thenReturn(null)
+                .thenThrow(new DataIntegrityViolationException("duplicate nonce"));
+
+        assertTrue(redemptionService.redeem(claims("a")));
+        assertFalse(redemptionService.redeem(claims("a")));
+    }
+
+    @Test
+    void redeemAllSkipsSpentAndRepeatedTokens() {
+        when(redemptionRepository.findRedeemed(anyList())).thenReturn(List.of("b"));
+
+        Set<String> redeemed = redemptionService.redeemAll(List.of(claims("a"), claims("b"), claims("a"), claims("c")));
+
+        assertEquals(Set.of("a", "c"), redeemed);
+        verify(redemptionRepository).saveAll(argThat(rows -> rows != null && ((List<?>) rows).size() == 2));
+        verify(redemptionRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void redeemAllSettlesOneByOneWhenRacedByAnotherRequest() {
+        when(redemptionRepository.findRedeemed(anyList())).thenReturn(List.of());
+        when(redemptionRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("duplicate nonce"));
+        // "b" was redeemed elsewhere between the lookup and the insert
+        when(redemptionRepository.saveAndFlush(any()))
+                .thenReturn(null)
+                .thenThrow(new DataIntegrityViolationException("duplicate nonce"));
+
+        assertEquals(Set.of("a"), redemptionService.redeemAll(List.of(claims("a"), claims("b"))));
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void releaseAllDeletesTheNoncesInChunks() {
+        List<String> nonces = IntStream.range(0, 2500).mapToObj(i -> "n" + i).toList();
+        when(redemptionRepository.deleteByNonces(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        redemptionService.releaseAll(nonces);
+
+        verify(redemptionRepository, times(3)).deleteByNonces(anyList());
+        verify(redemptionRepository).deleteByNonces(argThat(chunk -> chunk != null && chunk.size() == 500 && chunk.contains("n2499")));
+    }
+
+    private static QuoteTokenService.QuoteClaims claims(String nonce) {
+        return new QuoteTokenService.QuoteClaims(Instant.now().plusSeconds(600), 1L, new BigDecimal("10.00"),
+                3.0, 10.0, 0L, nonce);
+    }
+}
@@ -0,0 +1,66 @@
+package com.aa.saf.broker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void expiresAtFirstTickAfterDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 0);
+        wheel.schedule("a", 2500);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(2999, expired::add);
+        assertTrue(expired.isEmpty());
+
+        wheel.advance(3000, expired::add);
+        assertEquals(List.of("a"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledEntriesNeverExpire() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 0);
+        TimingWheel.Timeout<String> keep = wheel.schedule("keep", 5000);
+        TimingWheel.Timeout<String> drop = wheel.schedule("drop", 5000);
+
+        assertTrue(wheel.cancel(drop));
+        assertFalse(wheel.cancel(drop));
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(10_000, expired::add);
+        assertEquals(List.of("keep"), expired);
+        assertFalse(keep.isPending());
+    }
+
+    @Test
+    void cascadingLevelsExpireEachEntryOnItsOwnTick() {
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 0);
+        Random random = new Random(42);
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            // Spread across all four levels, including deadlines past the top level's span
+            long deadline = 1 + (long) (Math.pow(random.nextDouble(), 4) * 20_000_000L);
+            wheel.schedule(deadline, deadline);
+        }
+
+        long[] now = {0};
+        int[] expired = {0};
+        for (long step = 0; step < 20_000_000L; step += 997) {
+            now[0] = step;
+            wheel.advance(step, deadline -> {
+                assertTrue(deadline <= now[0] && deadline > now[0] - 997, "expired late or early: " + deadline);
+                expired[0]++;
+            });
+        }
+        wheel.advance(20_000_000L, deadline -> expired[0]++);
+        assertEquals(count, expired[0]);
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,68 @@
+package com.aa.saf.broker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamHealthTest {
+
+    @Test
+    void opensAfterRepeatedFailuresAndSkipsDuringCooldown() {
+        UpstreamHealth health = new UpstreamHealth("test", 0.3, 0.5, Duration.ofMinutes(1));
+
+        health.recordFailure();
+        assertFalse(health.isOpen());
+        health.recordFailure();
+
+        assertTrue(health.isOpen());
+        assertFalse(health.allowRequest());
+    }
+
+    @Test
+    void letsOneTrialThroughAfterCooldownAndClosesOnSuccess() {
+        UpstreamHealth health = openedWithoutCooldown();
+
+        assertTrue(health.allowRequest());
+        assertFalse(health.allowRequest(), "only one trial while it is in flight");
+
+        health.recordSuccess();
+        assertFalse(health.isOpen());
+        assertTrue(health.allowRequest());
+        assertTrue(health.getScore() >= 0.5);
+    }
+
+    @Test
+    void failedTrialKeepsItOpen() {
+        UpstreamHealth health = new UpstreamHealth("test", 0.3, 0.5, Duration.ofMinutes(1));
+        health.recordFailure();
+        health.recordFailure();
+
+        health.recordFailure();
+
+        assertTrue(health.isOpen());
+        assertFalse(health.allowRequest());
+    }
+
+    @Test
+    void skippedTrialIsHandedToTheNextCaller() {
+        UpstreamHealth health = openedWithoutCooldown();
+        double score = health.getScore();
+        assertTrue(health.allowRequest());
+
+        health.recordSkipped();
+
+        assertTrue(health.isOpen());
+        assertEquals(score, health.getScore());
+        assertTrue(health.allowRequest());
+    }
+
+    private static UpstreamHealth openedWithoutCooldown() {
+        UpstreamHealth health = new UpstreamHealth("test", 0.3, 0.5, Duration.ZERO);
+        health.recordFailure();
+        health.recordFailure();
+        assertTrue(health.isOpen());
+        return health;
+    }
+}
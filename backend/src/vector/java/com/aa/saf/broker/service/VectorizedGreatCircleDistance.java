@@ -0,0 +1,52 @@
+package com.aa.saf.broker.service;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static com.aa.saf.broker.service.GreatCircleDistance.DEG_TO_RAD;
+import static com.aa.saf.broker.service.GreatCircleDistance.EARTH_RADIUS_KM;
+
+/**
+ * SIMD Haversine kernel on the JDK Vector API. Loaded by name from {@link GreatCircleDistance}
+ * after it has checked that the incubator module is resolvable, so this class is never loaded
+ * on JVMs started without {@code --add-modules jdk.incubator.vector}.
+ */
+final class VectorizedGreatCircleDistance implements GreatCircleDistance.BatchKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    VectorizedGreatCircleDistance() {
+    }
+
+    @Override
+    public int laneCount() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void distancesKm(double[] lat1, double[] lon1, double[] lat2, double[] lon2,
+                            double[] out, int length) {
+        int i = 0;
+        int upper = SPECIES.loopBound(length);
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector phi1 = DoubleVector.fromArray(SPECIES, lat1, i).mul(DEG_TO_RAD);
+            DoubleVector phi2 = DoubleVector.fromArray(SPECIES, lat2, i).mul(DEG_TO_RAD);
+            DoubleVector lambda1 = DoubleVector.fromArray(SPECIES, lon1, i).mul(DEG_TO_RAD);
+            DoubleVector lambda2 = DoubleVector.fromArray(SPECIES, lon2, i).mul(DEG_TO_RAD);
+
+            DoubleVector sinDLat = phi2.sub(phi1).mul(0.5).lanewise(VectorOperators.SIN);
+            DoubleVector sinDLon = lambda2.sub(lambda1).mul(0.5).lanewise(VectorOperators.SIN);
+            DoubleVector cosProduct = phi1.lanewise(VectorOperators.COS)
+                    .mul(phi2.lanewise(VectorOperators.COS));
+
+            DoubleVector a = sinDLat.mul(sinDLat).add(cosProduct.mul(sinDLon).mul(sinDLon));
+            DoubleVector c = a.lanewise(VectorOperators.SQRT)
+                    .lanewise(VectorOperators.ATAN2, a.neg().add(1.0).lanewise(VectorOperators.SQRT))
+                    .mul(2.0);
+
+            c.mul(EARTH_RADIUS_KM).intoArray(out, i);
+        }
+        GreatCircleDistance.scalarDistancesKm(lat1, lon1, lat2, lon2, out, i, length);
+    }
+}
@@ -1436,7 +1436,9 @@ export class CreateOrderComponent implements OnInit {
         flightDate: this.orderForm.value.flightDate,
         flightEmissions: this.calculatedEmissions,
         safVolume: this.currentQuote.recommendedSafVolume,
-        priceUsd: this.currentQuote.totalPrice
+        priceUsd: this.currentQuote.totalPrice,
+        quoteId: this.currentQuote.quoteId,
+        quoteToken: this.currentQuote.quoteToken
       };
 
       this.orderService.createOrder(orderRequest).subscribe({
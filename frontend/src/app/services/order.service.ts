@@ -36,6 +36,8 @@ export interface OrderRequest {
   flightEmissions: number;
   safVolume: number;
   priceUsd: number;
+  quoteId?: string;
+  quoteToken?: string;
 }
 
 export interface Certificate {
@@ -62,6 +64,8 @@ export interface Certificate {
 }
 
 export interface Quote {
+  quoteId?: string;
+  quoteToken?: string;
   flightEmissions: number;
   recommendedSafVolume: number;
   pricePerLiter: number;